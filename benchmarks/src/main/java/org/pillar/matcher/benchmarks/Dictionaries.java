@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates reproducible synthetic dictionaries and inputs. The same arguments
+ * always generate the same keywords and text.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class Dictionaries {
+	// the seed of every generator
+	private static final long SEED = 0x5EED;
+	// the first character of alphabets that do not fit in the Latin letters
+	private static final char WIDE_ALPHABET_START = '\u4E00';
+
+	private Dictionaries() {
+	}
+
+	/**
+	 * Generates a dictionary of distinct keywords.
+	 * 
+	 * @param keywordCount the number of keywords
+	 * @param alphabetSize the number of distinct characters keywords are made of
+	 * @param lengths the distribution of keyword lengths
+	 * @return a new Set of keywords, in generation order
+	 */
+	public static Set<String> keywords(int keywordCount, int alphabetSize, LengthDistribution lengths) {
+		final Random random = new Random(SEED ^ keywordCount ^ ((long) alphabetSize << 32) ^ lengths.ordinal());
+		final Set<String> keywords = new LinkedHashSet<>(keywordCount * 2);
+		int attempts = 0;
+		while (keywords.size() < keywordCount) {
+			// short keywords over small alphabets run out, so lengthen them
+			final int length = lengths.nextLength(random) + attempts / (keywordCount * 4 + 64);
+			keywords.add(randomString(random, alphabetSize, length));
+			attempts++;
+		}
+		return keywords;
+	}
+
+	/**
+	 * Generates an input for the given keywords.
+	 * 
+	 * @param keywords the keywords to plant in the text
+	 * @param alphabetSize the alphabet the keywords were generated with
+	 * @param length the length of the text
+	 * @param density how many matches the text contains
+	 * @return a new String
+	 */
+	public static String text(Set<String> keywords, int alphabetSize, int length, MatchDensity density) {
+		final Random random = new Random(SEED ^ length ^ density.ordinal());
+		final List<String> planted = new ArrayList<>(keywords);
+		final StringBuilder text = new StringBuilder(length + 64);
+		while (text.length() < length) {
+			if (random.nextDouble() < density.plantedFraction) {
+				text.append(planted.get(random.nextInt(planted.size())));
+			} else if (density.keywordBackground) {
+				text.append(character(random.nextInt(alphabetSize), alphabetSize));
+			} else {
+				// outside of every keyword alphabet
+				text.append(random.nextBoolean() ? ' ' : (char) ('0' + random.nextInt(10)));
+			}
+		}
+		text.setLength(length);
+		return text.toString();
+	}
+
+	private static String randomString(Random random, int alphabetSize, int length) {
+		final char[] characters = new char[length];
+		for (int i = 0; i < length; i++) {
+			characters[i] = character(random.nextInt(alphabetSize), alphabetSize);
+		}
+		return new String(characters);
+	}
+
+	private static char character(int index, int alphabetSize) {
+		return (char) (((alphabetSize <= 26) ? 'a' : WIDE_ALPHABET_START) + index);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pillar.matcher.StringMatcher;
+
+/**
+ * Estimates the heap retained by a StringMatcher, beyond its keywords, as the
+ * difference in used heap after full collections with and without it. The 
+ * estimate is reported in the {@code retainedBytes} secondary result.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g", "-XX:+UseSerialGC" })
+public class FootprintBenchmark {
+	@Param({ "10", "1000", "100000", "1000000" })
+	int keywordCount;
+
+	@Param({ "26", "1000" })
+	int alphabetSize;
+
+	@Param({ "UNIFORM", "LONG_TAIL" })
+	LengthDistribution lengths;
+
+	@Param
+	Implementation implementation;
+
+	Set<String> keywords;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		keywords = Dictionaries.keywords(keywordCount, alphabetSize, lengths);
+	}
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint {
+		public long retainedBytes;
+	}
+
+	@Benchmark
+	public StringMatcher retainedSize(Footprint footprint) {
+		final long before = usedHeapAfterGc();
+		final StringMatcher matcher = implementation.build(keywords);
+		footprint.retainedBytes = usedHeapAfterGc() - before;
+		return matcher;
+	}
+
+	private static long usedHeapAfterGc() {
+		final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.benchmarks;
+
+import java.util.Set;
+
+import org.pillar.matcher.StringMatcher;
+import org.pillar.matcher.StringMatchers;
+import org.pillar.matcher.ahocorasick.AhoCorasick;
+import org.pillar.matcher.ahocorasick.CompiledAhoCorasickBuilder;
+import org.pillar.matcher.ahocorasick.Prefilter;
+import org.pillar.matcher.ahocorasick.TransitionMode;
+
+/**
+ * The StringMatcher implementations under benchmark.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public enum Implementation {
+	AHO_CORASICK {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return new AhoCorasick(keywords);
+		}
+	},
+	COMPILED_GOTO_FAILURE {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return compiled(keywords, TransitionMode.GOTO_FAILURE);
+		}
+	},
+	COMPILED_DETERMINISTIC {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return compiled(keywords, TransitionMode.DETERMINISTIC);
+		}
+	},
+	COMPILED_SPARSE {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return compiled(keywords, TransitionMode.SPARSE);
+		}
+	},
+	COMPILED_ADAPTIVE {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return compiled(keywords, TransitionMode.ADAPTIVE);
+		}
+	},
+	COMPILED_DETERMINISTIC_UNFILTERED {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return CompiledAhoCorasickBuilder.create()
+					.withKeywords(keywords)
+					.withTransitionMode(TransitionMode.DETERMINISTIC)
+					.withPrefilter(Prefilter.OFF)
+					.build();
+		}
+	},
+	COMPILED_SPARSE_MINIMIZED {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return CompiledAhoCorasickBuilder.create()
+					.withKeywords(keywords)
+					.withTransitionMode(TransitionMode.SPARSE)
+					.withMinimization(true)
+					.build();
+		}
+	},
+	// a TeddyMatcher for small dictionaries, a compiled state machine otherwise
+	AUTO {
+		@Override
+		StringMatcher build(Set<String> keywords) {
+			return new StringMatchers().newStringMatcher(keywords);
+		}
+	};
+
+	abstract StringMatcher build(Set<String> keywords);
+
+	private static StringMatcher compiled(Set<String> keywords, TransitionMode transitionMode) {
+		return CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withTransitionMode(transitionMode)
+				.build();
+	}
+}
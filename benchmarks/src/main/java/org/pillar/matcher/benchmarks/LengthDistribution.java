@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.benchmarks;
+
+import java.util.Random;
+
+/**
+ * How the lengths of synthetic keywords are distributed.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public enum LengthDistribution {
+	/**
+	 * Uniform between 1 and 4 characters, like codes and abbreviations.
+	 */
+	SHORT {
+		@Override
+		int nextLength(Random random) {
+			return 1 + random.nextInt(4);
+		}
+	},
+	/**
+	 * Uniform between 4 and 12 characters, like words.
+	 */
+	UNIFORM {
+		@Override
+		int nextLength(Random random) {
+			return 4 + random.nextInt(9);
+		}
+	},
+	/**
+	 * Mostly words, with a geometric tail of phrases up to 64 characters.
+	 */
+	LONG_TAIL {
+		@Override
+		int nextLength(Random random) {
+			int length = 3 + random.nextInt(6);
+			while (length < 64 && random.nextInt(4) == 0) {
+				length += 1 + random.nextInt(8);
+			}
+			return Math.min(length, 64);
+		}
+	};
+
+	abstract int nextLength(Random random);
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pillar.matcher.MatchResult;
+import org.pillar.matcher.StringMatcher;
+
+/**
+ * Measures the throughput of matching a 1MB input, in inputs per second. Run
+ * with {@code -prof gc} to also report the allocation rate of each method.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class MatchBenchmark {
+	// the length of every input
+	private static final int TEXT_LENGTH = 1 << 20;
+
+	@Param({ "10", "1000", "100000" })
+	int keywordCount;
+
+	@Param({ "26", "1000" })
+	int alphabetSize;
+
+	@Param({ "UNIFORM" })
+	LengthDistribution lengths;
+
+	@Param
+	MatchDensity density;
+
+	@Param
+	Implementation implementation;
+
+	StringMatcher matcher;
+	String text;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final Set<String> keywords = Dictionaries.keywords(keywordCount, alphabetSize, lengths);
+		matcher = implementation.build(keywords);
+		text = Dictionaries.text(keywords, alphabetSize, TEXT_LENGTH, density);
+	}
+
+	@Benchmark
+	public List<MatchResult> match() {
+		return matcher.match(text);
+	}
+
+	@Benchmark
+	public boolean matchHandler(Blackhole blackhole) {
+		return matcher.match(text, (keywordId, start, end) -> {
+			blackhole.consume(keywordId);
+			blackhole.consume(end);
+			return true;
+		});
+	}
+
+	@Benchmark
+	public boolean containsMatch() {
+		return matcher.containsMatch(text);
+	}
+}
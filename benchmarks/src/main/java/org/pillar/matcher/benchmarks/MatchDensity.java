@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.benchmarks;
+
+/**
+ * How many matches a synthetic input contains.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public enum MatchDensity {
+	/**
+	 * About 1% of the input is covered by planted keywords, the rest is made
+	 * of characters that no keyword contains.
+	 */
+	LOW(0.01, false),
+	/**
+	 * About half of the input is covered by planted keywords, the rest is made
+	 * of keyword characters, so partial matches are frequent.
+	 */
+	HIGH(0.5, true);
+
+	final double plantedFraction;
+	final boolean keywordBackground;
+
+	private MatchDensity(double plantedFraction, boolean keywordBackground) {
+		this.plantedFraction = plantedFraction;
+		this.keywordBackground = keywordBackground;
+	}
+}
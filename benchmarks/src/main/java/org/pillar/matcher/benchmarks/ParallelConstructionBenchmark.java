@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pillar.matcher.StringMatcher;
+import org.pillar.matcher.ahocorasick.CompiledAhoCorasickBuilder;
+import org.pillar.matcher.ahocorasick.TransitionMode;
+
+/**
+ * Measures how building a compiled StringMatcher scales with the number of
+ * construction threads. A parallelism of 0 builds in the calling thread, 
+ * without sorting the keywords; the speedup of n threads is the ratio of its
+ * score to that one.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms12g", "-Xmx12g" })
+public class ParallelConstructionBenchmark {
+	@Param({ "1000000", "5000000" })
+	int keywordCount;
+
+	@Param({ "26", "1000" })
+	int alphabetSize;
+
+	@Param({ "UNIFORM" })
+	LengthDistribution lengths;
+
+	@Param({ "GOTO_FAILURE", "DETERMINISTIC" })
+	TransitionMode transitionMode;
+
+	@Param({ "0", "1", "2", "4", "8" })
+	int parallelism;
+
+	Set<String> keywords;
+	ForkJoinPool pool;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		keywords = Dictionaries.keywords(keywordCount, alphabetSize, lengths);
+		pool = (parallelism == 0) ? null : new ForkJoinPool(parallelism);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public StringMatcher build() {
+		return CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withTransitionMode(transitionMode)
+				.withConstructionPool(pool)
+				.build();
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher;
+
+/**
+ * The matches found in a batch of documents by a {@link BatchMatcher}, in 
+ * columnar form: match {@code i} is keyword {@code getKeywordId(i)} found in 
+ * document {@code getDocument(i)} at {@code [getStart(i), getEnd(i))}. Matches
+ * are ordered by document, then as the matcher reported them, so the matches
+ * of document {@code d} are the indexes {@code [firstMatch(d), firstMatch(d + 1))}.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class BatchMatchResults {
+	// the first match of each document, and the number of matches last
+	private final int[] firstMatches;
+	private final int[] documents;
+	private final int[] keywordIds;
+	private final int[] starts;
+	private final int[] ends;
+
+	BatchMatchResults(int[] firstMatches, int[] documents, int[] keywordIds, int[] starts, int[] ends) {
+		this.firstMatches = firstMatches;
+		this.documents = documents;
+		this.keywordIds = keywordIds;
+		this.starts = starts;
+		this.ends = ends;
+	}
+
+	/**
+	 * Returns the number of documents matched.
+	 * 
+	 * @return the number of documents
+	 */
+	public int getDocumentCount() {
+		return firstMatches.length - 1;
+	}
+
+	/**
+	 * Returns the number of matches in every document.
+	 * 
+	 * @return the number of matches
+	 */
+	public int size() {
+		return documents.length;
+	}
+
+	/**
+	 * Returns the index of the first match of the given document, which is also
+	 * one past the last match of the previous one.
+	 * 
+	 * @param document a document index, or the number of documents
+	 * @return the index of the document's first match
+	 * @throws IndexOutOfBoundsException if there is no such document
+	 */
+	public int firstMatch(int document) {
+		return firstMatches[document];
+	}
+
+	/**
+	 * Returns the number of matches in the given document.
+	 * 
+	 * @param document a document index
+	 * @return the number of matches
+	 * @throws IndexOutOfBoundsException if there is no such document
+	 */
+	public int matchCount(int document) {
+		return firstMatches[document + 1] - firstMatches[document];
+	}
+
+	/**
+	 * Returns the index, in the batch, of the document of the given match.
+	 * 
+	 * @param match a match index
+	 * @return the document index
+	 */
+	public int getDocument(int match) {
+		return documents[match];
+	}
+
+	/**
+	 * Returns the id of the keyword of the given match.
+	 * 
+	 * @param match a match index
+	 * @return the keyword id
+	 * @see StringMatcher#getKeyword(int)
+	 */
+	public int getKeywordId(int match) {
+		return keywordIds[match];
+	}
+
+	/**
+	 * Returns the index of the first character of the given match.
+	 * 
+	 * @param match a match index
+	 * @return the start offset
+	 */
+	public int getStart(int match) {
+		return starts[match];
+	}
+
+	/**
+	 * Returns the offset after the last character of the given match.
+	 * 
+	 * @param match a match index
+	 * @return the end offset
+	 */
+	public int getEnd(int match) {
+		return ends[match];
+	}
+
+	/**
+	 * Returns a copy of the document column.
+	 * 
+	 * @return the document index of each match
+	 */
+	public int[] documents() {
+		return documents.clone();
+	}
+
+	/**
+	 * Returns a copy of the keyword id column.
+	 * 
+	 * @return the keyword id of each match
+	 */
+	public int[] keywordIds() {
+		return keywordIds.clone();
+	}
+
+	/**
+	 * Returns a copy of the start offset column.
+	 * 
+	 * @return the start offset of each match
+	 */
+	public int[] starts() {
+		return starts.clone();
+	}
+
+	/**
+	 * Returns a copy of the end offset column.
+	 * 
+	 * @return the end offset of each match
+	 */
+	public int[] ends() {
+		return ends.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "BatchMatchResults [documentCount=" + getDocumentCount() + ", size=" + size() + "]";
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Matches batches of documents, typically many short ones, with a 
+ * {@link StringMatcher}, and returns their matches in columnar form. No 
+ * object is created per match: matches are collected in {@code int} buffers
+ * held per thread and reused from one batch to the next.
+ * 
+ * <p>With an Executor, the batch is split into slices of consecutive 
+ * documents, which are matched concurrently; the StringMatcher must then be
+ * thread safe, as the Aho-Corasick ones are.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class BatchMatcher {
+	// the default number of documents matched by each task
+	public static final int DEFAULT_SLICE_SIZE = 1024;
+
+	private final StringMatcher matcher;
+	private final Executor executor;
+	private final int sliceSize;
+	private final ThreadLocal<Collector> collectors = ThreadLocal.withInitial(Collector::new);
+
+	/**
+	 * Initializes a BatchMatcher that matches in the calling thread.
+	 * 
+	 * @param matcher the StringMatcher to match with
+	 */
+	public BatchMatcher(StringMatcher matcher) {
+		this(matcher, null, DEFAULT_SLICE_SIZE);
+	}
+
+	/**
+	 * Initializes a BatchMatcher that matches slices of each batch with the
+	 * given Executor, for example a ForkJoinPool.
+	 * 
+	 * @param matcher the thread safe StringMatcher to match with
+	 * @param executor runs the slices, or null to match in the calling thread
+	 * @param sliceSize the number of documents matched by each task
+	 */
+	public BatchMatcher(StringMatcher matcher, Executor executor, int sliceSize) {
+		if (sliceSize <= 0) {
+			throw new IllegalArgumentException("sliceSize must be positive, not " + sliceSize);
+		}
+		this.matcher = Objects.requireNonNull(matcher, "matcher cannot be null.");
+		this.executor = executor;
+		this.sliceSize = sliceSize;
+	}
+
+	/**
+	 * Matches the given documents.
+	 * 
+	 * @param documents the documents, indexed by position
+	 * @return the matches of every document
+	 */
+	public BatchMatchResults match(List<String> documents) {
+		return match(documents.toArray(new String[documents.size()]));
+	}
+
+	/**
+	 * Matches the documents of the given Stream, in encounter order.
+	 * 
+	 * @param documents the documents, indexed by encounter order
+	 * @return the matches of every document
+	 */
+	public BatchMatchResults match(Stream<String> documents) {
+		return match(documents.toArray(String[]::new));
+	}
+
+	/**
+	 * Matches the given documents.
+	 * 
+	 * @param documents the documents, indexed by position
+	 * @return the matches of every document
+	 */
+	public BatchMatchResults match(String[] documents) {
+		Objects.requireNonNull(documents, "documents cannot be null.");
+		if (executor == null || documents.length <= sliceSize) {
+			return merge(documents.length, Arrays.asList(collectors.get().match(matcher, documents, 0, 
+					documents.length)));
+		}
+		final List<CompletableFuture<Slice>> futures = new ArrayList<>();
+		for (int from = 0; from < documents.length; from += sliceSize) {
+			final int start = from;
+			final int end = Math.min(documents.length, from + sliceSize);
+			futures.add(CompletableFuture.supplyAsync(() -> collectors.get().match(matcher, documents, start, end),
+					executor));
+		}
+		final List<Slice> slices = new ArrayList<>(futures.size());
+		try {
+			for (CompletableFuture<Slice> future : futures) {
+				slices.add(future.join());
+			}
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+		return merge(documents.length, slices);
+	}
+
+	/*
+	 * Concatenates the matches of consecutive slices.
+	 */
+	private static BatchMatchResults merge(int documentCount, List<Slice> slices) {
+		int size = 0;
+		for (Slice slice : slices) {
+			size += slice.keywordIds.length;
+		}
+		final int[] firstMatches = new int[documentCount + 1];
+		final int[] documents = new int[size];
+		final int[] keywordIds = new int[size];
+		final int[] starts = new int[size];
+		final int[] ends = new int[size];
+		int offset = 0;
+		for (Slice slice : slices) {
+			final int count = slice.keywordIds.length;
+			for (int document = slice.from; document < slice.to; document++) {
+				firstMatches[document] = offset + slice.firstMatches[document - slice.from];
+			}
+			for (int match = 0; match < count; match++) {
+				documents[offset + match] = slice.from + slice.documents[match];
+			}
+			System.arraycopy(slice.keywordIds, 0, keywordIds, offset, count);
+			System.arraycopy(slice.starts, 0, starts, offset, count);
+			System.arraycopy(slice.ends, 0, ends, offset, count);
+			offset += count;
+		}
+		firstMatches[documentCount] = size;
+		return new BatchMatchResults(firstMatches, documents, keywordIds, starts, ends);
+	}
+
+	/*
+	 * The matches of a slice of documents, indexed relative to the slice.
+	 */
+	private static final class Slice {
+		final int from;
+		final int to;
+		final int[] firstMatches;
+		final int[] documents;
+		final int[] keywordIds;
+		final int[] starts;
+		final int[] ends;
+
+		Slice(int from, int to, int[] firstMatches, int[] documents, int[] keywordIds, int[] starts, int[] ends) {
+			this.from = from;
+			this.to = to;
+			this.firstMatches = firstMatches;
+			this.documents = documents;
+			this.keywordIds = keywordIds;
+			this.starts = starts;
+			this.ends = ends;
+		}
+	}
+
+	/*
+	 * Per thread buffers that collect the matches of a slice.
+	 */
+	private static final class Collector implements MatchHandler {
+		private int[] documents = new int[256];
+		private int[] keywordIds = new int[256];
+		private int[] starts = new int[256];
+		private int[] ends = new int[256];
+		private int size;
+		private int document;
+
+		Slice match(StringMatcher matcher, String[] batch, int from, int to) {
+			size = 0;
+			final int[] firstMatches = new int[to - from];
+			for (int index = from; index < to; index++) {
+				document = index - from;
+				firstMatches[document] = size;
+				matcher.match(Objects.requireNonNull(batch[index], "documents cannot contain null."), this);
+			}
+			return new Slice(from, to, firstMatches, Arrays.copyOf(documents, size), Arrays.copyOf(keywordIds, size),
+					Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
+		}
+
+		@Override
+		public boolean onMatch(int keywordId, int start, int end) {
+			if (size == keywordIds.length) {
+				final int capacity = size * 2;
+				documents = Arrays.copyOf(documents, capacity);
+				keywordIds = Arrays.copyOf(keywordIds, capacity);
+				starts = Arrays.copyOf(starts, capacity);
+				ends = Arrays.copyOf(ends, capacity);
+			}
+			documents[size] = document;
+			keywordIds[size] = keywordId;
+			starts[size] = start;
+			ends[size] = end;
+			size++;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher;
+
+/**
+ * A callback notified of each match found by a {@link StringMatcher}, without
+ * a {@link MatchResult} being created for it.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public interface MatchHandler {
+	/**
+	 * Handles a match.
+	 * 
+	 * @param keywordId the id of the matched keyword, see {@link StringMatcher#getKeyword(int)}
+	 * @param start the index of the first character matched
+	 * @param end the offset after the last character matched
+	 * @return true to continue matching, false to stop
+	 */
+	boolean onMatch(int keywordId, int start, int end);
+}
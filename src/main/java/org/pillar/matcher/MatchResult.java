@@ -30,6 +30,32 @@ public interface MatchResult {
 	 */
 	String matchedString();
 	
+	/**
+	 * Returns the id of the matched keyword.
+	 * 
+	 * <p>The default implementation throws an UnsupportedOperationException,
+	 * for results of StringMatchers that do not number their keywords.
+	 * 
+	 * @return the keyword id
+	 * @throws UnsupportedOperationException if the matched keyword has no id
+	 * @see StringMatcher#getKeyword(int)
+	 */
+	default int keywordId() {
+		throw new UnsupportedOperationException(getClass().getName() + " has no keyword id");
+	}
+	
+	/**
+	 * Returns the payload attached to the matched keyword, if any.
+	 * 
+	 * <p>The default implementation returns null.
+	 * 
+	 * @return the payload, or null if the keyword has none
+	 * @see StringMatcher#getPayload(int)
+	 */
+	default Object payload() {
+		return null;
+	}
+	
 	/**
 	 * Returns the index of the first character matched
 	 * 
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A {@link StringMatcher} whose keywords can be replaced while it is in use.
+ * Replacement matchers are built in the background and swapped in atomically;
+ * matching never blocks and never waits for a build.
+ * 
+ * <p>Each call to a matching method runs entirely against the matcher that 
+ * was current when it started, even if a swap happens meanwhile. Keyword ids
+ * belong to one generation, so a caller that resolves ids with 
+ * {@link #getKeyword(int)} after matching should use a single 
+ * {@link Generation} for both, from {@link #current()}.
+ * 
+ * <p>If reloads overlap, the generation of the latest requested one is kept, 
+ * whichever build finishes first.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class ReloadableStringMatcher implements StringMatcher {
+	private final Function<? super Set<String>, ? extends StringMatcher> factory;
+	private final Executor executor;
+	private final AtomicReference<Generation> current;
+	// the version of the latest requested generation
+	private final AtomicLong versions = new AtomicLong();
+	private final AtomicLong failedReloads = new AtomicLong();
+
+	/**
+	 * Initializes a reloadable matcher, building the first generation with the
+	 * given factory in the calling thread. Reloads are built in the common
+	 * ForkJoinPool.
+	 * 
+	 * @param factory creates a StringMatcher for a Set of keywords, for 
+	 *        example {@code AhoCorasick::new}
+	 * @param keywords the initial keywords
+	 */
+	public ReloadableStringMatcher(Function<? super Set<String>, ? extends StringMatcher> factory, 
+			Set<String> keywords) {
+		this(factory, keywords, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initializes a reloadable matcher, building the first generation with the
+	 * given factory in the calling thread. Reloads are built with the given
+	 * Executor.
+	 * 
+	 * @param factory creates a StringMatcher for a Set of keywords, for 
+	 *        example {@code AhoCorasick::new}
+	 * @param keywords the initial keywords
+	 * @param executor runs the builds of reloads
+	 */
+	public ReloadableStringMatcher(Function<? super Set<String>, ? extends StringMatcher> factory, 
+			Set<String> keywords, Executor executor) {
+		this.factory = Objects.requireNonNull(factory, "factory cannot be null.");
+		this.executor = Objects.requireNonNull(executor, "executor cannot be null.");
+		this.current = new AtomicReference<>(build(keywords, 0));
+	}
+
+	/**
+	 * Builds a matcher for the given keywords in the background and swaps it
+	 * in once it is built, unless a later reload was swapped in first. If the
+	 * build fails, the current generation stays in use and the returned future
+	 * completes exceptionally.
+	 * 
+	 * @param keywords the new keywords
+	 * @return a future completed with the new generation once it is swapped in
+	 *         or superseded
+	 */
+	public CompletableFuture<Generation> reload(Set<String> keywords) {
+		Objects.requireNonNull(keywords, "keywords cannot be null.");
+		final long version = versions.incrementAndGet();
+		final CompletableFuture<Generation> future = CompletableFuture.supplyAsync(() -> build(keywords, version), 
+				executor);
+		return future.whenComplete((generation, failure) -> {
+			if (failure != null) {
+				failedReloads.incrementAndGet();
+			} else {
+				install(generation);
+			}
+		});
+	}
+
+	/**
+	 * Swaps in the given, already built, matcher.
+	 * 
+	 * @param matcher the new matcher
+	 * @return the new generation
+	 */
+	public Generation swap(StringMatcher matcher) {
+		Objects.requireNonNull(matcher, "matcher cannot be null.");
+		final Generation generation = new Generation(matcher, versions.incrementAndGet(), 0L, -1);
+		install(generation);
+		return generation;
+	}
+
+	/**
+	 * Returns the generation in use, which is never changed by reloads.
+	 * 
+	 * @return the current generation
+	 */
+	public Generation current() {
+		return current.get();
+	}
+
+	/**
+	 * Returns the number of reloads whose build failed.
+	 * 
+	 * @return the number of failed reloads
+	 */
+	public long getFailedReloads() {
+		return failedReloads.get();
+	}
+
+	@Override
+	public List<MatchResult> match(String stringToMatch) {
+		return current.get().matcher.match(stringToMatch);
+	}
+
+	@Override
+	public boolean containsMatch(String stringToMatch) {
+		return current.get().matcher.containsMatch(stringToMatch);
+	}
+
+	@Override
+	public boolean match(String stringToMatch, MatchHandler handler) {
+		return current.get().matcher.match(stringToMatch, handler);
+	}
+
+	/**
+	 * Returns the keyword with the given id in the current generation.
+	 * 
+	 * @see Generation#getMatcher()
+	 */
+	@Override
+	public String getKeyword(int keywordId) {
+		return current.get().matcher.getKeyword(keywordId);
+	}
+
+	/**
+	 * Returns the payload of the keyword with the given id in the current 
+	 * generation.
+	 * 
+	 * @see Generation#getMatcher()
+	 */
+	@Override
+	public Object getPayload(int keywordId) {
+		return current.get().matcher.getPayload(keywordId);
+	}
+
+	private Generation build(Set<String> keywords, long version) {
+		final long start = System.nanoTime();
+		final StringMatcher matcher = Objects.requireNonNull(factory.apply(keywords), "factory returned null.");
+		return new Generation(matcher, version, System.nanoTime() - start, keywords.size());
+	}
+
+	/*
+	 * Swaps in the given generation unless a later one is in use.
+	 */
+	private void install(Generation generation) {
+		Generation previous;
+		do {
+			previous = current.get();
+			if (previous.version > generation.version) {
+				return;
+			}
+		} while (!current.compareAndSet(previous, generation));
+	}
+
+	/**
+	 * A matcher swapped in by a {@link ReloadableStringMatcher}, with how it
+	 * was built.
+	 * 
+	 * @author Sotirios Delimanolis
+	 * @since 0.0.1
+	 */
+	public static final class Generation {
+		private final StringMatcher matcher;
+		private final long version;
+		private final long buildNanos;
+		private final int keywordCount;
+		private final long builtMillis = System.currentTimeMillis();
+
+		Generation(StringMatcher matcher, long version, long buildNanos, int keywordCount) {
+			this.matcher = matcher;
+			this.version = version;
+			this.buildNanos = buildNanos;
+			this.keywordCount = keywordCount;
+		}
+
+		/**
+		 * Returns the matcher of this generation.
+		 * 
+		 * @return the matcher
+		 */
+		public StringMatcher getMatcher() {
+			return matcher;
+		}
+
+		/**
+		 * Returns the version of this generation, 0 for the initial one and 
+		 * increasing with each reload or swap requested.
+		 * 
+		 * @return the version
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Returns how long building the matcher took.
+		 * 
+		 * @return the build time in nanoseconds, 0 for swapped in matchers
+		 */
+		public long getBuildNanos() {
+			return buildNanos;
+		}
+
+		/**
+		 * Returns the number of keywords the matcher was built with.
+		 * 
+		 * @return the keyword count, or -1 for swapped in matchers
+		 */
+		public int getKeywordCount() {
+			return keywordCount;
+		}
+
+		/**
+		 * Returns when the matcher finished building.
+		 * 
+		 * @return the time in milliseconds since the epoch
+		 */
+		public long getBuiltMillis() {
+			return builtMillis;
+		}
+
+		@Override
+		public String toString() {
+			return "Generation [version=" + version + ", buildNanos=" + buildNanos + ", keywordCount=" 
+					+ keywordCount + "]";
+		}
+	}
+}
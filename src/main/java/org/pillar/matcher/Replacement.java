@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher;
+
+import java.util.Arrays;
+
+/**
+ * Supplies the text that replaces each match when a {@link StringMatcher}
+ * rewrites its input.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public interface Replacement {
+	/**
+	 * Returns the replacement of a match.
+	 * 
+	 * @param keywordId the id of the matched keyword, see {@link StringMatcher#getKeyword(int)}
+	 * @param text the text being rewritten
+	 * @param start the index of the first character matched
+	 * @param end the offset after the last character matched
+	 * @return the replacement, or null to keep the matched text
+	 */
+	CharSequence replace(int keywordId, CharSequence text, int start, int end);
+
+	/**
+	 * Returns a Replacement that replaces every match with the given text.
+	 * 
+	 * @param replacement the replacement of every match
+	 * @return a new Replacement
+	 */
+	static Replacement with(CharSequence replacement) {
+		return (keywordId, text, start, end) -> replacement;
+	}
+
+	/**
+	 * Returns a Replacement that replaces each match with the replacement of 
+	 * its keyword.
+	 * 
+	 * @param replacements the replacement of each keyword, indexed by keyword 
+	 *        id, null elements keep the matched text
+	 * @return a new Replacement
+	 */
+	static Replacement byKeywordId(CharSequence... replacements) {
+		final CharSequence[] copy = Arrays.copyOf(replacements, replacements.length);
+		return (keywordId, text, start, end) -> (keywordId < copy.length) ? copy[keywordId] : null;
+	}
+
+	/**
+	 * Returns a Replacement that replaces each character of every match with 
+	 * the given character, as when redacting.
+	 * 
+	 * @param mask the replacement of each matched character
+	 * @return a new Replacement
+	 */
+	static Replacement mask(char mask) {
+		return new Replacement() {
+			// masks are cached by length, most matches are short
+			private final String[] masks = new String[64];
+
+			@Override
+			public CharSequence replace(int keywordId, CharSequence text, int start, int end) {
+				final int length = end - start;
+				if (length >= masks.length) {
+					return repeat(mask, length);
+				}
+				String cached = masks[length];
+				if (cached == null) {
+					cached = repeat(mask, length);
+					masks[length] = cached;
+				}
+				return cached;
+			}
+
+			private String repeat(char character, int count) {
+				final char[] characters = new char[count];
+				Arrays.fill(characters, character);
+				return new String(characters);
+			}
+		};
+	}
+}
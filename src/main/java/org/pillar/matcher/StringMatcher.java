@@ -39,4 +39,56 @@ public interface StringMatcher {
 	 * @return true if this StringMatcher matches the given String, false otherwise
 	 */
 	boolean containsMatch(String stringToMatch);
+	
+	/**
+	 * Matches the given String and passes each match to the given handler,
+	 * until the handler asks to stop.
+	 * 
+	 * <p>The default implementation passes the results of {@link #match(String)}
+	 * to the handler, so it allocates them, and requires them to support
+	 * {@link MatchResult#keywordId()}.
+	 * 
+	 * @param stringToMatch the String to match
+	 * @param handler the handler to notify of each match
+	 * @return true if the handler stopped matching, false if the whole String was matched
+	 * @throws UnsupportedOperationException if the match results have no keyword ids
+	 */
+	default boolean match(String stringToMatch, MatchHandler handler) {
+		for (MatchResult matchResult : match(stringToMatch)) {
+			if (!handler.onMatch(matchResult.keywordId(), matchResult.start(), matchResult.end())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the keyword with the given id. Keyword ids are the positions of
+	 * the keywords in the iteration order of the Set this StringMatcher was 
+	 * created with.
+	 * 
+	 * <p>The default implementation throws an UnsupportedOperationException,
+	 * for StringMatchers that do not number their keywords.
+	 * 
+	 * @param keywordId a keyword id
+	 * @return the keyword with the given id
+	 * @throws IndexOutOfBoundsException if there is no keyword with the given id
+	 * @throws UnsupportedOperationException if this StringMatcher does not number its keywords
+	 */
+	default String getKeyword(int keywordId) {
+		throw new UnsupportedOperationException(getClass().getName() + " does not number its keywords");
+	}
+	
+	/**
+	 * Returns the payload attached to the keyword with the given id.
+	 * 
+	 * <p>The default implementation attaches no payloads, and returns null.
+	 * 
+	 * @param keywordId a keyword id
+	 * @return the payload, or null if the keyword has none
+	 * @throws IndexOutOfBoundsException if there is no keyword with the given id
+	 */
+	default Object getPayload(int keywordId) {
+		return null;
+	}
 }
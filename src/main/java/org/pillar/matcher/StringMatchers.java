@@ -19,6 +19,8 @@ package org.pillar.matcher;
 import java.util.Set;
 
 import org.pillar.matcher.ahocorasick.AhoCorasick;
+import org.pillar.matcher.ahocorasick.CompiledAhoCorasick;
+import org.pillar.matcher.teddy.TeddyMatcher;
 
 /**
  * Factory for {@link StringMatcher} classes.
@@ -36,4 +38,41 @@ public class StringMatchers {
 	public StringMatcher newAhoCorasick(Set<String> keywords) {
 		return new AhoCorasick(keywords);
 	}
+
+	/**
+	 * Creates and returns a new {@link CompiledAhoCorasick} instance for the given set of keywords.
+	 * 
+	 * @param keywords A non-null, non-empty Set of Strings
+	 * @return a CompiledAhoCorasick instance
+	 */
+	public StringMatcher newCompiledAhoCorasick(Set<String> keywords) {
+		return new CompiledAhoCorasick(keywords);
+	}
+
+	/**
+	 * Creates and returns a new {@link TeddyMatcher} instance for the given set of keywords.
+	 * 
+	 * @param keywords A non-null, non-empty Set of Strings
+	 * @return a TeddyMatcher instance
+	 */
+	public StringMatcher newTeddyMatcher(Set<String> keywords) {
+		return new TeddyMatcher(keywords);
+	}
+
+	/**
+	 * Creates and returns a new StringMatcher for the given set of keywords, 
+	 * picking the implementation by the number of keywords: a 
+	 * {@link TeddyMatcher} for up to {@link TeddyMatcher#SMALL_DICTIONARY_LIMIT}
+	 * keywords, a {@link CompiledAhoCorasick} otherwise. Either reports the 
+	 * same matches, in the same order.
+	 * 
+	 * @param keywords A non-null, non-empty Set of Strings
+	 * @return a StringMatcher instance
+	 */
+	public StringMatcher newStringMatcher(Set<String> keywords) {
+		if (keywords != null && !keywords.isEmpty() && keywords.size() <= TeddyMatcher.SMALL_DICTIONARY_LIMIT) {
+			return newTeddyMatcher(keywords);
+		}
+		return newCompiledAhoCorasick(keywords);
+	}
 }
@@ -0,0 +1,600 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.pillar.matcher.MatchHandler;
+import org.pillar.matcher.MatchResult;
+import org.pillar.matcher.Replacement;
+import org.pillar.matcher.StreamMatchHandler;
+import org.pillar.matcher.StringMatcher;
+import org.pillar.util.Assert;
+
+/**
+ * The matching logic shared by the Aho-Corasick {@link StringMatcher}s. 
+ * Implementations expose their state machine through {@code int} states, the
+ * root state being {@link #ROOT}, and through output chains: the keywords 
+ * ending at a state are found by following {@link #nextOutput(int)} from
+ * {@link #firstOutput(int)} until {@link #NONE}.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+abstract class AbstractAhoCorasick implements StringMatcher {
+	// the root state
+	static final int ROOT = 0;
+	// marks the absence of a state or of a keyword
+	static final int NONE = -1;
+	
+	// the set of keywords and phrases
+	final Set<String> keywordSet;
+	// the keywords, indexed by id, or null if a subclass looks them up itself
+	final String[] keywords;
+	// the payload attached to each keyword, indexed by id, or null as above
+	final Object[] payloads;
+	// the matches to report
+	final MatchKind matchKind;
+	// how keywords and input are folded
+	final KeywordFolding folding;
+	// the length of each keyword as matched, after folding, indexed by id, 
+	// or null as above
+	final int[] matchLengths;
+	// the word chars matches cannot be next to, or null if matches can be anywhere
+	final WordBoundaries boundaries;
+	// the input chars skipped from the root state, or null if the input is not prefiltered
+	final StartChars startChars;
+	// notified of the counters of each scan, or null if scans are not counted
+	final ScanListener scanListener;
+	
+	AbstractAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind, 
+			KeywordFolding folding, WordBoundaries boundaries) {
+		this(keywordSet, keywords, payloads, matchKind, folding, boundaries, Prefilter.AUTO);
+	}
+	
+	AbstractAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind, 
+			KeywordFolding folding, WordBoundaries boundaries, Prefilter prefilter) {
+		this(keywordSet, keywords, payloads, matchKind, folding, boundaries, prefilter, null);
+	}
+	
+	AbstractAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind, 
+			KeywordFolding folding, WordBoundaries boundaries, Prefilter prefilter, ScanListener scanListener) {
+		this.keywordSet = keywordSet;
+		this.keywords = keywords;
+		this.payloads = payloads;
+		this.matchKind = Objects.requireNonNull(matchKind, "matchKind cannot be null.");
+		this.folding = folding;
+		this.boundaries = boundaries;
+		final String[] foldedKeywords = folding.fold(keywords);
+		this.matchLengths = new int[keywords.length];
+		for (int id = 0; id < keywords.length; id++) {
+			matchLengths[id] = foldedKeywords[id].length();
+		}
+		this.startChars = StartChars.of(Objects.requireNonNull(prefilter, "prefilter cannot be null."), 
+				foldedKeywords, folding);
+		this.scanListener = scanListener;
+	}
+	
+	/*
+	 * For state machines that look their keywords up themselves, by 
+	 * overriding keyword(int), payload(int), matchLength(int) and 
+	 * keywordIdLimit(), which neither fold nor check word boundaries.
+	 */
+	AbstractAhoCorasick(Set<String> keywordSet, MatchKind matchKind, StartChars startChars) {
+		this.keywordSet = keywordSet;
+		this.keywords = null;
+		this.payloads = null;
+		this.matchKind = Objects.requireNonNull(matchKind, "matchKind cannot be null.");
+		this.folding = KeywordFolding.NONE;
+		this.matchLengths = null;
+		this.boundaries = null;
+		this.startChars = startChars;
+		this.scanListener = null;
+	}
+	
+	/**
+	 * Returns the keyword with the given id.
+	 * 
+	 * @param keywordId a keyword id
+	 * @return the keyword, or null if the id is free
+	 */
+	String keyword(int keywordId) {
+		return keywords[keywordId];
+	}
+	
+	/**
+	 * Returns the payload of the keyword with the given id.
+	 * 
+	 * @param keywordId a keyword id
+	 * @return the payload, possibly null
+	 */
+	Object payload(int keywordId) {
+		return payloads[keywordId];
+	}
+	
+	/**
+	 * Returns the length of the keyword with the given id as matched, after 
+	 * folding.
+	 * 
+	 * @param keywordId a keyword id
+	 * @return the length of its matches
+	 */
+	int matchLength(int keywordId) {
+		return matchLengths[keywordId];
+	}
+	
+	/**
+	 * Returns one past the highest keyword id.
+	 * 
+	 * @return the number of keyword ids, including free ones
+	 */
+	int keywordIdLimit() {
+		return keywords.length;
+	}
+	
+	/**
+	 * Returns the state the machine should be in after consuming the given
+	 * character in the given state, following failure transitions if needed.
+	 * 
+	 * @param state the current state
+	 * @param character the input symbol
+	 * @return the next state
+	 */
+	abstract int next(int state, char character);
+	
+	/**
+	 * Returns the first output of the given state.
+	 * 
+	 * @param state a state
+	 * @return the first output, or {@link #NONE} if no keyword ends at the state
+	 */
+	abstract int firstOutput(int state);
+	
+	/**
+	 * Returns the output following the given one.
+	 * 
+	 * @param output an output
+	 * @return the next output, or {@link #NONE} if there are no more
+	 */
+	abstract int nextOutput(int output);
+	
+	/**
+	 * Returns the id of the keyword of the given output.
+	 * 
+	 * @param output an output
+	 * @return the keyword id
+	 */
+	abstract int keywordId(int output);
+	
+	/**
+	 * Returns the id of the keyword of the given output, matched by the given
+	 * input up to the given index. A minimized state machine finds it in the
+	 * input, since its outputs are shared by keywords of the same length.
+	 * 
+	 * @param output an output
+	 * @param input the input
+	 * @param end the index after the last char of the match
+	 * @return the keyword id
+	 */
+	int keywordId(int output, String input, int end) {
+		return keywordId(output);
+	}
+	
+	/**
+	 * Returns if the outputs of this state machine only identify the length
+	 * of their keywords, which are then found in the input.
+	 * 
+	 * @return true if this state machine is minimized
+	 * @see CompiledAhoCorasickBuilder#withMinimization(boolean)
+	 */
+	boolean isMinimized() {
+		return false;
+	}
+	
+	/**
+	 * Returns the length of the keyword prefix the given state represents.
+	 * 
+	 * @param state a state
+	 * @return the depth of the state in the goto function
+	 */
+	abstract int depth(int state);
+	
+	/**
+	 * Folds the given input character and consumes it.
+	 * 
+	 * @param state the current state
+	 * @param character the input character, as given
+	 * @return the next state
+	 */
+	final int step(int state, char character) {
+		return next(state, folding.fold(character));
+	}
+	
+	@Override
+	public boolean match(String stringToMatch, MatchHandler handler) {
+		return match(stringToMatch, matchKind, handler);
+	}
+	
+	/*
+	 * Matches with the given match kind rather than this state machine's.
+	 */
+	private boolean match(String stringToMatch, MatchKind matchKind, MatchHandler handler) {
+		return (matchKind == MatchKind.ALL) ? matchAll(stringToMatch, handler) 
+				: matchLeftmost(stringToMatch, matchKind == MatchKind.LEFTMOST_LONGEST, handler);
+	}
+	
+	/*
+	 * Failures are only counted with a listener. The test does not change 
+	 * within a scan, so the JIT unswitches the loop on it, and scans without
+	 * a listener run a loop without it.
+	 */
+	private boolean matchAll(String stringToMatch, MatchHandler handler) {
+		final ScanListener listener = scanListener;
+		int state = ROOT;
+		final int length = stringToMatch.length();
+		int failures = 0;
+		int matches = 0;
+		
+		for (int index = 0; index < length; index++) {
+			if (state == ROOT && startChars != null) {
+				index = startChars.next(stringToMatch, index, length);
+				if (index == length) {
+					break;
+				}
+			}
+			final int previous = state;
+			state = step(state, stringToMatch.charAt(index));
+			if (listener != null && previous != ROOT && depth(state) <= depth(previous)) {
+				failures++;
+			}
+			
+			final int end = index + 1;
+			if (boundaries != null && !boundaries.isEnd(stringToMatch, end)) {
+				// no match can end here
+				continue;
+			}
+			for (int output = firstOutput(state); output != NONE; output = nextOutput(output)) {
+				final int keywordId = keywordId(output, stringToMatch, end);
+				final int start = end - matchLength(keywordId);
+				if (boundaries != null && !boundaries.isStart(stringToMatch, start)) {
+					continue;
+				}
+				matches++;
+				if (!handler.onMatch(keywordId, start, end)) {
+					if (listener != null) {
+						listener.onScan(end, failures, matches, true);
+					}
+					return true;
+				}
+			}
+		}
+		if (listener != null) {
+			listener.onScan(length, failures, matches, false);
+		}
+		return false;
+	}
+	
+	/*
+	 * Keeps the best match starting at the leftmost offset seen so far, and 
+	 * reports it once the depth of the current state shows that no later match 
+	 * can start at or before it. Matching then resumes from the root at its end.
+	 */
+	private boolean matchLeftmost(String stringToMatch, boolean longest, MatchHandler handler) {
+		final ScanListener listener = scanListener;
+		final int length = stringToMatch.length();
+		int state = ROOT;
+		int index = 0;
+		int candidateId = NONE;
+		int candidateStart = 0;
+		int candidateEnd = 0;
+		// the furthest index, since matching resumes behind it after a match
+		int furthest = 0;
+		int failures = 0;
+		int matches = 0;
+		
+		for (;;) {
+			if (index < length) {
+				if (state == ROOT && candidateId == NONE && startChars != null) {
+					index = startChars.next(stringToMatch, index, length);
+					if (index == length) {
+						break;
+					}
+				}
+				final int previous = state;
+				state = step(state, stringToMatch.charAt(index++));
+				if (listener != null && previous != ROOT && depth(state) <= depth(previous)) {
+					failures++;
+				}
+				final boolean end = (boundaries == null || boundaries.isEnd(stringToMatch, index));
+				for (int output = end ? firstOutput(state) : NONE; output != NONE; output = nextOutput(output)) {
+					final int keywordId = keywordId(output, stringToMatch, index);
+					final int start = index - matchLength(keywordId);
+					if (boundaries != null && !boundaries.isStart(stringToMatch, start)) {
+						continue;
+					}
+					// a later match with the same start is longer
+					if (candidateId == NONE || start < candidateStart 
+							|| (start == candidateStart && (longest || keywordId < candidateId))) {
+						candidateId = keywordId;
+						candidateStart = start;
+						candidateEnd = index;
+					}
+				}
+				if (candidateId == NONE || index - depth(state) <= candidateStart) {
+					continue;
+				}
+			} else if (candidateId == NONE) {
+				break;
+			}
+			
+			matches++;
+			if (!handler.onMatch(candidateId, candidateStart, candidateEnd)) {
+				if (listener != null) {
+					listener.onScan(Math.max(furthest, index), failures, matches, true);
+				}
+				return true;
+			}
+			furthest = Math.max(furthest, index);
+			index = candidateEnd;
+			state = ROOT;
+			candidateId = NONE;
+		}
+		if (listener != null) {
+			listener.onScan(length, failures, matches, false);
+		}
+		return false;
+	}
+	
+	/**
+	 * Copies the given text to the given Appendable, replacing the matches 
+	 * selected by the given match kind, in a single pass. With 
+	 * {@link MatchKind#ALL}, matches are considered by end offset and a match
+	 * overlapping one already replaced is kept as is. The match kind of this
+	 * state machine is ignored.
+	 * 
+	 * @param text the text to rewrite
+	 * @param overlaps how overlapping matches are resolved
+	 * @param replacement the replacement of each match
+	 * @param out the Appendable to write to
+	 * @return the given Appendable
+	 * @throws IOException if the Appendable cannot be written to
+	 */
+	public <A extends Appendable> A replaceAll(String text, MatchKind overlaps, Replacement replacement, A out) 
+			throws IOException {
+		Objects.requireNonNull(overlaps, "overlaps cannot be null.");
+		Objects.requireNonNull(replacement, "replacement cannot be null.");
+		Objects.requireNonNull(out, "out cannot be null.");
+		final int[] copied = new int[1];
+		try {
+			match(text, overlaps, (keywordId, start, end) -> {
+				if (start < copied[0]) {
+					// overlaps a replaced match
+					return true;
+				}
+				final CharSequence replaced = replacement.replace(keywordId, text, start, end);
+				if (replaced != null) {
+					try {
+						out.append(text, copied[0], start).append(replaced);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					copied[0] = end;
+				}
+				return true;
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		out.append(text, copied[0], text.length());
+		return out;
+	}
+	
+	/**
+	 * Copies the given text to the given StringBuilder, replacing the matches
+	 * selected by the given match kind, in a single pass.
+	 * 
+	 * @param text the text to rewrite
+	 * @param overlaps how overlapping matches are resolved
+	 * @param replacement the replacement of each match
+	 * @param out the StringBuilder to write to, which can be reused across calls
+	 * @return the given StringBuilder
+	 * @see #replaceAll(String, MatchKind, Replacement, Appendable)
+	 */
+	public StringBuilder replaceAll(String text, MatchKind overlaps, Replacement replacement, StringBuilder out) {
+		try {
+			replaceAll(text, overlaps, replacement, (Appendable) out);
+			return out;
+		} catch (IOException e) {
+			// a StringBuilder does not throw
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Returns the given text with the matches selected by the given match kind
+	 * replaced.
+	 * 
+	 * @param text the text to rewrite
+	 * @param overlaps how overlapping matches are resolved
+	 * @param replacement the replacement of each match
+	 * @return the rewritten text
+	 * @see #replaceAll(String, MatchKind, Replacement, Appendable)
+	 */
+	public String replaceAll(String text, MatchKind overlaps, Replacement replacement) {
+		return replaceAll(text, overlaps, replacement, new StringBuilder(text.length())).toString();
+	}
+	
+	/**
+	 * Returns a Replacement that replaces each match with the replacement 
+	 * mapped to its keyword. Keywords that are not mapped are kept.
+	 * 
+	 * @param replacements the replacement of each keyword
+	 * @return a new Replacement
+	 */
+	public Replacement newReplacement(Map<String, ? extends CharSequence> replacements) {
+		Objects.requireNonNull(replacements, "replacements cannot be null.");
+		final CharSequence[] byKeywordId = new CharSequence[keywordIdLimit()];
+		for (int id = 0; id < byKeywordId.length; id++) {
+			final String keyword = keyword(id);
+			byKeywordId[id] = (keyword == null) ? null : replacements.get(keyword);
+		}
+		return Replacement.byKeywordId(byKeywordId);
+	}
+	
+	@Override
+	public List<MatchResult> match(String stringToMatch) {
+		final List<MatchResult> matchResults = new ArrayList<>();
+		match(stringToMatch, (keywordId, start, end) -> 
+				matchResults.add(new AhoCorasickMatchResult(keyword(keywordId), keywordId, payload(keywordId), 
+						start, end)));
+		return matchResults;
+	}
+
+	@Override
+	public boolean containsMatch(String stringToMatch) {
+		// stop on the first match
+		return match(stringToMatch, (keywordId, start, end) -> false);
+	}
+	
+	/**
+	 * Returns a new {@link StreamingMatcher} that matches input supplied in 
+	 * chunks against this state machine and passes each match to the given 
+	 * handler.
+	 * 
+	 * @param handler the handler to notify of each match
+	 * @return a new StreamingMatcher
+	 * @throws IllegalStateException if this state machine does not report 
+	 *         {@link MatchKind#ALL} matches, which would require rewinding 
+	 *         into chunks already consumed, if it only matches whole words,
+	 *         which would require looking ahead into chunks not yet supplied,
+	 *         or if it is minimized, since its matches are identified from
+	 *         chunks that may be already consumed
+	 */
+	public StreamingMatcher newStreamingMatcher(StreamMatchHandler handler) {
+		checkStreaming();
+		return new StreamingMatcher(this, Objects.requireNonNull(handler, "handler cannot be null."));
+	}
+	
+	/**
+	 * Creates a Reactive Streams processor that matches the chunks of text it
+	 * subscribes to as a single stream, and publishes their matches.
+	 * 
+	 * @return a new MatchProcessor
+	 * @throws IllegalStateException if the match kind is not {@link MatchKind#ALL},
+	 *         if only whole words are matched, or if the state machine is minimized
+	 */
+	public MatchProcessor newMatchProcessor() {
+		checkStreaming();
+		return new MatchProcessor(this);
+	}
+	
+	private void checkStreaming() {
+		if (matchKind != MatchKind.ALL) {
+			throw new IllegalStateException("streaming requires MatchKind.ALL, not " + matchKind);
+		}
+		if (boundaries != null) {
+			throw new IllegalStateException("streaming does not support word boundaries");
+		}
+		if (isMinimized()) {
+			throw new IllegalStateException("streaming does not support minimized state machines");
+		}
+	}
+	
+	@Override
+	public String getKeyword(int keywordId) {
+		return keyword(keywordId);
+	}
+	
+	@Override
+	public Object getPayload(int keywordId) {
+		return payload(keywordId);
+	}
+	
+	/**
+	 * Returns which matches this state machine reports.
+	 * 
+	 * @return the match kind
+	 */
+	public MatchKind getMatchKind() {
+		return matchKind;
+	}
+	
+	/**
+	 * Returns how keywords and input are case-folded.
+	 * 
+	 * @return the case folding
+	 */
+	public CaseFolding getCaseFolding() {
+		return folding.caseFolding;
+	}
+	
+	/**
+	 * Returns if the input is prefiltered.
+	 * 
+	 * @return true if chars that cannot start a match are skipped from the root state
+	 * @see Prefilter
+	 */
+	public boolean isPrefiltered() {
+		return startChars != null;
+	}
+	
+	/**
+	 * Returns an unmodifiable view of the keywords.
+	 * 
+	 * @return an unmodifiable set of mapped keywords
+	 */
+	public Set<String> getKeywords() {
+		return Collections.unmodifiableSet(keywordSet);
+	}
+	
+	/**
+	 * Validates the given keywords and returns them in iteration order, which
+	 * assigns their ids.
+	 * 
+	 * @param keywords a non-null, non-empty Set of keywords
+	 * @return the keywords, indexed by id
+	 */
+	static String[] toArray(Set<String> keywords) {
+		Objects.requireNonNull(keywords, "keywords cannot be null.");
+		Assert.isNotEmpty(keywords);
+		return keywords.toArray(new String[keywords.size()]);
+	}
+	
+	/**
+	 * Returns the payloads of the given keywords, indexed by id.
+	 * 
+	 * @param keywords the keywords, indexed by id
+	 * @param keywordPayloads the payload of each keyword, or null if there are none
+	 * @return the payloads, indexed by id
+	 */
+	static Object[] payloads(String[] keywords, Map<String, ?> keywordPayloads) {
+		final Object[] payloads = new Object[keywords.length];
+		if (keywordPayloads != null) {
+			for (int id = 0; id < keywords.length; id++) {
+				payloads[id] = keywordPayloads.get(keywords[id]);
+			}
+		}
+		return payloads;
+	}
+}
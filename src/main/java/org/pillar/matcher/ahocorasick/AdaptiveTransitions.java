@@ -0,0 +1,278 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A goto function in which each state stores its transitions in the 
+ * {@link TransitionLayout} that suits their number, completed by a failure
+ * function. States keep their trie numbering.
+ * 
+ * <p>Each state is a record of three ints, next to each other, so that most
+ * states are visited with a single memory access. The first int tells the 
+ * layout:
+ * <ul>
+ * <li>a char, for a state with a single edge, whose target is the second int.
+ * Most states of large keyword sets are such, on the suffixes of keywords that
+ * no other keyword shares.
+ * <li>{@link #DENSE}, for the root state, and for states with enough edges 
+ * that a dense row is at most eight times the size of their sorted edges. The
+ * second int is the offset of a row indexed by the {@link CharClasses} of a
+ * character. The row of the root state is complete; the rows of other states
+ * hold -1 for failure.
+ * <li>the complement of the number of edges, otherwise. The second int is the
+ * offset of the edges, sorted by character, searched one after the other when
+ * there are a few and with a binary search if not. None for leaves.
+ * </ul>
+ * The third int is the failure transition.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see TransitionMode#ADAPTIVE
+ */
+final class AdaptiveTransitions extends TransitionTable {
+	// the ints of a state record
+	static final int RECORD = 3;
+	// the first int of a state with a dense row
+	static final int DENSE = Integer.MIN_VALUE;
+	// the smallest number of transitions of a dense row, other than the root's
+	private static final int DENSE_FAN_OUT = 4;
+	// how many times larger than its sorted edges a dense row can be
+	private static final int DENSE_ROW_RATIO = 8;
+	// the largest number of transitions searched one after the other
+	static final int LINEAR_FAN_OUT = 8;
+	// the bytes of an edge: a char and an int
+	private static final int EDGE_BYTES = 6;
+	// the bytes of a dense row entry
+	private static final int ENTRY_BYTES = 4;
+	// the target of a failed transition
+	static final int FAIL = -1;
+
+	// the state records, one after the other
+	private final int[] states;
+	// the sorted edges of states with a few of them
+	private final char[] labels;
+	private final int[] targets;
+	// high byte -> offset of its page in classes
+	private final char[] pages;
+	// character -> column, in pages of 256 chars
+	private final char[] classes;
+	// the number of columns of each row
+	private final int columnCount;
+	// the dense rows, one after the other
+	private final int[] rows;
+
+	AdaptiveTransitions(int[] states, char[] labels, int[] targets, char[] pages, char[] classes, int columnCount,
+			int[] rows) {
+		this.states = states;
+		this.labels = labels;
+		this.targets = targets;
+		this.pages = pages;
+		this.classes = classes;
+		this.columnCount = columnCount;
+		this.rows = rows;
+	}
+
+	/**
+	 * Lays out the goto function of the given trie.
+	 * 
+	 * @param trie a trie with its failure function
+	 * @param classes the column of every character
+	 * @param columnCount the number of columns of a dense row
+	 * @return the transition function
+	 */
+	static AdaptiveTransitions of(KeywordTrie trie, CharClasses classes, int columnCount) {
+		if ((long) RECORD * trie.size > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("records for " + trie.size + " states are too large");
+		}
+		int rowCount = 0;
+		int edgeCount = 0;
+		for (int node = 0; node < trie.size; node++) {
+			final int fanOut = trie.childCount(node);
+			if (isDense(node, fanOut, columnCount)) {
+				rowCount++;
+			} else if (fanOut != 1) {
+				edgeCount += fanOut;
+			}
+		}
+		if ((long) rowCount * columnCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException(rowCount + " dense rows of " + columnCount + " columns are too large");
+		}
+
+		final int[] states = new int[RECORD * trie.size];
+		final char[] labels = new char[edgeCount];
+		final int[] targets = new int[edgeCount];
+		final int[] rows = new int[rowCount * columnCount];
+		int edge = 0;
+		int row = 0;
+		for (int node = 0; node < trie.size; node++) {
+			final int record = RECORD * node;
+			final int first = trie.childStart[node];
+			final int fanOut = trie.childCount(node);
+			if (isDense(node, fanOut, columnCount)) {
+				states[record] = DENSE;
+				states[record + 1] = row;
+				// the root's row is complete
+				Arrays.fill(rows, row, row + columnCount, (node == KeywordTrie.ROOT) ? KeywordTrie.ROOT : FAIL);
+				for (int e = first; e < first + fanOut; e++) {
+					rows[row + classes.classOf(trie.childLabels[e])] = trie.childTargets[e];
+				}
+				row += columnCount;
+			} else if (fanOut == 1) {
+				states[record] = trie.childLabels[first];
+				states[record + 1] = trie.childTargets[first];
+			} else {
+				states[record] = ~fanOut;
+				states[record + 1] = edge;
+				System.arraycopy(trie.childLabels, first, labels, edge, fanOut);
+				System.arraycopy(trie.childTargets, first, targets, edge, fanOut);
+				edge += fanOut;
+			}
+			states[record + 2] = trie.fail[node];
+		}
+		return new AdaptiveTransitions(states, labels, targets, classes.pages, classes.classes, columnCount, rows);
+	}
+
+	/*
+	 * Returns if the given state, with the given number of transitions, has a
+	 * dense row.
+	 */
+	private static boolean isDense(int node, int fanOut, int columnCount) {
+		return node == KeywordTrie.ROOT 
+				|| (fanOut >= DENSE_FAN_OUT && (long) ENTRY_BYTES * columnCount <= (long) DENSE_ROW_RATIO * EDGE_BYTES * fanOut);
+	}
+
+	/**
+	 * Returns the layout of a state.
+	 * 
+	 * @param first the first int of its record
+	 * @return its layout
+	 */
+	static TransitionLayout layout(int first) {
+		if (first == DENSE) {
+			return TransitionLayout.DENSE;
+		}
+		if (first >= 0) {
+			return TransitionLayout.SINGLE_EDGE;
+		}
+		final int fanOut = ~first;
+		if (fanOut == 0) {
+			return TransitionLayout.LEAF;
+		}
+		return (fanOut <= LINEAR_FAN_OUT) ? TransitionLayout.LINEAR_SEARCH : TransitionLayout.BINARY_SEARCH;
+	}
+
+	@Override
+	int next(int state, char character) {
+		for (;;) {
+			final int record = RECORD * state;
+			final int first = states[record];
+			if (first == character) {
+				return states[record + 1];
+			}
+			if (first < 0) {
+				final int target;
+				if (first == DENSE) {
+					final int column = classes[pages[character >>> CharClasses.PAGE_BITS] 
+							+ (character & CharClasses.PAGE_MASK)];
+					target = rows[states[record + 1] + column];
+				} else {
+					target = go(states[record + 1], ~first, character);
+				}
+				// the root's row is complete, so this ends there at the latest
+				if (target != FAIL) {
+					return target;
+				}
+			}
+			state = states[record + 2];
+		}
+	}
+
+	/*
+	 * Returns the target of the edge labeled with the given character, among 
+	 * the given sorted edges, or FAIL.
+	 */
+	private int go(int edge, int fanOut, char character) {
+		if (fanOut <= LINEAR_FAN_OUT) {
+			for (final int end = edge + fanOut; edge < end; edge++) {
+				if (labels[edge] == character) {
+					return targets[edge];
+				}
+			}
+			return FAIL;
+		}
+		int low = edge;
+		int high = edge + fanOut - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final char label = labels[middle];
+			if (label < character) {
+				low = middle + 1;
+			} else if (label > character) {
+				high = middle - 1;
+			} else {
+				return targets[middle];
+			}
+		}
+		return FAIL;
+	}
+
+	@Override
+	int stateCount() {
+		return states.length / RECORD;
+	}
+
+	@Override
+	long transitionCount() {
+		long count = (long) rows.length + labels.length;
+		for (int record = 0; record < states.length; record += RECORD) {
+			if (states[record] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 4L * (states.length + rows.length) + (long) EDGE_BYTES * labels.length 
+				+ 2L * (pages.length + classes.length);
+	}
+
+	@Override
+	int[] layoutCounts() {
+		final int[] counts = new int[TransitionLayout.values().length];
+		for (int record = 0; record < states.length; record += RECORD) {
+			counts[layout(states[record]).ordinal()]++;
+		}
+		return counts;
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, states);
+		AutomatonFormat.writeChars(out, labels);
+		AutomatonFormat.writeInts(out, targets);
+		AutomatonFormat.writeChars(out, pages);
+		AutomatonFormat.writeChars(out, classes);
+		out.writeInt(columnCount);
+		AutomatonFormat.writeInts(out, rows);
+	}
+}
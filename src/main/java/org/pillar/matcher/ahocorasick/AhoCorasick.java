@@ -16,18 +16,19 @@
 
 package org.pillar.matcher.ahocorasick;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.function.IntPredicate;
 
 import org.pillar.matcher.MatchResult;
 import org.pillar.matcher.StringMatcher;
-import org.pillar.util.Assert;
 
 /**
  * A {@link StringMatcher} implemented with the 
@@ -37,11 +38,11 @@ import org.pillar.util.Assert;
  * @author Sotirios Delimanolis
  * @since 0.0.1
  */
-public final class AhoCorasick implements StringMatcher {
+public final class AhoCorasick extends AbstractAhoCorasick {
 	// the root state
 	private final AhoCorasickState root;
-	// the set of keywords and phrases
-	private final Set<String> keywords;
+	// every state, indexed by state index
+	private final AhoCorasickState[] states;
 
 	/**
 	 * Initializes an Aho-Corasick state machine with the given keywords and phrases.
@@ -49,55 +50,143 @@ public final class AhoCorasick implements StringMatcher {
 	 * @param keywords a non-null, non-empty Set of keywords
 	 */
 	public AhoCorasick(Set<String> keywords) {
-		Objects.requireNonNull(keywords, "keywords cannot be null.");
-		Assert.isNotEmpty(keywords);
-		
+		this(keywords, null, MatchKind.ALL, CaseFolding.NONE, null);
+	}
+
+	/**
+	 * Initializes an Aho-Corasick state machine with the given keywords and phrases,
+	 * which reports the given kind of matches.
+	 * 
+	 * @param keywords a non-null, non-empty Set of keywords
+	 * @param matchKind the matches to report
+	 */
+	public AhoCorasick(Set<String> keywords, MatchKind matchKind) {
+		this(keywords, null, matchKind, CaseFolding.NONE, null);
+	}
+
+	/**
+	 * Initializes an Aho-Corasick state machine with the given keywords and phrases,
+	 * which reports the given kind of matches and folds the case of keywords and
+	 * input. Keywords that fold to the same string are reported as the first of
+	 * them.
+	 * 
+	 * @param keywords a non-null, non-empty Set of keywords
+	 * @param matchKind the matches to report
+	 * @param caseFolding how keywords and input are case-folded
+	 */
+	public AhoCorasick(Set<String> keywords, MatchKind matchKind, CaseFolding caseFolding) {
+		this(keywords, null, matchKind, caseFolding, null);
+	}
+
+	/**
+	 * Initializes an Aho-Corasick state machine with the given keywords and phrases,
+	 * which reports the given kind of matches, folds the case of keywords and
+	 * input, and only reports whole-word matches: matches that are neither 
+	 * preceded nor followed by a word char. Other matches are rejected while 
+	 * the input is scanned.
+	 * 
+	 * @param keywords a non-null, non-empty Set of keywords
+	 * @param matchKind the matches to report
+	 * @param caseFolding how keywords and input are case-folded
+	 * @param wordChars tests if a char is a word char, for example 
+	 *        {@code Character::isLetterOrDigit}, or null to report matches anywhere
+	 */
+	public AhoCorasick(Set<String> keywords, MatchKind matchKind, CaseFolding caseFolding, IntPredicate wordChars) {
+		this(keywords, null, matchKind, caseFolding, wordChars);
+	}
+
+	/**
+	 * Initializes an Aho-Corasick state machine with the given keywords and phrases,
+	 * each of which is mapped to a payload to attach to its matches.
+	 * 
+	 * @param keywordPayloads a non-null, non-empty Map of keywords to payloads
+	 * @see MatchResult#payload()
+	 */
+	public AhoCorasick(Map<String, ?> keywordPayloads) {
+		this(keywordPayloads, MatchKind.ALL);
+	}
+
+	/**
+	 * Initializes an Aho-Corasick state machine with the given keywords and phrases,
+	 * each of which is mapped to a payload to attach to its matches, which 
+	 * reports the given kind of matches.
+	 * 
+	 * @param keywordPayloads a non-null, non-empty Map of keywords to payloads
+	 * @param matchKind the matches to report
+	 */
+	public AhoCorasick(Map<String, ?> keywordPayloads, MatchKind matchKind) {
+		this(Objects.requireNonNull(keywordPayloads, "keywords cannot be null.").keySet(), keywordPayloads, 
+				matchKind, CaseFolding.NONE, null);
+	}
+	
+	private AhoCorasick(Set<String> keywords, Map<String, ?> keywordPayloads, MatchKind matchKind, 
+			CaseFolding caseFolding, IntPredicate wordChars) {
+		this(keywords, toArray(keywords), keywordPayloads, matchKind, 
+				KeywordFolding.of(Objects.requireNonNull(caseFolding, "caseFolding cannot be null."), false),
+				(wordChars == null) ? null : WordBoundaries.of(wordChars));
+	}
+	
+	private AhoCorasick(Set<String> keywords, String[] keywordsById, Map<String, ?> keywordPayloads, 
+			MatchKind matchKind, KeywordFolding folding, WordBoundaries boundaries) {
+		super(keywords, keywordsById, payloads(keywordsById, keywordPayloads), matchKind, folding, boundaries);
 		this.root = new AhoCorasickState(0);
-		this.keywords = keywords;
-		constructGoto();
+		final List<AhoCorasickState> states = new ArrayList<>();
+		states.add(root);
+		constructGoto(states);
 		constructFailure();
+		this.states = states.toArray(new AhoCorasickState[states.size()]);
 	}
 
 	/*
 	 * Constructs the goto function.
 	 */
-	private void constructGoto() {
-		AhoCorasickState newState = root;
-		for (String keyword : keywords) {
-			this.enter(keyword, newState);
+	private void constructGoto(List<AhoCorasickState> states) {
+		final String[] foldedKeywords = folding.fold(keywords);
+		for (int keywordId = 0; keywordId < keywords.length; keywordId++) {
+			this.enter(foldedKeywords[keywordId], keywordId, states);
 		}
 		root.setDefaultValue(root);
 	}
 
 	/*
-	 * Constructs each next state in the goto function.
+	 * Constructs each next state in the goto function. New states are appended
+	 * to the given List, so that their index is their position in it.
 	 */
-	private void enter(String keyword, AhoCorasickState newState) {
+	private void enter(String keyword, int keywordId, List<AhoCorasickState> states) {
+		final int length = keyword.length();
+		if (length == 0) {
+			throw new IllegalArgumentException("keywords cannot be empty");
+		}
+		
 		AhoCorasickState state = root;
 		int j = 0;
-		char character = keyword.charAt(j);
-
-		AhoCorasickState next = root.go(character);
-		while (next != AhoCorasickState.FAIL) {
+		while (j < length) {
+			AhoCorasickState next = state.go(keyword.charAt(j));
+			if (next == AhoCorasickState.FAIL) {
+				break;
+			}
 			state = next;
 			j++;
-			character = keyword.charAt(j);
-			next = next.go(character);
 		}
 
-		final int length = keyword.length();
 		for (int p = j; p < length; p++) {
-			character = keyword.charAt(p);
+			char character = keyword.charAt(p);
 
-			newState = AhoCorasickState.next(newState);
+			AhoCorasickState newState = AhoCorasickState.next(states.get(states.size() - 1));
+			states.add(newState);
+			newState.setDepth(state.depth() + 1);
 			state.addGotoTransition(character, newState);
 			state = newState;
 		}
-		state.addOutput(keyword);
+		// keywords that fold to the same string are reported as the first one
+		if (state.keywordId() == AhoCorasickState.NO_KEYWORD) {
+			state.setKeywordId(keywordId);
+		}
 	}
 
 	/*
-	 * Constructors the failure function.
+	 * Constructors the failure function and links each state to the next state 
+	 * on its failure chain at which a keyword ends.
 	 */
 	private void constructFailure() {
 		Queue<AhoCorasickState> queue = new LinkedList<>();
@@ -120,59 +209,41 @@ public final class AhoCorasick implements StringMatcher {
 					state = state.fail();
 				}
 				s.setFailureTransition(state.go(character));
-				s.addAllOutputs(s.fail().value());
+				s.setOutputLink(s.fail().firstOutput());
 			}
 		}
 	}
 
-	/*
-	 * Helper method so that contains(String) doesn't have to wait for all matches.
-	 */
-	private List<MatchResult> match(String stringToMatch, boolean stopOnFirst) {
-		final List<MatchResult> matchResults = new LinkedList<>();
-		AhoCorasickState state = root;
-		final int length = stringToMatch.length();
-		
-		stop: 
-		for (int index = 0; index < length; index++) {
-			char character = stringToMatch.charAt(index);
-			
-			while (state.go(character) == AhoCorasickState.FAIL) {
-				state = state.fail();
-			}
-			
-			state = state.go(character);
-			
-			if (!state.value().isEmpty()) {				
-				for (String match : state.value()) {
-					final int end = index + 1;
-					MatchResult result = new AhoCorasickMatchResult(match, end - match.length(), end);
-					matchResults.add(result);
-					if (stopOnFirst) {
-						break stop; 
-					}
-				}				
-			}
+	@Override
+	int next(int state, char character) {
+		AhoCorasickState current = states[state];
+		while (current.go(character) == AhoCorasickState.FAIL) {
+			current = current.fail();
 		}
-		return matchResults;
-	}	
-	
+		return current.go(character).index();
+	}
+
+	@Override
+	int firstOutput(int state) {
+		return index(states[state].firstOutput());
+	}
+
+	@Override
+	int nextOutput(int output) {
+		return index(states[output].outputLink());
+	}
+
 	@Override
-	public List<MatchResult> match(String stringToMatch) {
-		return match(stringToMatch, false);
+	int keywordId(int output) {
+		return states[output].keywordId();
 	}
 
 	@Override
-	public boolean containsMatch(String stringToMatch) {
-		return !match(stringToMatch, true).isEmpty();
+	int depth(int state) {
+		return states[state].depth();
 	}
 	
-	/**
-	 * Returns an unmodifiable view of the keywords.
-	 * 
-	 * @return an unmodifiable set of mapped keywords
-	 */
-	public Set<String> getKeywords() {
-		return Collections.unmodifiableSet(keywords);
+	private static int index(AhoCorasickState state) {
+		return (state == null) ? NONE : state.index();
 	}
 }
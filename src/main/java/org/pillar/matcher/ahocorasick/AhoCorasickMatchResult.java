@@ -27,13 +27,19 @@ import org.pillar.matcher.MatchResult;
 class AhoCorasickMatchResult implements MatchResult {
 	// the matched string
 	private final String matchedString;
+	// the id of the matched keyword
+	private final int keywordId;
+	// the payload of the matched keyword
+	private final Object payload;
 	// the index of the first character matched
 	private final int start;
 	// the offset after the last character matched
 	private final int end;
 
-	AhoCorasickMatchResult(String matchedString, int start, int end) {
+	AhoCorasickMatchResult(String matchedString, int keywordId, Object payload, int start, int end) {
 		this.matchedString = matchedString;
+		this.keywordId = keywordId;
+		this.payload = payload;
 		this.end = end;
 		this.start = start;
 	}
@@ -43,6 +49,16 @@ class AhoCorasickMatchResult implements MatchResult {
 		return matchedString;
 	}
 
+	@Override
+	public int keywordId() {
+		return keywordId;
+	}
+
+	@Override
+	public Object payload() {
+		return payload;
+	}
+
 	@Override
 	public int start() {
 		return start;
@@ -55,6 +71,7 @@ class AhoCorasickMatchResult implements MatchResult {
 	
 	@Override
 	public String toString() {
-		return "[matchedString = '" + matchedString + "', start = " + start + ", end = " + end + "]";
+		return "[matchedString = '" + matchedString + "', keywordId = " + keywordId + ", start = " + start + ", end = "
+				+ end + "]";
 	}
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable state machine published by an {@link UpdatableAhoCorasick}. It 
+ * is never changed by later updates, so any number of threads can match with
+ * it while keywords are added and removed.
+ * 
+ * <p>Keyword ids follow the order keywords were added in, which is also the 
+ * order of {@link #getKeywords()} and the priority of 
+ * {@link MatchKind#LEFTMOST_FIRST} matches. Removals leave gaps, which 
+ * {@link #getKeyword(int)} returns null for, until enough of them renumber
+ * the remaining keywords, in the same order: an id only identifies a keyword
+ * within the snapshot that reported it.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class AhoCorasickSnapshot extends AbstractAhoCorasick {
+	private final ChunkedArray.Strings keywords;
+	private final int keywordLimit;
+	private final EdgeMap edges;
+	private final ChunkedArray.Ints fails;
+	// the id of the keyword ending at each state, or NONE
+	private final ChunkedArray.Ints keywordIds;
+	// the closest state on the failure chain that has a keyword, or NONE
+	private final ChunkedArray.Ints outputLinks;
+	private final ChunkedArray.Ints depths;
+	private final long version;
+
+	AhoCorasickSnapshot(ChunkedArray.Strings keywords, int keywordLimit, int keywordCount, MatchKind matchKind, 
+			StartChars startChars, EdgeMap edges, ChunkedArray.Ints fails, ChunkedArray.Ints keywordIds, 
+			ChunkedArray.Ints outputLinks, ChunkedArray.Ints depths, long version) {
+		super(new KeywordSet(keywords, keywordLimit, keywordCount, edges, keywordIds), matchKind, startChars);
+		this.keywords = keywords;
+		this.keywordLimit = keywordLimit;
+		this.edges = edges;
+		this.fails = fails;
+		this.keywordIds = keywordIds;
+		this.outputLinks = outputLinks;
+		this.depths = depths;
+		this.version = version;
+	}
+
+	/**
+	 * Returns the number of updates published before this snapshot, starting
+	 * at 0 for the snapshot of the initial keywords.
+	 *
+	 * @return the version of this snapshot
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	int next(int state, char character) {
+		for (;;) {
+			final int target = edges.get(state, character);
+			if (target != NONE) {
+				return target;
+			}
+			if (state == ROOT) {
+				return ROOT;
+			}
+			state = fails.get(state);
+		}
+	}
+
+	@Override
+	int firstOutput(int state) {
+		return (keywordIds.get(state) != NONE) ? state : outputLinks.get(state);
+	}
+
+	@Override
+	int nextOutput(int output) {
+		return outputLinks.get(output);
+	}
+
+	@Override
+	int keywordId(int output) {
+		return keywordIds.get(output);
+	}
+
+	@Override
+	int depth(int state) {
+		return depths.get(state);
+	}
+
+	@Override
+	String keyword(int keywordId) {
+		if (keywordId < 0 || keywordId >= keywordLimit) {
+			throw new IndexOutOfBoundsException("no keyword id " + keywordId);
+		}
+		return keywords.get(keywordId);
+	}
+
+	@Override
+	Object payload(int keywordId) {
+		// updatable keywords have no payloads
+		return null;
+	}
+
+	@Override
+	int matchLength(int keywordId) {
+		return keywords.get(keywordId).length();
+	}
+
+	@Override
+	int keywordIdLimit() {
+		return keywordLimit;
+	}
+
+	/*
+	 * The keywords of a snapshot, in id order, as a view of its tables rather
+	 * than a copy, so that publishing does not copy every keyword.
+	 */
+	private static final class KeywordSet extends AbstractSet<String> {
+		private final ChunkedArray.Strings keywords;
+		private final int keywordLimit;
+		private final int keywordCount;
+		private final EdgeMap edges;
+		private final ChunkedArray.Ints keywordIds;
+
+		KeywordSet(ChunkedArray.Strings keywords, int keywordLimit, int keywordCount, EdgeMap edges, 
+				ChunkedArray.Ints keywordIds) {
+			this.keywords = keywords;
+			this.keywordLimit = keywordLimit;
+			this.keywordCount = keywordCount;
+			this.edges = edges;
+			this.keywordIds = keywordIds;
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			if (!(object instanceof String)) {
+				return false;
+			}
+			final String keyword = (String) object;
+			int state = ROOT;
+			for (int index = 0; index < keyword.length() && state != NONE; index++) {
+				state = edges.get(state, keyword.charAt(index));
+			}
+			return state != NONE && state != ROOT && keywordIds.get(state) != NONE;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new Iterator<String>() {
+				private int id = advance(0);
+
+				@Override
+				public boolean hasNext() {
+					return id < keywordLimit;
+				}
+
+				@Override
+				public String next() {
+					if (id >= keywordLimit) {
+						throw new NoSuchElementException();
+					}
+					final String keyword = keywords.get(id);
+					id = advance(id + 1);
+					return keyword;
+				}
+
+				private int advance(int from) {
+					int next = from;
+					while (next < keywordLimit && keywords.get(next) == null) {
+						next++;
+					}
+					return next;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return keywordCount;
+		}
+	}
+}
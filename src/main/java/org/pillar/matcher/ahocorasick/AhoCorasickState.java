@@ -16,24 +16,30 @@
 
 package org.pillar.matcher.ahocorasick;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 
 import org.pillar.dfa.State;
 
 /**
  * A State in the Aho-Corasick finite state machine. The input symbols are of 
- * type Character and each AhoCorasickState holds a Collection of String values.
+ * type Character and each AhoCorasickState holds the id of the keyword ending
+ * at it, if any.
+ * 
+ * <p>The other keywords ending at a state are the suffixes of its keyword.
+ * Rather than being copied to every state, they are reached by following the
+ * output links, each of which points to the closest state on the failure 
+ * chain that has a keyword.
  * 
  * @author Sotirios Delimanolis
  * @since 0.0.1
  */
-class AhoCorasickState implements State<AhoCorasickState, Character, Collection<String>> {
+class AhoCorasickState implements State<AhoCorasickState, Character, Integer> {
 	// the State representing fail in the Aho-Corasick goto function
 	static final AhoCorasickState FAIL = new AhoCorasickState(-1);
+	// the keyword id of a state at which no keyword ends
+	static final int NO_KEYWORD = -1;
 
 	// the state index
 	private final int state;
@@ -42,8 +48,12 @@ class AhoCorasickState implements State<AhoCorasickState, Character, Collection<
 	private final Map<Character, AhoCorasickState> gotoTransitions = new HashMap<>();
 	// the target AhoCorasickState for a failure transition 
 	private AhoCorasickState failureTransition;
-	// the state value
-	private final Collection<String> outputs = new HashSet<>();
+	// the state value, the id of the keyword ending at this state
+	private int keywordId = NO_KEYWORD;
+	// the next state on the failure chain at which a keyword ends
+	private AhoCorasickState outputLink;
+	// the length of the keyword prefix this state represents
+	private int depth;
 	// the default value that the goto transition should return if no transition is possible
 	private AhoCorasickState defaultValue = FAIL;
 
@@ -51,6 +61,15 @@ class AhoCorasickState implements State<AhoCorasickState, Character, Collection<
 		this.state = state;
 	}
 
+	/**
+	 * Returns the index of this state.
+	 * 
+	 * @return the state index
+	 */
+	int index() {
+		return state;
+	}
+
 	/**
 	 * Sets the default value for a failed goto transition.
 	 * 
@@ -81,21 +100,66 @@ class AhoCorasickState implements State<AhoCorasickState, Character, Collection<
 	}
 
 	/**
-	 * Adds a value to this state.
+	 * Sets the id of the keyword ending at this state.
 	 * 
-	 * @param output the value to add
+	 * @param keywordId the keyword id
 	 */
-	void addOutput(String output) {
-		outputs.add(output);
+	void setKeywordId(int keywordId) {
+		this.keywordId = keywordId;
 	}
 
 	/**
-	 * Adds all the values in the given Collection to this state.
+	 * Sets the next state on the failure chain at which a keyword ends.
+	 * 
+	 * @param outputLink the target state, or null if there is none
+	 */
+	void setOutputLink(AhoCorasickState outputLink) {
+		this.outputLink = outputLink;
+	}
+	
+	/**
+	 * Sets the length of the keyword prefix this state represents.
+	 * 
+	 * @param depth the depth of this state in the goto function
+	 */
+	void setDepth(int depth) {
+		this.depth = depth;
+	}
+	
+	/**
+	 * Returns the length of the keyword prefix this state represents.
 	 * 
-	 * @param outputs the values to add
+	 * @return the depth of this state in the goto function
 	 */
-	void addAllOutputs(Collection<String> values) {
-		outputs.addAll(values);
+	int depth() {
+		return depth;
+	}
+	
+	/**
+	 * Returns the id of the keyword ending at this state, without boxing it.
+	 * 
+	 * @return the keyword id, or {@link #NO_KEYWORD}
+	 */
+	int keywordId() {
+		return keywordId;
+	}
+	
+	/**
+	 * Returns the next state on the failure chain at which a keyword ends.
+	 * 
+	 * @return the target state, or null if there is none
+	 */
+	AhoCorasickState outputLink() {
+		return outputLink;
+	}
+	
+	/**
+	 * Returns the first state, starting with this one, of the output chain.
+	 * 
+	 * @return this state if a keyword ends at it, its output link otherwise
+	 */
+	AhoCorasickState firstOutput() {
+		return (keywordId != NO_KEYWORD) ? this : outputLink;
 	}
 	
 	/**
@@ -120,13 +184,13 @@ class AhoCorasickState implements State<AhoCorasickState, Character, Collection<
 	}
 
 	/**
-	 * Returns the Collection of String values stored at this state.
+	 * Returns the id of the keyword ending at this state.
 	 * 
-	 * @return an unmodifiable collection of the strings stored at this state
+	 * @return the keyword id, or {@link #NO_KEYWORD}
 	 */
 	@Override
-	public Collection<String> value() {
-		return Collections.unmodifiableCollection(outputs);
+	public Integer value() {
+		return keywordId;
 	}
 
 	/**
@@ -149,7 +213,7 @@ class AhoCorasickState implements State<AhoCorasickState, Character, Collection<
 		result = prime * result	+ ((defaultValue == null) ? 0 : defaultValue.hashCode());
 		result = prime * result	+ ((failureTransition == null) ? 0 : failureTransition.hashCode());
 		result = prime * result	+ ((gotoTransitions == null) ? 0 : gotoTransitions.hashCode());
-		result = prime * result + ((outputs == null) ? 0 : outputs.hashCode());
+		result = prime * result + keywordId;
 		result = prime * result + state;
 		return result;
 	}
@@ -178,10 +242,7 @@ class AhoCorasickState implements State<AhoCorasickState, Character, Collection<
 				return false;
 		} else if (!gotoTransitions.equals(other.gotoTransitions))
 			return false;
-		if (outputs == null) {
-			if (other.outputs != null)
-				return false;
-		} else if (!outputs.equals(other.outputs))
+		if (keywordId != other.keywordId)
 			return false;
 		if (state != other.state)
 			return false;
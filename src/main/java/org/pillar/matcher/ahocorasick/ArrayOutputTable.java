@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An output function stored in {@code int} arrays on the heap.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class ArrayOutputTable extends OutputTable {
+	// the id of the keyword ending at each state, or NONE
+	private final int[] keywordIds;
+	// the closest state on the failure chain that has a keyword, or NONE
+	private final int[] outputLinks;
+	// the depth of each state
+	private final int[] depths;
+
+	ArrayOutputTable(int[] keywordIds, int[] outputLinks, int[] depths) {
+		this.keywordIds = keywordIds;
+		this.outputLinks = outputLinks;
+		this.depths = depths;
+	}
+
+	@Override
+	int firstOutput(int state) {
+		return (keywordIds[state] != AbstractAhoCorasick.NONE) ? state : outputLinks[state];
+	}
+
+	@Override
+	int nextOutput(int output) {
+		return outputLinks[output];
+	}
+
+	@Override
+	int keywordId(int output) {
+		return keywordIds[output];
+	}
+
+	@Override
+	int depth(int state) {
+		return depths[state];
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 4L * (keywordIds.length + outputLinks.length + depths.length);
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, keywordIds);
+		AutomatonFormat.writeInts(out, outputLinks);
+		AutomatonFormat.writeInts(out, depths);
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The binary format of a {@link CompiledAhoCorasick}. Every value is big-endian:
+ * 
+ * <pre>
+ * int     magic, "AHOC"
+ * int     format version
+ * int[]   keyword lengths, char[] keyword characters
+ * int     match kind, int case folding, int 1 if keywords are normalized
+ * int[]   the word char bit set, empty if matches can be anywhere
+ * int     transition mode, then the arrays of the transition table
+ * int[]   keyword ids, int[] output links, int[] depths
+ * int     state count, int trie state count, int alphabet size, long dense table bytes
+ * long    CRC-32 of everything above
+ * </pre>
+ * 
+ * Arrays are written as their length followed by their elements, so that they
+ * can be read with a single bulk copy. Char arrays are padded to a multiple of
+ * four bytes, so that every int array is aligned and can also be used in place,
+ * as a view of the buffer it is read from. Payloads are not written.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class AutomatonFormat {
+	// "AHOC"
+	static final int MAGIC = 0x41484F43;
+	// the version of the format, to increment on every incompatible change
+	static final int VERSION = 7;
+	// the size of the CRC-32 trailer
+	private static final int CHECKSUM_BYTES = 8;
+
+	private AutomatonFormat() {
+	}
+
+	/**
+	 * Writes a compiled state machine.
+	 */
+	static void write(OutputStream stream, String[] keywords, MatchKind matchKind, KeywordFolding folding,
+			WordBoundaries boundaries, TransitionTable transitions, OutputTable outputs, AutomatonStatistics statistics)
+			throws IOException {
+		final CRC32 checksum = new CRC32();
+		final DataOutputStream out = new DataOutputStream(new CheckedOutputStream(stream, checksum));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+
+		final int[] lengths = new int[keywords.length];
+		int totalLength = 0;
+		for (int id = 0; id < keywords.length; id++) {
+			lengths[id] = keywords[id].length();
+			totalLength += lengths[id];
+		}
+		final char[] characters = new char[totalLength];
+		int offset = 0;
+		for (String keyword : keywords) {
+			keyword.getChars(0, keyword.length(), characters, offset);
+			offset += keyword.length();
+		}
+		writeInts(out, lengths);
+		writeChars(out, characters);
+		out.writeInt(matchKind.ordinal());
+		out.writeInt(folding.caseFolding.ordinal());
+		out.writeInt(folding.normalized ? 1 : 0);
+		writeInts(out, (boundaries == null) ? new int[0] : boundaries.words);
+
+		out.writeInt(statistics.getTransitionMode().ordinal());
+		transitions.write(out);
+		outputs.write(out);
+		out.writeInt(statistics.getStateCount());
+		out.writeInt(statistics.getTrieStateCount());
+		out.writeInt(statistics.getAlphabetSize());
+		out.writeLong(statistics.getDenseTableBytes());
+		out.flush();
+
+		// the checksum itself is not checksummed
+		new DataOutputStream(stream).writeLong(checksum.getValue());
+	}
+
+	/**
+	 * Reads a compiled state machine from the remaining bytes of the given 
+	 * buffer. Its tables are either copied to the heap, or used in place.
+	 */
+	static CompiledAhoCorasick read(ByteBuffer buffer, boolean inPlace) throws IOException {
+		final long started = System.nanoTime();
+		final ByteBuffer in = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+		if (in.remaining() < 8 + CHECKSUM_BYTES || in.getInt() != MAGIC) {
+			throw new IOException("not a compiled Aho-Corasick state machine");
+		}
+		final int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported format version " + version + ", expected " + VERSION);
+		}
+		final int checksumPosition = in.limit() - CHECKSUM_BYTES;
+		final CRC32 checksum = new CRC32();
+		final ByteBuffer checked = in.duplicate();
+		// through Buffer, since the covariant overrides of ByteBuffer do not exist on Java 8
+		((Buffer) checked).position(0).limit(checksumPosition);
+		checksum.update(checked);
+		if (checksum.getValue() != in.getLong(checksumPosition)) {
+			throw new IOException("checksum mismatch, the file is corrupt");
+		}
+		((Buffer) in).limit(checksumPosition);
+
+		try {
+			final int[] lengths = readInts(in);
+			final char[] characters = readChars(in);
+			final String[] keywords = new String[lengths.length];
+			int offset = 0;
+			for (int id = 0; id < lengths.length; id++) {
+				keywords[id] = new String(characters, offset, lengths[id]);
+				offset += lengths[id];
+			}
+			final Set<String> keywordSet = new LinkedHashSet<>();
+			Collections.addAll(keywordSet, keywords);
+			final MatchKind matchKind = MatchKind.values()[in.getInt()];
+			final KeywordFolding folding = KeywordFolding.of(CaseFolding.values()[in.getInt()], in.getInt() != 0);
+			final int[] words = readInts(in);
+			final WordBoundaries boundaries = (words.length == 0) ? null : new WordBoundaries(words);
+
+			final TransitionMode mode = TransitionMode.values()[in.getInt()];
+			final TransitionTable transitions = inPlace ? viewTransitions(mode, in) : readTransitions(mode, in);
+			final OutputTable outputs = inPlace ? new BufferOutputTable(viewInts(in), viewInts(in), viewInts(in))
+					: new ArrayOutputTable(readInts(in), readInts(in), readInts(in));
+			final int stateCount = in.getInt();
+			final int trieStateCount = in.getInt();
+			// minimized state machines rebuild their keyword index
+			final long outputBytes = outputs.sizeInBytes() 
+					+ ((stateCount < trieStateCount) ? KeywordIndex.sizeInBytes(keywords.length) : 0);
+			final AutomatonStatistics statistics = new AutomatonStatistics(keywords.length, stateCount, 
+					trieStateCount, in.getInt(), mode, transitions.sizeInBytes(), outputBytes, in.getLong(), 
+					transitions.layoutCounts(), transitions.transitionCount(), 
+					AutomatonStatistics.keywordBytes(keywords), System.nanoTime() - started);
+			return new CompiledAhoCorasick(keywordSet, keywords, new Object[keywords.length], matchKind, folding,
+					boundaries, transitions, outputs, statistics);
+		} catch (RuntimeException e) {
+			// a valid checksum over inconsistent content
+			throw new IOException("malformed compiled Aho-Corasick state machine", e);
+		}
+	}
+
+	private static TransitionTable readTransitions(TransitionMode mode, ByteBuffer in) throws IOException {
+		switch (mode) {
+		case DENSE:
+			return new DenseDfaTransitions(readChars(in), readChars(in), in.getInt(), readInts(in));
+		case SPARSE:
+			return new SparseDfaTransitions(readInts(in), readInts(in), readChars(in), readInts(in));
+		case GOTO_FAILURE:
+			return new DoubleArrayTransitions(readInts(in), readInts(in), readInts(in));
+		case ADAPTIVE:
+			return new AdaptiveTransitions(readInts(in), readChars(in), readInts(in), readChars(in), readChars(in),
+					in.getInt(), readInts(in));
+		default:
+			throw new IOException("unsupported transition mode " + mode);
+		}
+	}
+
+	private static TransitionTable viewTransitions(TransitionMode mode, ByteBuffer in) throws IOException {
+		switch (mode) {
+		case DENSE:
+			return new BufferDenseDfaTransitions(viewChars(in), viewChars(in), in.getInt(), viewInts(in));
+		case SPARSE:
+			return new BufferSparseDfaTransitions(viewInts(in), viewInts(in), viewChars(in), viewInts(in));
+		case GOTO_FAILURE:
+			return new BufferDoubleArrayTransitions(viewInts(in), viewInts(in), viewInts(in));
+		case ADAPTIVE:
+			return new BufferAdaptiveTransitions(viewInts(in), viewChars(in), viewInts(in), viewChars(in), 
+					viewChars(in), in.getInt(), viewInts(in));
+		default:
+			throw new IOException("unsupported transition mode " + mode);
+		}
+	}
+
+	static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		final ByteBuffer staging = ByteBuffer.allocate(8192);
+		for (int i = 0; i < values.length;) {
+			final int count = Math.min(values.length - i, staging.capacity() / 4);
+			((Buffer) staging).clear();
+			staging.asIntBuffer().put(values, i, count);
+			out.write(staging.array(), 0, count * 4);
+			i += count;
+		}
+	}
+
+	static void writeChars(DataOutputStream out, char[] values) throws IOException {
+		out.writeInt(values.length);
+		final ByteBuffer staging = ByteBuffer.allocate(8192);
+		for (int i = 0; i < values.length;) {
+			final int count = Math.min(values.length - i, staging.capacity() / 2);
+			((Buffer) staging).clear();
+			staging.asCharBuffer().put(values, i, count);
+			out.write(staging.array(), 0, count * 2);
+			i += count;
+		}
+		writePadding(out, values.length);
+	}
+
+	static void writeInts(DataOutputStream out, IntBuffer values) throws IOException {
+		final IntBuffer source = values.duplicate();
+		((Buffer) source).clear();
+		out.writeInt(source.remaining());
+		final ByteBuffer staging = ByteBuffer.allocate(8192);
+		while (source.hasRemaining()) {
+			final int count = Math.min(source.remaining(), staging.capacity() / 4);
+			((Buffer) staging).clear();
+			final IntBuffer slice = source.slice();
+			((Buffer) slice).limit(count);
+			staging.asIntBuffer().put(slice);
+			((Buffer) source).position(source.position() + count);
+			out.write(staging.array(), 0, count * 4);
+		}
+	}
+
+	static void writeChars(DataOutputStream out, CharBuffer values) throws IOException {
+		final CharBuffer source = values.duplicate();
+		((Buffer) source).clear();
+		final int length = source.remaining();
+		out.writeInt(length);
+		final ByteBuffer staging = ByteBuffer.allocate(8192);
+		while (source.hasRemaining()) {
+			final int count = Math.min(source.remaining(), staging.capacity() / 2);
+			((Buffer) staging).clear();
+			final CharBuffer slice = source.slice();
+			((Buffer) slice).limit(count);
+			staging.asCharBuffer().put(slice);
+			((Buffer) source).position(source.position() + count);
+			out.write(staging.array(), 0, count * 2);
+		}
+		writePadding(out, length);
+	}
+
+	/*
+	 * Pads an array of the given number of chars to a multiple of four bytes.
+	 */
+	private static void writePadding(DataOutputStream out, int charCount) throws IOException {
+		if ((charCount & 1) != 0) {
+			out.writeChar(0);
+		}
+	}
+
+	private static int[] readInts(ByteBuffer in) {
+		final int[] values = new int[in.getInt()];
+		in.asIntBuffer().get(values);
+		((Buffer) in).position(in.position() + 4 * values.length);
+		return values;
+	}
+
+	private static char[] readChars(ByteBuffer in) {
+		final char[] values = new char[in.getInt()];
+		in.asCharBuffer().get(values);
+		((Buffer) in).position(in.position() + 2 * (values.length + (values.length & 1)));
+		return values;
+	}
+
+	private static IntBuffer viewInts(ByteBuffer in) {
+		final int length = in.getInt();
+		final ByteBuffer view = in.slice().order(in.order());
+		((Buffer) view).limit(4 * length);
+		((Buffer) in).position(in.position() + 4 * length);
+		return view.asIntBuffer();
+	}
+
+	private static CharBuffer viewChars(ByteBuffer in) {
+		final int length = in.getInt();
+		final ByteBuffer view = in.slice().order(in.order());
+		((Buffer) view).limit(2 * length);
+		((Buffer) in).position(in.position() + 2 * (length + (length & 1)));
+		return view.asCharBuffer();
+	}
+}
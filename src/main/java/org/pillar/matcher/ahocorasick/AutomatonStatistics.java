@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * Describes the size of a {@link CompiledAhoCorasick}, so that the memory cost
+ * of a {@link TransitionMode} can be compared with the alternatives.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class AutomatonStatistics {
+	// the estimated bytes of a keyword besides its chars: a String, its array, and its length as matched
+	private static final int KEYWORD_OVERHEAD = 60;
+
+	private final int keywordCount;
+	private final int stateCount;
+	private final int trieStateCount;
+	private final int alphabetSize;
+	private final TransitionMode transitionMode;
+	private final long transitionTableBytes;
+	private final long outputTableBytes;
+	private final long denseTableBytes;
+	// the number of states of each TransitionLayout, by ordinal
+	private final int[] layoutCounts;
+	private final long transitionCount;
+	private final long keywordBytes;
+	private final long buildNanos;
+
+	AutomatonStatistics(int keywordCount, int stateCount, int trieStateCount, int alphabetSize, 
+			TransitionMode transitionMode, long transitionTableBytes, long outputTableBytes, long denseTableBytes, 
+			int[] layoutCounts, long transitionCount, long keywordBytes, long buildNanos) {
+		this.keywordCount = keywordCount;
+		this.stateCount = stateCount;
+		this.trieStateCount = trieStateCount;
+		this.alphabetSize = alphabetSize;
+		this.transitionMode = transitionMode;
+		this.transitionTableBytes = transitionTableBytes;
+		this.outputTableBytes = outputTableBytes;
+		this.denseTableBytes = denseTableBytes;
+		this.layoutCounts = layoutCounts;
+		this.transitionCount = transitionCount;
+		this.keywordBytes = keywordBytes;
+		this.buildNanos = buildNanos;
+	}
+
+	/**
+	 * Estimates the bytes held by the given keywords.
+	 *
+	 * @param keywords the keywords, indexed by id
+	 * @return their estimated size in bytes
+	 */
+	static long keywordBytes(String[] keywords) {
+		long bytes = 0;
+		for (String keyword : keywords) {
+			bytes += KEYWORD_OVERHEAD + 2L * keyword.length();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of keywords.
+	 *
+	 * @return the number of keywords
+	 */
+	public int getKeywordCount() {
+		return keywordCount;
+	}
+
+	/**
+	 * Returns the number of states, once equivalent states are merged if the
+	 * state machine is minimized.
+	 *
+	 * @return the number of states
+	 */
+	public int getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns the number of states of the keyword trie, before minimization.
+	 *
+	 * @return the number of trie states
+	 * @see CompiledAhoCorasickBuilder#withMinimization(boolean)
+	 */
+	public int getTrieStateCount() {
+		return trieStateCount;
+	}
+
+	/**
+	 * Returns if equivalent states of the keyword trie were merged. A state
+	 * machine built with minimization is not minimized if no states are 
+	 * equivalent.
+	 *
+	 * @return true if the state machine has fewer states than its keyword trie
+	 */
+	public boolean isMinimized() {
+		return stateCount < trieStateCount;
+	}
+
+	/**
+	 * Returns the number of distinct keyword characters, plus one for every
+	 * other character.
+	 *
+	 * @return the alphabet size
+	 */
+	public int getAlphabetSize() {
+		return alphabetSize;
+	}
+
+	/**
+	 * Returns the transition mode in use. Never {@link TransitionMode#DETERMINISTIC},
+	 * which is resolved to either {@link TransitionMode#DENSE} or
+	 * {@link TransitionMode#SPARSE}.
+	 *
+	 * @return the transition mode in use
+	 */
+	public TransitionMode getTransitionMode() {
+		return transitionMode;
+	}
+
+	/**
+	 * Returns the approximate number of bytes held by the transition function.
+	 *
+	 * @return the size of the transition function in bytes
+	 */
+	public long getTransitionTableBytes() {
+		return transitionTableBytes;
+	}
+
+	/**
+	 * Returns the number of transitions stored by the transition function, 
+	 * other than failure transitions. Every entry of a dense row counts.
+	 *
+	 * @return the number of transitions
+	 */
+	public long getTransitionCount() {
+		return transitionCount;
+	}
+
+	/**
+	 * Returns the approximate number of bytes held by the output function.
+	 *
+	 * @return the size of the output function in bytes
+	 */
+	public long getOutputTableBytes() {
+		return outputTableBytes;
+	}
+
+	/**
+	 * Returns the number of bytes a {@link TransitionMode#DENSE} transition
+	 * function holds, or would hold, for the same keywords.
+	 *
+	 * @return the size of a dense transition function in bytes
+	 */
+	public long getDenseTableBytes() {
+		return denseTableBytes;
+	}
+
+	/**
+	 * Returns an estimate of the bytes held by the state machine, on or off 
+	 * the heap: its transition and output functions, and its keywords. 
+	 * Payloads are not counted.
+	 *
+	 * @return the estimated size of the state machine in bytes
+	 */
+	public long getRetainedBytes() {
+		return transitionTableBytes + outputTableBytes + keywordBytes;
+	}
+
+	/**
+	 * Returns how long building the tables took, or reading them for a state
+	 * machine that was loaded.
+	 *
+	 * @return the build time in nanoseconds
+	 */
+	public long getBuildNanos() {
+		return buildNanos;
+	}
+
+	/**
+	 * Returns the number of states that store their transitions with the given
+	 * layout. Only {@link TransitionMode#ADAPTIVE} picks a layout per state;
+	 * this is 0 in other modes.
+	 *
+	 * @param layout a transition layout
+	 * @return the number of states with that layout
+	 */
+	public int getLayoutCount(TransitionLayout layout) {
+		return layoutCounts[layout.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		return "[keywords = " + keywordCount + ", states = " + stateCount 
+				+ (isMinimized() ? ", trieStates = " + trieStateCount : "") + ", alphabet = " + alphabetSize
+				+ ", transitionMode = " + transitionMode + ", transitionTableBytes = " + transitionTableBytes
+				+ ", outputTableBytes = " + outputTableBytes + ", denseTableBytes = " + denseTableBytes
+				+ ", transitions = " + transitionCount + ", retainedBytes = " + getRetainedBytes() + layouts() + "]";
+	}
+
+	/*
+	 * Describes the layout counts, if there are any.
+	 */
+	private String layouts() {
+		if (transitionMode != TransitionMode.ADAPTIVE) {
+			return "";
+		}
+		final StringBuilder builder = new StringBuilder();
+		for (TransitionLayout layout : TransitionLayout.values()) {
+			builder.append(", ").append(layout).append(" = ").append(layoutCounts[layout.ordinal()]);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A {@link AdaptiveTransitions} stored in buffers, which may be views of a
+ * direct or memory-mapped buffer.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class BufferAdaptiveTransitions extends TransitionTable {
+	// the state records, one after the other
+	private final IntBuffer states;
+	// the sorted edges of states with a few of them
+	private final CharBuffer labels;
+	private final IntBuffer targets;
+	// high byte -> offset of its page in classes
+	private final CharBuffer pages;
+	// character -> column, in pages of 256 chars
+	private final CharBuffer classes;
+	// the number of columns of each row
+	private final int columnCount;
+	// the dense rows, one after the other
+	private final IntBuffer rows;
+
+	BufferAdaptiveTransitions(IntBuffer states, CharBuffer labels, IntBuffer targets, CharBuffer pages, 
+			CharBuffer classes, int columnCount, IntBuffer rows) {
+		this.states = states;
+		this.labels = labels;
+		this.targets = targets;
+		this.pages = pages;
+		this.classes = classes;
+		this.columnCount = columnCount;
+		this.rows = rows;
+	}
+
+	@Override
+	int next(int state, char character) {
+		for (;;) {
+			final int record = AdaptiveTransitions.RECORD * state;
+			final int first = states.get(record);
+			if (first == character) {
+				return states.get(record + 1);
+			}
+			if (first < 0) {
+				final int target;
+				if (first == AdaptiveTransitions.DENSE) {
+					final int column = classes.get(pages.get(character >>> CharClasses.PAGE_BITS) 
+							+ (character & CharClasses.PAGE_MASK));
+					target = rows.get(states.get(record + 1) + column);
+				} else {
+					target = go(states.get(record + 1), ~first, character);
+				}
+				// the root's row is complete, so this ends there at the latest
+				if (target != AdaptiveTransitions.FAIL) {
+					return target;
+				}
+			}
+			state = states.get(record + 2);
+		}
+	}
+
+	/*
+	 * Returns the target of the edge labeled with the given character, among 
+	 * the given sorted edges, or FAIL.
+	 */
+	private int go(int edge, int fanOut, char character) {
+		if (fanOut <= AdaptiveTransitions.LINEAR_FAN_OUT) {
+			for (final int end = edge + fanOut; edge < end; edge++) {
+				if (labels.get(edge) == character) {
+					return targets.get(edge);
+				}
+			}
+			return AdaptiveTransitions.FAIL;
+		}
+		int low = edge;
+		int high = edge + fanOut - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final char label = labels.get(middle);
+			if (label < character) {
+				low = middle + 1;
+			} else if (label > character) {
+				high = middle - 1;
+			} else {
+				return targets.get(middle);
+			}
+		}
+		return AdaptiveTransitions.FAIL;
+	}
+
+	@Override
+	int stateCount() {
+		return states.capacity() / AdaptiveTransitions.RECORD;
+	}
+
+	@Override
+	long transitionCount() {
+		long count = (long) rows.capacity() + labels.capacity();
+		for (int record = 0; record < states.capacity(); record += AdaptiveTransitions.RECORD) {
+			if (states.get(record) >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 4L * (states.capacity() + rows.capacity()) + 6L * labels.capacity() 
+				+ 2L * (pages.capacity() + classes.capacity());
+	}
+
+	@Override
+	int[] layoutCounts() {
+		final int[] counts = new int[TransitionLayout.values().length];
+		for (int record = 0; record < states.capacity(); record += AdaptiveTransitions.RECORD) {
+			counts[AdaptiveTransitions.layout(states.get(record)).ordinal()]++;
+		}
+		return counts;
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, states);
+		AutomatonFormat.writeChars(out, labels);
+		AutomatonFormat.writeInts(out, targets);
+		AutomatonFormat.writeChars(out, pages);
+		AutomatonFormat.writeChars(out, classes);
+		out.writeInt(columnCount);
+		AutomatonFormat.writeInts(out, rows);
+	}
+}
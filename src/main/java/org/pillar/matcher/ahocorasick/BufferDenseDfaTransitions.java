@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A {@link DenseDfaTransitions} stored in buffers, which may be views of a
+ * direct or memory-mapped buffer.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class BufferDenseDfaTransitions extends TransitionTable {
+	// high byte -> offset of its page in classes
+	private final CharBuffer pages;
+	// character -> column, in pages of 256 chars
+	private final CharBuffer classes;
+	// the number of columns of each row
+	private final int columnCount;
+	// the next state of state s for column c is at s * columnCount + c
+	private final IntBuffer table;
+
+	BufferDenseDfaTransitions(CharBuffer pages, CharBuffer classes, int columnCount, IntBuffer table) {
+		this.pages = pages;
+		this.classes = classes;
+		this.columnCount = columnCount;
+		this.table = table;
+	}
+
+	@Override
+	int next(int state, char character) {
+		final int column = classes.get(pages.get(character >>> CharClasses.PAGE_BITS) + (character & CharClasses.PAGE_MASK));
+		return table.get(state * columnCount + column);
+	}
+
+	@Override
+	int stateCount() {
+		return table.capacity() / columnCount;
+	}
+
+	@Override
+	long transitionCount() {
+		return table.capacity();
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 2L * (pages.capacity() + classes.capacity()) + 4L * table.capacity();
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeChars(out, pages);
+		AutomatonFormat.writeChars(out, classes);
+		out.writeInt(columnCount);
+		AutomatonFormat.writeInts(out, table);
+	}
+}
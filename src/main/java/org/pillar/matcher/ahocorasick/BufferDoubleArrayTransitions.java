@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+/**
+ * A {@link DoubleArrayTransitions} stored in {@link IntBuffer}s, which may be
+ * views of a direct or memory-mapped buffer.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class BufferDoubleArrayTransitions extends TransitionTable {
+	// the double-array goto function
+	private final IntBuffer base;
+	private final IntBuffer check;
+	// the failure function
+	private final IntBuffer fail;
+
+	BufferDoubleArrayTransitions(IntBuffer base, IntBuffer check, IntBuffer fail) {
+		this.base = base;
+		this.check = check;
+		this.fail = fail;
+	}
+
+	@Override
+	int next(int state, char character) {
+		final int code = character + 1;
+		final int size = check.capacity();
+		for (;;) {
+			final int target = base.get(state) + code;
+			if (target < size && check.get(target) == state) {
+				return target;
+			}
+			if (state == 0) {
+				return 0;
+			}
+			state = fail.get(state);
+		}
+	}
+
+	@Override
+	int stateCount() {
+		return base.capacity();
+	}
+
+	@Override
+	long transitionCount() {
+		// every used slot but the root's
+		long count = 0;
+		for (int slot = 1; slot < check.capacity(); slot++) {
+			if (check.get(slot) >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 3L * 4 * base.capacity();
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, base);
+		AutomatonFormat.writeInts(out, check);
+		AutomatonFormat.writeInts(out, fail);
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+/**
+ * An output function stored in {@link IntBuffer}s, which may be views of a 
+ * direct or memory-mapped buffer.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class BufferOutputTable extends OutputTable {
+	// the id of the keyword ending at each state, or NONE
+	private final IntBuffer keywordIds;
+	// the closest state on the failure chain that has a keyword, or NONE
+	private final IntBuffer outputLinks;
+	// the depth of each state
+	private final IntBuffer depths;
+
+	BufferOutputTable(IntBuffer keywordIds, IntBuffer outputLinks, IntBuffer depths) {
+		this.keywordIds = keywordIds;
+		this.outputLinks = outputLinks;
+		this.depths = depths;
+	}
+
+	@Override
+	int firstOutput(int state) {
+		return (keywordIds.get(state) != AbstractAhoCorasick.NONE) ? state : outputLinks.get(state);
+	}
+
+	@Override
+	int nextOutput(int output) {
+		return outputLinks.get(output);
+	}
+
+	@Override
+	int keywordId(int output) {
+		return keywordIds.get(output);
+	}
+
+	@Override
+	int depth(int state) {
+		return depths.get(state);
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 4L * (keywordIds.capacity() + outputLinks.capacity() + depths.capacity());
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, keywordIds);
+		AutomatonFormat.writeInts(out, outputLinks);
+		AutomatonFormat.writeInts(out, depths);
+	}
+}
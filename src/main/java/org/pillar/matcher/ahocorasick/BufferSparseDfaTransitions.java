@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A {@link SparseDfaTransitions} stored in buffers, which may be views of a
+ * direct or memory-mapped buffer.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class BufferSparseDfaTransitions extends TransitionTable {
+	// the next state of the root, indexed by character
+	private final IntBuffer rootRow;
+	// the row of state s is rowLabels/rowTargets[rowStart[s] .. rowStart[s + 1])
+	private final IntBuffer rowStart;
+	private final CharBuffer rowLabels;
+	private final IntBuffer rowTargets;
+
+	BufferSparseDfaTransitions(IntBuffer rootRow, IntBuffer rowStart, CharBuffer rowLabels, IntBuffer rowTargets) {
+		this.rootRow = rootRow;
+		this.rowStart = rowStart;
+		this.rowLabels = rowLabels;
+		this.rowTargets = rowTargets;
+	}
+
+	@Override
+	int next(int state, char character) {
+		int low = rowStart.get(state);
+		int high = rowStart.get(state + 1) - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final char label = rowLabels.get(middle);
+			if (label < character) {
+				low = middle + 1;
+			} else if (label > character) {
+				high = middle - 1;
+			} else {
+				return rowTargets.get(middle);
+			}
+		}
+		return (character < rootRow.capacity()) ? rootRow.get(character) : 0;
+	}
+
+	@Override
+	int stateCount() {
+		return rowStart.capacity() - 1;
+	}
+
+	@Override
+	long transitionCount() {
+		return rootRow.capacity() + rowLabels.capacity();
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 4L * rootRow.capacity() + 4L * rowStart.capacity() + 6L * rowLabels.capacity();
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, rootRow);
+		AutomatonFormat.writeInts(out, rowStart);
+		AutomatonFormat.writeChars(out, rowLabels);
+		AutomatonFormat.writeInts(out, rowTargets);
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * How the case of keywords and input is folded before they are compared. 
+ * Folding maps each char to a single char, so the offsets of matches always 
+ * refer to the input as given.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public enum CaseFolding {
+	/**
+	 * Chars are compared as they are.
+	 */
+	NONE,
+	/**
+	 * {@code A} to {@code Z} match {@code a} to {@code z}, every other char is
+	 * compared as it is.
+	 */
+	ASCII,
+	/**
+	 * Unicode simple case folding of the Basic Multilingual Plane, as done by
+	 * {@link String#equalsIgnoreCase(String)}: chars are compared after being
+	 * converted to upper case, then to lower case. Folds that would change the
+	 * length of a string, like &szlig; to {@code ss}, are not applied.
+	 */
+	SIMPLE
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps every char to its equivalence class: the column of a dense transition
+ * table. Chars of no keyword share class 0, and every keyword char has a class
+ * of its own, since the state it leads to from its parent in the trie is 
+ * reached by no other char. 
+ * 
+ * <p>Rather than one 64K entry table, classes are held in two levels: the 
+ * high byte of a char selects a page of 256 classes, indexed by its low byte.
+ * Identical pages are stored once, so that the pages of chars of no keyword 
+ * are all the same page of zeroes. Keyword sets over a few scripts take a few
+ * pages, which stay in cache while the input is scanned.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class CharClasses {
+	// the number of low bits indexing a page
+	static final int PAGE_BITS = 8;
+	// the number of classes of a page
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+	static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	// high byte -> offset of its page in classes
+	final char[] pages;
+	// the distinct pages, one after the other
+	final char[] classes;
+
+	private CharClasses(char[] pages, char[] classes) {
+		this.pages = pages;
+		this.classes = classes;
+	}
+
+	/**
+	 * Splits the given flat table of classes into shared pages.
+	 * 
+	 * @param flat the class of every char
+	 * @return the two-level table
+	 */
+	static CharClasses of(char[] flat) {
+		final char[] pages = new char[(Character.MAX_VALUE + 1) >>> PAGE_BITS];
+		final Map<String, Integer> offsets = new HashMap<>();
+		char[] classes = new char[PAGE_SIZE];
+		int length = 0;
+		for (int page = 0; page < pages.length; page++) {
+			final String key = new String(flat, page << PAGE_BITS, PAGE_SIZE);
+			Integer offset = offsets.get(key);
+			if (offset == null) {
+				offset = length;
+				offsets.put(key, offset);
+				if (length == classes.length) {
+					classes = Arrays.copyOf(classes, length * 2);
+				}
+				System.arraycopy(flat, page << PAGE_BITS, classes, length, PAGE_SIZE);
+				length += PAGE_SIZE;
+			}
+			// the last page starts at 255 * 256, which fits in a char
+			pages[page] = (char) offset.intValue();
+		}
+		return new CharClasses(pages, Arrays.copyOf(classes, length));
+	}
+
+	/**
+	 * Returns the class of the given char.
+	 * 
+	 * @param character a char
+	 * @return its class
+	 */
+	int classOf(char character) {
+		return classes[pages[character >>> PAGE_BITS] + (character & PAGE_MASK)];
+	}
+
+	/**
+	 * Returns the number of bytes held by the two levels.
+	 * 
+	 * @return the size of the table in bytes
+	 */
+	long sizeInBytes() {
+		return 2L * (pages.length + classes.length);
+	}
+}
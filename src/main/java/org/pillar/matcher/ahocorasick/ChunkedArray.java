@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Arrays;
+
+/**
+ * An array split into fixed size chunks, which copies share until one of 
+ * them changes a chunk. Copying costs a reference per chunk, and changing 
+ * copies at most the chunks changed, so a copy can be published after every
+ * update of a large array.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+abstract class ChunkedArray {
+	static final int CHUNK_SHIFT = 10;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	// whether each chunk is shared with a copy, and must be copied before it is changed
+	private boolean[] shared;
+
+	ChunkedArray(int chunkCount, boolean shared) {
+		this.shared = new boolean[chunkCount];
+		Arrays.fill(this.shared, shared);
+	}
+
+	/**
+	 * Returns the chunk holding the given index, after copying it if it is 
+	 * shared.
+	 *
+	 * @param index an index
+	 * @return the chunk index, of a chunk this array can change
+	 */
+	final int writableChunk(int index) {
+		final int chunk = index >>> CHUNK_SHIFT;
+		if (shared[chunk]) {
+			copyChunk(chunk);
+			shared[chunk] = false;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Marks every chunk as shared, before they are handed to a copy.
+	 */
+	final void share() {
+		Arrays.fill(shared, true);
+	}
+
+	/**
+	 * Adds chunks, which are not shared, up to the given count.
+	 *
+	 * @param chunkCount the new number of chunks
+	 */
+	final void addChunks(int chunkCount) {
+		shared = Arrays.copyOf(shared, chunkCount);
+	}
+
+	/**
+	 * Replaces the given chunk with a copy of it.
+	 *
+	 * @param chunk a chunk index
+	 */
+	abstract void copyChunk(int chunk);
+
+	static int chunkCount(int length) {
+		return Math.max(1, (length + CHUNK_MASK) >>> CHUNK_SHIFT);
+	}
+
+	/**
+	 * A chunked {@code int} array.
+	 */
+	static final class Ints extends ChunkedArray {
+		private int[][] chunks;
+
+		Ints(int length) {
+			super(chunkCount(length), false);
+			chunks = new int[chunkCount(length)][];
+			for (int chunk = 0; chunk < chunks.length; chunk++) {
+				chunks[chunk] = new int[CHUNK_SIZE];
+			}
+		}
+
+		private Ints(int[][] chunks) {
+			super(chunks.length, true);
+			this.chunks = chunks;
+		}
+
+		int get(int index) {
+			return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+		}
+
+		void set(int index, int value) {
+			chunks[writableChunk(index)][index & CHUNK_MASK] = value;
+		}
+
+		int length() {
+			return chunks.length << CHUNK_SHIFT;
+		}
+
+		/**
+		 * Makes room for at least the given number of elements.
+		 *
+		 * @param length the minimum length
+		 */
+		void grow(int length) {
+			final int chunkCount = chunkCount(length);
+			if (chunkCount > chunks.length) {
+				final int oldCount = chunks.length;
+				chunks = Arrays.copyOf(chunks, chunkCount);
+				for (int chunk = oldCount; chunk < chunkCount; chunk++) {
+					chunks[chunk] = new int[CHUNK_SIZE];
+				}
+				addChunks(chunkCount);
+			}
+		}
+
+		/**
+		 * Returns a copy of this array, which changes to this one do not affect.
+		 *
+		 * @return a copy sharing the chunks of this array
+		 */
+		Ints copy() {
+			share();
+			return new Ints(chunks.clone());
+		}
+
+		@Override
+		void copyChunk(int chunk) {
+			chunks[chunk] = chunks[chunk].clone();
+		}
+	}
+
+	/**
+	 * A chunked {@code long} array.
+	 */
+	static final class Longs extends ChunkedArray {
+		private final long[][] chunks;
+
+		Longs(int length, long value) {
+			super(chunkCount(length), false);
+			chunks = new long[chunkCount(length)][];
+			for (int chunk = 0; chunk < chunks.length; chunk++) {
+				chunks[chunk] = new long[CHUNK_SIZE];
+				Arrays.fill(chunks[chunk], value);
+			}
+		}
+
+		private Longs(long[][] chunks) {
+			super(chunks.length, true);
+			this.chunks = chunks;
+		}
+
+		long get(int index) {
+			return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+		}
+
+		void set(int index, long value) {
+			chunks[writableChunk(index)][index & CHUNK_MASK] = value;
+		}
+
+		int length() {
+			return chunks.length << CHUNK_SHIFT;
+		}
+
+		/**
+		 * Returns a copy of this array, which changes to this one do not affect.
+		 *
+		 * @return a copy sharing the chunks of this array
+		 */
+		Longs copy() {
+			share();
+			return new Longs(chunks.clone());
+		}
+
+		@Override
+		void copyChunk(int chunk) {
+			chunks[chunk] = chunks[chunk].clone();
+		}
+	}
+
+	/**
+	 * A chunked {@code String} array.
+	 */
+	static final class Strings extends ChunkedArray {
+		private String[][] chunks;
+
+		Strings(int length) {
+			super(chunkCount(length), false);
+			chunks = new String[chunkCount(length)][];
+			for (int chunk = 0; chunk < chunks.length; chunk++) {
+				chunks[chunk] = new String[CHUNK_SIZE];
+			}
+		}
+
+		private Strings(String[][] chunks) {
+			super(chunks.length, true);
+			this.chunks = chunks;
+		}
+
+		String get(int index) {
+			return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+		}
+
+		void set(int index, String value) {
+			chunks[writableChunk(index)][index & CHUNK_MASK] = value;
+		}
+
+		int length() {
+			return chunks.length << CHUNK_SHIFT;
+		}
+
+		/**
+		 * Makes room for at least the given number of elements.
+		 *
+		 * @param length the minimum length
+		 */
+		void grow(int length) {
+			final int chunkCount = chunkCount(length);
+			if (chunkCount > chunks.length) {
+				final int oldCount = chunks.length;
+				chunks = Arrays.copyOf(chunks, chunkCount);
+				for (int chunk = oldCount; chunk < chunkCount; chunk++) {
+					chunks[chunk] = new String[CHUNK_SIZE];
+				}
+				addChunks(chunkCount);
+			}
+		}
+
+		/**
+		 * Returns a copy of this array, which changes to this one do not affect.
+		 *
+		 * @return a copy sharing the chunks of this array
+		 */
+		Strings copy() {
+			share();
+			return new Strings(chunks.clone());
+		}
+
+		@Override
+		void copyChunk(int chunk) {
+			chunks[chunk] = chunks[chunk].clone();
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import org.pillar.matcher.StringMatcher;
+
+/**
+ * A {@link StringMatcher} implemented with an Aho-Corasick state machine that
+ * is compiled into primitive arrays. States are identified by {@code int}s
+ * and the transition function is stored as described by a {@link TransitionMode},
+ * so matching does not allocate or follow object references per input
+ * character.
+ *
+ * <p>A CompiledAhoCorasick produces the same matches as an {@link AhoCorasick}
+ * built from the same keywords. Matches ending at the same index are reported
+ * from the longest to the shortest.
+ *
+ * <p>A CompiledAhoCorasick can be written to a file once, with {@link #writeTo(Path)},
+ * and loaded from it much faster than it can be built, with {@link #load(Path)}.
+ * Its tables may also be kept off the heap, see {@link TableStorage}.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see CompiledAhoCorasickBuilder
+ */
+public final class CompiledAhoCorasick extends AbstractAhoCorasick {
+	// the transition function
+	private final TransitionTable transitions;
+	// the output function
+	private final OutputTable outputs;
+	// the size of the state machine
+	private final AutomatonStatistics statistics;
+	// finds the keywords of outputs, or null if the outputs identify them
+	private final KeywordIndex keywordIndex;
+
+	/**
+	 * Compiles an Aho-Corasick state machine for the given keywords and phrases.
+	 *
+	 * @param keywords a non-null, non-empty Set of keywords
+	 */
+	public CompiledAhoCorasick(Set<String> keywords) {
+		this(CompiledAhoCorasickBuilder.create().withKeywords(keywords).build());
+	}
+
+	private CompiledAhoCorasick(CompiledAhoCorasick other) {
+		this(other.keywordSet, other.keywords, other.payloads, other.matchKind, other.folding, other.boundaries,
+				other);
+	}
+
+	/*
+	 * Shares the tables of the given state machine, with other keywords and payloads.
+	 */
+	CompiledAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind,
+			KeywordFolding folding, WordBoundaries boundaries, CompiledAhoCorasick tables) {
+		this(keywordSet, keywords, payloads, matchKind, folding, boundaries, tables, 
+				tables.isPrefiltered() ? Prefilter.ON : Prefilter.OFF);
+	}
+
+	/*
+	 * Shares the tables of the given state machine, with other keywords and 
+	 * payloads, prefiltering the input as given.
+	 */
+	CompiledAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind,
+			KeywordFolding folding, WordBoundaries boundaries, CompiledAhoCorasick tables, Prefilter prefilter) {
+		this(keywordSet, keywords, payloads, matchKind, folding, boundaries, tables.transitions, tables.outputs,
+				tables.statistics, prefilter);
+	}
+
+	CompiledAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind,
+			KeywordFolding folding, WordBoundaries boundaries, TransitionTable transitions, OutputTable outputs,
+			AutomatonStatistics statistics) {
+		this(keywordSet, keywords, payloads, matchKind, folding, boundaries, transitions, outputs, statistics,
+				Prefilter.AUTO);
+	}
+
+	CompiledAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind,
+			KeywordFolding folding, WordBoundaries boundaries, TransitionTable transitions, OutputTable outputs,
+			AutomatonStatistics statistics, Prefilter prefilter) {
+		this(keywordSet, keywords, payloads, matchKind, folding, boundaries, transitions, outputs, statistics,
+				prefilter, null, statistics.isMinimized() ? new KeywordIndex(keywords, folding) : null);
+	}
+
+	private CompiledAhoCorasick(Set<String> keywordSet, String[] keywords, Object[] payloads, MatchKind matchKind,
+			KeywordFolding folding, WordBoundaries boundaries, TransitionTable transitions, OutputTable outputs,
+			AutomatonStatistics statistics, Prefilter prefilter, ScanListener scanListener, 
+			KeywordIndex keywordIndex) {
+		super(keywordSet, keywords, payloads, matchKind, folding, boundaries, prefilter, scanListener);
+		this.transitions = transitions;
+		this.outputs = outputs;
+		this.statistics = statistics;
+		this.keywordIndex = keywordIndex;
+	}
+
+	@Override
+	int next(int state, char character) {
+		return transitions.next(state, character);
+	}
+
+	@Override
+	int firstOutput(int state) {
+		return outputs.firstOutput(state);
+	}
+
+	@Override
+	int nextOutput(int output) {
+		return outputs.nextOutput(output);
+	}
+
+	@Override
+	int keywordId(int output) {
+		return outputs.keywordId(output);
+	}
+
+	@Override
+	int keywordId(int output, String input, int end) {
+		return (keywordIndex == null) ? outputs.keywordId(output)
+				: keywordIndex.keywordId(input, end - outputs.depth(output), end);
+	}
+
+	@Override
+	int depth(int state) {
+		return outputs.depth(state);
+	}
+
+	@Override
+	boolean isMinimized() {
+		return keywordIndex != null;
+	}
+
+	/**
+	 * Returns the size of this state machine.
+	 *
+	 * @return the statistics of this state machine
+	 */
+	public AutomatonStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns a state machine that shares the tables of this one and notifies
+	 * the given listener at the end of each scan of a String, including those
+	 * of {@link #match(String)}, {@link #containsMatch(String)} and 
+	 * {@link #replaceAll(String, MatchKind, org.pillar.matcher.Replacement)}.
+	 * Streamed input is not counted.
+	 *
+	 * @param scanListener the listener to notify, or null to stop counting
+	 * @return a new CompiledAhoCorasick
+	 */
+	public CompiledAhoCorasick withScanListener(ScanListener scanListener) {
+		return new CompiledAhoCorasick(keywordSet, keywords, payloads, matchKind, folding, boundaries, transitions,
+				outputs, statistics, isPrefiltered() ? Prefilter.ON : Prefilter.OFF, scanListener, keywordIndex);
+	}
+
+	/**
+	 * Writes this state machine to the given stream, in a versioned binary
+	 * format protected by a checksum. Payloads are not written.
+	 *
+	 * @param out the stream to write to, which is not closed
+	 * @throws IOException if the stream cannot be written to
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		final BufferedOutputStream buffered = new BufferedOutputStream(out, 65536);
+		AutomatonFormat.write(buffered, keywords, matchKind, folding, boundaries, transitions, outputs,
+				statistics);
+		buffered.flush();
+	}
+
+	/**
+	 * Writes this state machine to the given file, replacing it if it exists.
+	 *
+	 * @param file the file to write to
+	 * @throws IOException if the file cannot be written to
+	 * @see #writeTo(OutputStream)
+	 */
+	public void writeTo(Path file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file)) {
+			writeTo(out);
+		}
+	}
+
+	/**
+	 * Loads a state machine written with {@link #writeTo(Path)}. The file is
+	 * memory-mapped and its tables are copied in bulk, so no state is rebuilt.
+	 * Loaded keywords have no payloads.
+	 *
+	 * @param file the file to load
+	 * @return the loaded state machine
+	 * @throws IOException if the file cannot be read, was written in another
+	 *         format version, or is corrupt
+	 */
+	public static CompiledAhoCorasick load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("file too large: " + channel.size() + " bytes");
+			}
+			return AutomatonFormat.read(channel.map(MapMode.READ_ONLY, 0, channel.size()), false);
+		}
+	}
+
+	/**
+	 * Maps a state machine written with {@link #writeTo(Path)} and matches 
+	 * with its tables in place, in the mapped file. The tables are neither
+	 * copied nor held on the heap, and processes mapping the same file share
+	 * the same pages of memory. Loaded keywords have no payloads.
+	 *
+	 * <p>The file should not be modified while the state machine is in use.
+	 *
+	 * @param file the file to map
+	 * @return the mapped state machine
+	 * @throws IOException if the file cannot be read, was written in another
+	 *         format version, or is corrupt
+	 * @see TableStorage#DIRECT
+	 */
+	public static CompiledAhoCorasick map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("file too large: " + channel.size() + " bytes");
+			}
+			// the mapping outlives the channel
+			return AutomatonFormat.read(channel.map(MapMode.READ_ONLY, 0, channel.size()), true);
+		}
+	}
+
+	/**
+	 * Reads a state machine written with {@link #writeTo(OutputStream)}, up to
+	 * the end of the given stream. Loaded keywords have no payloads.
+	 *
+	 * @param in the stream to read from, which is not closed
+	 * @return the loaded state machine
+	 * @throws IOException if the stream cannot be read, was written in another
+	 *         format version, or is corrupt
+	 */
+	public static CompiledAhoCorasick read(InputStream in) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[65536];
+		for (int read; (read = in.read(buffer)) != -1;) {
+			bytes.write(buffer, 0, read);
+		}
+		return AutomatonFormat.read(ByteBuffer.wrap(bytes.toByteArray()), false);
+	}
+}
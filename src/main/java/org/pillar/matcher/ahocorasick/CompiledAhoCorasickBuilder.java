@@ -0,0 +1,356 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+
+/**
+ * A builder for {@link CompiledAhoCorasick} instances.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public class CompiledAhoCorasickBuilder {
+	// the largest alphabet for which TransitionMode.DETERMINISTIC picks a dense table
+	static final int DENSE_ALPHABET_LIMIT = 256;
+
+	public static CompiledAhoCorasickBuilder create() {
+		return new CompiledAhoCorasickBuilder();
+	}
+
+	private Set<String> keywords;
+	private Map<String, ?> keywordPayloads;
+	private TransitionMode transitionMode = TransitionMode.GOTO_FAILURE;
+	private TableStorage tableStorage = TableStorage.HEAP;
+	private MatchKind matchKind = MatchKind.ALL;
+	private CaseFolding caseFolding = CaseFolding.NONE;
+	private boolean normalizedKeywords;
+	private IntPredicate wordChars;
+	private ForkJoinPool constructionPool;
+	private Prefilter prefilter = Prefilter.AUTO;
+	private boolean minimization;
+
+	/**
+	 * Sets the keywords and phrases to match.
+	 *
+	 * @param keywords a non-null, non-empty Set of keywords
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withKeywords(Set<String> keywords) {
+		this.keywords = keywords;
+		this.keywordPayloads = null;
+		return this;
+	}
+
+	/**
+	 * Sets the keywords and phrases to match, each of which is mapped to a
+	 * payload to attach to its matches.
+	 *
+	 * @param keywordPayloads a non-null, non-empty Map of keywords to payloads
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withKeywords(Map<String, ?> keywordPayloads) {
+		this.keywords = Objects.requireNonNull(keywordPayloads, "keywords cannot be null.").keySet();
+		this.keywordPayloads = keywordPayloads;
+		return this;
+	}
+
+	/**
+	 * Sets how the transition function is stored. Defaults to
+	 * {@link TransitionMode#GOTO_FAILURE}.
+	 *
+	 * @param transitionMode the transition mode
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withTransitionMode(TransitionMode transitionMode) {
+		this.transitionMode = Objects.requireNonNull(transitionMode, "transitionMode cannot be null.");
+		return this;
+	}
+
+	/**
+	 * Sets which matches are reported. Defaults to {@link MatchKind#ALL}.
+	 *
+	 * @param matchKind the match kind
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withMatchKind(MatchKind matchKind) {
+		this.matchKind = Objects.requireNonNull(matchKind, "matchKind cannot be null.");
+		return this;
+	}
+
+	/**
+	 * Sets how the case of keywords and input is folded. Defaults to
+	 * {@link CaseFolding#NONE}. Input is folded as it is scanned, with a
+	 * lookup table, and match offsets refer to the input as given. Keywords 
+	 * that fold to the same string are reported as the first of them.
+	 *
+	 * @param caseFolding the case folding
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withCaseFolding(CaseFolding caseFolding) {
+		this.caseFolding = Objects.requireNonNull(caseFolding, "caseFolding cannot be null.");
+		return this;
+	}
+
+	/**
+	 * Sets if keywords are normalized to Unicode NFKC before being folded, so 
+	 * that, for example, the keyword {@code "\uFB01le"} (with a ligature) 
+	 * matches {@code "file"}. Input is not normalized. Defaults to false.
+	 *
+	 * @param normalizedKeywords true to normalize keywords
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withNormalizedKeywords(boolean normalizedKeywords) {
+		this.normalizedKeywords = normalizedKeywords;
+		return this;
+	}
+
+	/**
+	 * Only reports whole-word matches: matches that are neither preceded nor
+	 * followed by a word char. Other matches are rejected while the input is
+	 * scanned; no match is reported at an offset followed by a word char, 
+	 * without its output chain being walked. Defaults to null, matches can be
+	 * anywhere.
+	 *
+	 * @param wordChars tests if a char is a word char, for example 
+	 *        {@code Character::isLetterOrDigit}, or null to report matches anywhere
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withWordBoundaries(IntPredicate wordChars) {
+		this.wordChars = wordChars;
+		return this;
+	}
+
+	/**
+	 * Sets where the compiled tables are stored. Defaults to 
+	 * {@link TableStorage#HEAP}.
+	 *
+	 * @param tableStorage the table storage
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withTableStorage(TableStorage tableStorage) {
+		this.tableStorage = Objects.requireNonNull(tableStorage, "tableStorage cannot be null.");
+		return this;
+	}
+
+	/**
+	 * Builds the trie, the failure function and dense tables with the given 
+	 * pool, one level of the trie at a time, rather than in the calling thread.
+	 * The keywords are sorted first, so that the trie is laid out in bulk. The
+	 * state machine built is the same either way. Defaults to null.
+	 *
+	 * @param constructionPool the pool to build with, or null to build in the
+	 *        calling thread
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withConstructionPool(ForkJoinPool constructionPool) {
+		this.constructionPool = constructionPool;
+		return this;
+	}
+
+	/**
+	 * Sets whether chars that cannot start a match are skipped while the 
+	 * state machine is in its root state. Defaults to {@link Prefilter#AUTO}.
+	 * State machines read from their binary format use AUTO.
+	 *
+	 * @param prefilter whether to prefilter the input
+	 * @return this builder
+	 */
+	public CompiledAhoCorasickBuilder withPrefilter(Prefilter prefilter) {
+		this.prefilter = Objects.requireNonNull(prefilter, "prefilter cannot be null.");
+		return this;
+	}
+
+	/**
+	 * Sets if equivalent states are merged, once the keyword trie and its 
+	 * failure function are built, so that suffixes shared by keywords, as in
+	 * {@code "shop1.example.com"} and {@code "shop2.example.com"}, are stored
+	 * once. Only states of the same depth can be equivalent, since the 
+	 * length of each keyword is reported. Defaults to false.
+	 *
+	 * <p>The outputs of a minimized state machine only identify the length 
+	 * of their keywords, so the keyword of each match is looked up from the 
+	 * matched input, in a hash table of the keywords, and minimized state
+	 * machines cannot stream. The state counts before and after are reported
+	 * by {@link AutomatonStatistics}.
+	 *
+	 * @param minimization true to merge equivalent states
+	 * @return this builder
+	 * @see AutomatonStatistics#getTrieStateCount()
+	 */
+	public CompiledAhoCorasickBuilder withMinimization(boolean minimization) {
+		this.minimization = minimization;
+		return this;
+	}
+
+	/**
+	 * Builds a state machine.
+	 *
+	 * @return a new CompiledAhoCorasick
+	 * @throws IllegalStateException if minimization is combined with 
+	 *         {@link TransitionMode#GOTO_FAILURE}, whose double-array places 
+	 *         every state under a single parent
+	 */
+	public CompiledAhoCorasick build() {
+		if (minimization && transitionMode == TransitionMode.GOTO_FAILURE) {
+			throw new IllegalStateException("minimization requires a transition mode other than GOTO_FAILURE");
+		}
+		final String[] keywordArray = AbstractAhoCorasick.toArray(keywords);
+		final Object[] payloads = AbstractAhoCorasick.payloads(keywordArray, keywordPayloads);
+		final KeywordFolding folding = KeywordFolding.of(caseFolding, normalizedKeywords);
+		final Compilation compilation = compile(folding.fold(keywordArray));
+		final WordBoundaries boundaries = (wordChars == null) ? null : WordBoundaries.of(wordChars);
+		final CompiledAhoCorasick ahoCorasick = new CompiledAhoCorasick(keywords, keywordArray, payloads, matchKind,
+				folding, boundaries, compilation.transitions,
+				new ArrayOutputTable(compilation.keywordIds, compilation.outputLinks, compilation.depths),
+				compilation.statistics, prefilter);
+		return (tableStorage == TableStorage.DIRECT) ? toDirect(ahoCorasick, prefilter) : ahoCorasick;
+	}
+
+	/*
+	 * Moves the tables of the given state machine to a direct buffer, in the 
+	 * binary format, and matches with them in place, prefiltering as given.
+	 */
+	private static CompiledAhoCorasick toDirect(CompiledAhoCorasick ahoCorasick, Prefilter prefilter) {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ahoCorasick.writeTo(out);
+			final byte[] bytes = out.toByteArray();
+			final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			// through Buffer, since ByteBuffer.flip() does not exist on Java 8
+			((Buffer) direct.put(bytes)).flip();
+			return new CompiledAhoCorasick(ahoCorasick.keywordSet, ahoCorasick.keywords, ahoCorasick.payloads,
+					ahoCorasick.matchKind, ahoCorasick.folding, ahoCorasick.boundaries,
+					AutomatonFormat.read(direct, true), prefilter);
+		} catch (IOException e) {
+			// in memory
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Builds a state machine whose transitions consume the UTF-8 encoding of
+	 * the keywords, one byte at a time.
+	 *
+	 * @return a new Utf8AhoCorasick
+	 * @throws IllegalStateException if the match kind is not {@link MatchKind#ALL},
+	 *         if keywords are folded, if only whole words are matched, or if
+	 *         the state machine is minimized
+	 */
+	public Utf8AhoCorasick buildUtf8() {
+		if (matchKind != MatchKind.ALL) {
+			throw new IllegalStateException("UTF-8 matching requires MatchKind.ALL, not " + matchKind);
+		}
+		if (caseFolding != CaseFolding.NONE || normalizedKeywords) {
+			throw new IllegalStateException("UTF-8 matching does not fold keywords");
+		}
+		if (wordChars != null) {
+			throw new IllegalStateException("UTF-8 matching does not support word boundaries");
+		}
+		if (minimization) {
+			throw new IllegalStateException("UTF-8 matching does not support minimization");
+		}
+		final String[] keywordArray = AbstractAhoCorasick.toArray(keywords);
+		final Object[] payloads = AbstractAhoCorasick.payloads(keywordArray, keywordPayloads);
+		// each byte of the encoded keywords becomes a char in [0, 255]
+		final String[] encodedKeywords = new String[keywordArray.length];
+		for (int id = 0; id < keywordArray.length; id++) {
+			encodedKeywords[id] = new String(keywordArray[id].getBytes(StandardCharsets.UTF_8),
+					StandardCharsets.ISO_8859_1);
+		}
+		final Compilation compilation = compile(encodedKeywords);
+		return new Utf8AhoCorasick(keywords, keywordArray, encodedKeywords, payloads, compilation.transitions,
+				compilation.keywordIds, compilation.outputLinks, compilation.statistics);
+	}
+
+	/*
+	 * Builds the transition and output functions for the given keywords.
+	 */
+	private Compilation compile(String[] keywordArray) {
+		final long started = System.nanoTime();
+		final KeywordTrie keywordTrie = KeywordTrie.build(keywordArray, constructionPool);
+		final KeywordTrie trie = minimization ? keywordTrie.minimize() : keywordTrie;
+		final DfaBuilder dfa = new DfaBuilder(trie, constructionPool);
+
+		final Compilation compilation = new Compilation();
+		final TransitionMode mode = resolve(transitionMode, dfa);
+		compilation.keywordIds = trie.keywordIds;
+		compilation.outputLinks = trie.outputLinks;
+		compilation.depths = trie.depth;
+		switch (mode) {
+		case DENSE:
+			compilation.transitions = dfa.dense();
+			break;
+		case SPARSE:
+			compilation.transitions = dfa.sparse();
+			break;
+		case ADAPTIVE:
+			compilation.transitions = AdaptiveTransitions.of(trie, dfa.classes(), dfa.alphabetSize());
+			break;
+		default:
+			final DoubleArrayBuilder doubleArray = new DoubleArrayBuilder(trie).build();
+			compilation.transitions = new DoubleArrayTransitions(doubleArray.compiledBase,
+					doubleArray.compiledCheck, doubleArray.compiledFail);
+			compilation.keywordIds = doubleArray.compiledKeywordIds;
+			compilation.outputLinks = doubleArray.compiledOutputLinks;
+			compilation.depths = doubleArray.compiledDepths;
+		}
+
+		long outputBytes = 4L * (compilation.keywordIds.length + compilation.outputLinks.length 
+				+ compilation.depths.length);
+		if (trie != keywordTrie) {
+			outputBytes += KeywordIndex.sizeInBytes(keywordArray.length);
+		}
+		compilation.statistics = new AutomatonStatistics(keywordArray.length, trie.size, keywordTrie.size,
+				dfa.alphabetSize(), mode, compilation.transitions.sizeInBytes(), outputBytes,
+				dfa.denseSizeInBytes(), compilation.transitions.layoutCounts(), 
+				compilation.transitions.transitionCount(), AutomatonStatistics.keywordBytes(keywordArray), 
+				System.nanoTime() - started);
+		return compilation;
+	}
+
+	/*
+	 * Picks a dense table for small alphabets, as long as it fits in an array.
+	 */
+	private static TransitionMode resolve(TransitionMode transitionMode, DfaBuilder dfa) {
+		if (transitionMode != TransitionMode.DETERMINISTIC) {
+			return transitionMode;
+		}
+		return (dfa.alphabetSize() <= DENSE_ALPHABET_LIMIT && dfa.canBuildDense())
+				? TransitionMode.DENSE : TransitionMode.SPARSE;
+	}
+
+	/*
+	 * The transition and output functions of a state machine.
+	 */
+	private static final class Compilation {
+		TransitionTable transitions;
+		int[] keywordIds;
+		int[] outputLinks;
+		int[] depths;
+		AutomatonStatistics statistics;
+	}
+}
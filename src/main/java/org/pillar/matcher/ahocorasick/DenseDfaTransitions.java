@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A deterministic transition function stored in a dense table with one row per
+ * state and one column per keyword character, plus a column shared by every
+ * other character. Consuming a character is a lookup of its column, in the two
+ * levels of a {@link CharClasses} table, and one lookup of the dense table.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see DfaBuilder
+ */
+final class DenseDfaTransitions extends TransitionTable {
+	// high byte -> offset of its page in classes
+	private final char[] pages;
+	// character -> column, in pages of 256 chars
+	private final char[] classes;
+	// the number of columns of each row
+	private final int columnCount;
+	// the next state of state s for column c is at s * columnCount + c
+	private final int[] table;
+
+	DenseDfaTransitions(char[] pages, char[] classes, int columnCount, int[] table) {
+		this.pages = pages;
+		this.classes = classes;
+		this.columnCount = columnCount;
+		this.table = table;
+	}
+
+	@Override
+	int next(int state, char character) {
+		final int column = classes[pages[character >>> CharClasses.PAGE_BITS] + (character & CharClasses.PAGE_MASK)];
+		return table[state * columnCount + column];
+	}
+
+	@Override
+	int stateCount() {
+		return table.length / columnCount;
+	}
+
+	@Override
+	long transitionCount() {
+		return table.length;
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 2L * (pages.length + classes.length) + 4L * table.length;
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeChars(out, pages);
+		AutomatonFormat.writeChars(out, classes);
+		out.writeInt(columnCount);
+		AutomatonFormat.writeInts(out, table);
+	}
+}
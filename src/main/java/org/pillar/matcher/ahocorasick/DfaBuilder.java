@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Resolves every failure transition of a {@link KeywordTrie} into a
+ * deterministic transition function. The row of each state is the row of its
+ * failure state, overridden by its own goto transitions. Since the trie is
+ * numbered in breadth-first order, the failure state's row is always built
+ * first. States keep their trie numbering. Dense rows of the same depth are
+ * independent, and can be built in parallel.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class DfaBuilder {
+	// the largest array the JVM reliably allocates
+	private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+	private final KeywordTrie trie;
+	// the pool to build dense rows with, or null
+	private final ForkJoinPool pool;
+	// character -> column, column 0 is shared by the characters of no keyword
+	private final char[] columns = new char[Character.MAX_VALUE + 1];
+	private final int columnCount;
+	// the columns, as looked up while matching
+	private final CharClasses classes;
+
+	DfaBuilder(KeywordTrie trie) {
+		this(trie, null);
+	}
+
+	DfaBuilder(KeywordTrie trie, ForkJoinPool pool) {
+		this.trie = trie;
+		this.pool = pool;
+		final boolean[] used = new boolean[Character.MAX_VALUE + 1];
+		for (char label : trie.childLabels) {
+			used[label] = true;
+		}
+		int column = 0;
+		for (int character = 0; character <= Character.MAX_VALUE; character++) {
+			if (used[character] && column < Character.MAX_VALUE) {
+				columns[character] = (char) ++column;
+			}
+		}
+		this.columnCount = column + 1;
+		this.classes = CharClasses.of(columns);
+	}
+
+	/**
+	 * Returns the number of columns of a dense table, which is the number of
+	 * distinct keyword characters plus one.
+	 *
+	 * @return the alphabet size
+	 */
+	int alphabetSize() {
+		return columnCount;
+	}
+
+	/**
+	 * Returns the column of every character.
+	 *
+	 * @return the columns of a dense table
+	 */
+	CharClasses classes() {
+		return classes;
+	}
+
+	/**
+	 * Returns the number of bytes a dense table would hold.
+	 *
+	 * @return the size of a dense table in bytes
+	 */
+	long denseSizeInBytes() {
+		return classes.sizeInBytes() + 4L * trie.size * columnCount;
+	}
+
+	/**
+	 * Returns if a dense table fits in a single array. Every character must
+	 * also have a column, which excludes keyword sets using all 65536 chars.
+	 *
+	 * @return true if {@link #dense()} can be called
+	 */
+	boolean canBuildDense() {
+		return columnCount <= Character.MAX_VALUE && (long) trie.size * columnCount <= MAX_ARRAY_LENGTH;
+	}
+
+	/**
+	 * Builds a dense table.
+	 *
+	 * @return the dense transition function
+	 */
+	DenseDfaTransitions dense() {
+		if (!canBuildDense()) {
+			throw new IllegalStateException("a dense table for " + trie.size + " states and "
+					+ columnCount + " characters is too large");
+		}
+		final int[] table = new int[trie.size * columnCount];
+		if (pool == null) {
+			for (int node = 0; node < trie.size; node++) {
+				denseRow(table, node);
+			}
+		} else {
+			for (int level = 0; level + 1 < trie.levelStarts.length; level++) {
+				KeywordTrie.forEach(pool, trie.levelStarts[level], trie.levelStarts[level + 1], 
+						node -> denseRow(table, node));
+			}
+		}
+		return new DenseDfaTransitions(classes.pages, classes.classes, columnCount, table);
+	}
+
+	/*
+	 * Fills the row of the given node, once the row of its failure state is.
+	 */
+	private void denseRow(int[] table, int node) {
+		final int row = node * columnCount;
+		if (node != KeywordTrie.ROOT) {
+			System.arraycopy(table, trie.fail[node] * columnCount, table, row, columnCount);
+		}
+		for (int e = trie.childStart[node]; e < trie.childStart[node + 1]; e++) {
+			table[row + columns[trie.childLabels[e]]] = trie.childTargets[e];
+		}
+	}
+
+	/**
+	 * Builds sparse rows.
+	 *
+	 * @return the sparse transition function
+	 */
+	SparseDfaTransitions sparse() {
+		final int rootChildren = trie.childCount(KeywordTrie.ROOT);
+		final int[] rootRow = new int[(rootChildren == 0) ? 0
+				: trie.childLabels[trie.childStart[KeywordTrie.ROOT] + rootChildren - 1] + 1];
+		for (int e = trie.childStart[KeywordTrie.ROOT]; e < trie.childStart[KeywordTrie.ROOT + 1]; e++) {
+			rootRow[trie.childLabels[e]] = trie.childTargets[e];
+		}
+
+		final int[] rowStart = new int[trie.size + 1];
+		char[] labels = new char[Math.max(16, trie.childLabels.length)];
+		int[] targets = new int[labels.length];
+		int length = 0;
+		// the root's own row is implicit
+		rowStart[1] = 0;
+		for (int node = 1; node < trie.size; node++) {
+			rowStart[node] = length;
+			final int failure = trie.fail[node];
+			final int inheritedEnd = (failure == KeywordTrie.ROOT) ? 0 : rowStart[failure + 1];
+			int inherited = (failure == KeywordTrie.ROOT) ? 0 : rowStart[failure];
+			int child = trie.childStart[node];
+			final int childEnd = trie.childStart[node + 1];
+
+			final long required = (long) length + (inheritedEnd - inherited) + (childEnd - child);
+			if (required > labels.length) {
+				if (required > MAX_ARRAY_LENGTH) {
+					throw new IllegalStateException("sparse rows for " + trie.size + " states are too large");
+				}
+				final int capacity = (int) Math.min(MAX_ARRAY_LENGTH, Math.max(required, labels.length * 2L));
+				labels = Arrays.copyOf(labels, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+			}
+			// merge the failure state's row with this state's goto transitions
+			while (inherited < inheritedEnd || child < childEnd) {
+				final char inheritedLabel = (inherited < inheritedEnd) ? labels[inherited] : Character.MAX_VALUE;
+				final char childLabel = (child < childEnd) ? trie.childLabels[child] : Character.MAX_VALUE;
+				if (child < childEnd && (inherited == inheritedEnd || childLabel <= inheritedLabel)) {
+					if (inherited < inheritedEnd && childLabel == inheritedLabel) {
+						inherited++;
+					}
+					labels[length] = childLabel;
+					targets[length++] = trie.childTargets[child++];
+				} else {
+					labels[length] = inheritedLabel;
+					targets[length++] = targets[inherited++];
+				}
+			}
+			rowStart[node + 1] = length;
+		}
+		return new SparseDfaTransitions(rootRow, rowStart, Arrays.copyOf(labels, length), Arrays.copyOf(targets, length));
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Arrays;
+
+/**
+ * Lays out the goto function of a {@link KeywordTrie} in a double-array. The
+ * child of state {@code s} for character {@code c} is state
+ * {@code t = base[s] + c + 1}, provided that {@code check[t] == s}.
+ *
+ * <p>Every other per-node array of the trie is remapped to the resulting state
+ * numbering.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class DoubleArrayBuilder {
+	// the value of check for a free slot
+	private static final int FREE = -1;
+	// the minimum search window
+	private static final int MIN_SEARCH_WINDOW = 1024;
+
+	private final KeywordTrie trie;
+	// trie node -> double-array state
+	private final int[] states;
+	private int[] base;
+	private int[] check;
+	// the first slot that may be free, slots 0 and 1 are never used
+	private int nextCheckPosition = 2;
+	// one past the highest used slot
+	private int size = 1;
+	// how far behind the highest used slot a base is searched for; older free
+	// slots are given up to keep the construction linear
+	private final int searchWindow;
+
+	int[] compiledBase;
+	int[] compiledCheck;
+	int[] compiledFail;
+	int[] compiledKeywordIds;
+	int[] compiledOutputLinks;
+	int[] compiledDepths;
+
+	DoubleArrayBuilder(KeywordTrie trie) {
+		this.trie = trie;
+		this.states = new int[trie.size];
+		final int capacity = Math.max(1024, trie.size * 2);
+		this.base = new int[capacity];
+		this.check = new int[capacity];
+		Arrays.fill(check, FREE);
+
+		// children spread over a wide range of characters need a wider window
+		int widestSpan = 0;
+		for (int node = 0; node < trie.size; node++) {
+			final int first = trie.childStart[node];
+			final int last = trie.childStart[node + 1];
+			if (first < last) {
+				widestSpan = Math.max(widestSpan, trie.childLabels[last - 1] - trie.childLabels[first] + 1);
+			}
+		}
+		this.searchWindow = Math.max(MIN_SEARCH_WINDOW, widestSpan * 2);
+	}
+
+	/**
+	 * Places every node of the trie and remaps the failure and output functions.
+	 *
+	 * @return this builder
+	 */
+	DoubleArrayBuilder build() {
+		states[KeywordTrie.ROOT] = 0;
+		check[0] = 0;
+		// breadth-first order, so every parent is placed before its children
+		for (int node = 0; node < trie.size; node++) {
+			place(node);
+		}
+
+		compiledBase = Arrays.copyOf(base, size);
+		compiledCheck = Arrays.copyOf(check, size);
+		compiledFail = new int[size];
+		compiledKeywordIds = new int[size];
+		compiledOutputLinks = new int[size];
+		compiledDepths = new int[size];
+		Arrays.fill(compiledKeywordIds, KeywordTrie.NONE);
+		Arrays.fill(compiledOutputLinks, KeywordTrie.NONE);
+		for (int node = 0; node < trie.size; node++) {
+			final int state = states[node];
+			compiledFail[state] = states[trie.fail[node]];
+			compiledKeywordIds[state] = trie.keywordIds[node];
+			compiledDepths[state] = trie.depth[node];
+			final int outputLink = trie.outputLinks[node];
+			compiledOutputLinks[state] = (outputLink == KeywordTrie.NONE) ? KeywordTrie.NONE : states[outputLink];
+		}
+		return this;
+	}
+
+	/*
+	 * Finds a base for the children of the given node and claims their slots.
+	 */
+	private void place(int node) {
+		final int first = trie.childStart[node];
+		final int last = trie.childStart[node + 1];
+		if (first == last) {
+			// a leaf, no slot will ever be checked against it
+			return;
+		}
+		final int state = states[node];
+		final int firstCode = trie.childLabels[first] + 1;
+
+		nextCheckPosition = Math.max(nextCheckPosition, size - searchWindow);
+		final int start = Math.max(nextCheckPosition, firstCode + 1);
+		boolean firstFree = (start == nextCheckPosition);
+		search:
+		for (int position = start;; position++) {
+			ensureCapacity(position + 1);
+			if (check[position] != FREE) {
+				continue;
+			}
+			if (firstFree) {
+				// every slot before this one is taken
+				firstFree = false;
+				nextCheckPosition = position;
+			}
+			final int candidate = position - firstCode;
+			for (int e = first + 1; e < last; e++) {
+				final int slot = candidate + trie.childLabels[e] + 1;
+				ensureCapacity(slot + 1);
+				if (check[slot] != FREE) {
+					continue search;
+				}
+			}
+			base[state] = candidate;
+			break;
+		}
+
+		for (int e = first; e < last; e++) {
+			final int slot = base[state] + trie.childLabels[e] + 1;
+			check[slot] = state;
+			states[trie.childTargets[e]] = slot;
+			size = Math.max(size, slot + 1);
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > base.length) {
+			final int oldLength = base.length;
+			final int newLength = Math.max(capacity, oldLength + (oldLength >> 1));
+			base = Arrays.copyOf(base, newLength);
+			check = Arrays.copyOf(check, newLength);
+			Arrays.fill(check, oldLength, newLength, FREE);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A goto function stored in a double-array, completed by a failure function.
+ * Consuming a character may follow several failure transitions.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see DoubleArrayBuilder
+ */
+final class DoubleArrayTransitions extends TransitionTable {
+	// the double-array goto function
+	private final int[] base;
+	private final int[] check;
+	// the failure function
+	private final int[] fail;
+
+	DoubleArrayTransitions(int[] base, int[] check, int[] fail) {
+		this.base = base;
+		this.check = check;
+		this.fail = fail;
+	}
+
+	@Override
+	int next(int state, char character) {
+		final int code = character + 1;
+		for (;;) {
+			final int target = base[state] + code;
+			if (target < check.length && check[target] == state) {
+				return target;
+			}
+			if (state == 0) {
+				return 0;
+			}
+			state = fail[state];
+		}
+	}
+
+	@Override
+	int stateCount() {
+		return base.length;
+	}
+
+	@Override
+	long transitionCount() {
+		// every used slot but the root's
+		long count = 0;
+		for (int slot = 1; slot < check.length; slot++) {
+			if (check[slot] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 3L * 4 * base.length;
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, base);
+		AutomatonFormat.writeInts(out, check);
+		AutomatonFormat.writeInts(out, fail);
+	}
+}
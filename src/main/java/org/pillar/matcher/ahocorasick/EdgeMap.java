@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * The goto function of a trie whose states are added and removed, as a 
+ * linear-probing hash table from {@code (state, char)} to the next state. 
+ * Removals shift the following entries back rather than leaving tombstones,
+ * so lookups stay short however often the trie changes. The table is kept in
+ * {@link ChunkedArray}s, so that a copy only costs the chunks changed after it.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class EdgeMap {
+	// marks an empty slot
+	private static final long EMPTY = -1L;
+
+	private ChunkedArray.Longs keys;
+	private ChunkedArray.Ints values;
+	// the number of slots, a power of two, minus one
+	private int mask;
+	private int count;
+
+	EdgeMap(int expected) {
+		allocate(Integer.highestOneBit(Math.max(16, expected) * 2 - 1));
+	}
+
+	private EdgeMap(EdgeMap other) {
+		keys = other.keys.copy();
+		values = other.values.copy();
+		mask = other.mask;
+		count = other.count;
+	}
+
+	/**
+	 * Returns the state reached from the given state with the given char.
+	 *
+	 * @param state a state
+	 * @param label the input symbol
+	 * @return the next state, or {@link AbstractAhoCorasick#NONE}
+	 */
+	int get(int state, char label) {
+		final long key = key(state, label);
+		for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+			final long current = keys.get(slot);
+			if (current == key) {
+				return values.get(slot);
+			}
+			if (current == EMPTY) {
+				return AbstractAhoCorasick.NONE;
+			}
+		}
+	}
+
+	/**
+	 * Adds a transition, which must not exist yet.
+	 *
+	 * @param state a state
+	 * @param label the input symbol
+	 * @param target the next state
+	 */
+	void put(int state, char label, int target) {
+		if ((count + 1) * 2 > mask + 1) {
+			resize((mask + 1) * 2);
+		}
+		insert(key(state, label), target);
+	}
+
+	/**
+	 * Removes a transition, if it exists.
+	 *
+	 * @param state a state
+	 * @param label the input symbol
+	 */
+	void remove(int state, char label) {
+		final long key = key(state, label);
+		int slot = hash(key) & mask;
+		while (keys.get(slot) != key) {
+			if (keys.get(slot) == EMPTY) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		// shift back every following entry that would not be found past the hole
+		int hole = slot;
+		for (slot = (slot + 1) & mask; keys.get(slot) != EMPTY; slot = (slot + 1) & mask) {
+			final int home = hash(keys.get(slot)) & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				keys.set(hole, keys.get(slot));
+				values.set(hole, values.get(slot));
+				hole = slot;
+			}
+		}
+		keys.set(hole, EMPTY);
+		count--;
+	}
+
+	/**
+	 * Returns the number of transitions.
+	 *
+	 * @return the number of transitions
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the size of the table.
+	 *
+	 * @return the size of the table in bytes
+	 */
+	long sizeInBytes() {
+		return 8L * keys.length() + 4L * values.length();
+	}
+
+	/**
+	 * Returns a copy of this table, which changes to this one do not affect.
+	 * The copy shares the chunks of this table until this one changes them.
+	 *
+	 * @return a copy of this table
+	 */
+	EdgeMap copy() {
+		return new EdgeMap(this);
+	}
+
+	private void insert(long key, int value) {
+		int slot = hash(key) & mask;
+		while (keys.get(slot) != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		keys.set(slot, key);
+		values.set(slot, value);
+		count++;
+	}
+
+	private void allocate(int capacity) {
+		keys = new ChunkedArray.Longs(capacity, EMPTY);
+		values = new ChunkedArray.Ints(capacity);
+		mask = capacity - 1;
+		count = 0;
+	}
+
+	private void resize(int capacity) {
+		final ChunkedArray.Longs oldKeys = keys;
+		final ChunkedArray.Ints oldValues = values;
+		final int oldCapacity = mask + 1;
+		// copies still read the old chunks, which are left as they are
+		allocate(capacity);
+		for (int slot = 0; slot < oldCapacity; slot++) {
+			if (oldKeys.get(slot) != EMPTY) {
+				insert(oldKeys.get(slot), oldValues.get(slot));
+			}
+		}
+	}
+
+	private static long key(int state, char label) {
+		return ((long) state << 16) | label;
+	}
+
+	private static int hash(long key) {
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * A match found in a file, whose offsets are byte offsets from the start of the
+ * file and may exceed the range of an int.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see ParallelFileMatcher
+ */
+public final class FileMatchResult {
+	// the matched string
+	private final String matchedString;
+	// the id of the matched keyword
+	private final int keywordId;
+	// the payload of the matched keyword
+	private final Object payload;
+	// the offset of the first byte matched
+	private final long start;
+	// the offset after the last byte matched
+	private final long end;
+
+	FileMatchResult(String matchedString, int keywordId, Object payload, long start, long end) {
+		this.matchedString = matchedString;
+		this.keywordId = keywordId;
+		this.payload = payload;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Returns the matched keyword.
+	 * 
+	 * @return the matched string
+	 */
+	public String matchedString() {
+		return matchedString;
+	}
+
+	/**
+	 * Returns the id of the matched keyword.
+	 * 
+	 * @return the keyword id
+	 */
+	public int keywordId() {
+		return keywordId;
+	}
+
+	/**
+	 * Returns the payload attached to the matched keyword, if any.
+	 * 
+	 * @return the payload, or null if the keyword has none
+	 */
+	public Object payload() {
+		return payload;
+	}
+
+	/**
+	 * Returns the offset of the first byte matched.
+	 * 
+	 * @return the offset of the first byte matched
+	 */
+	public long start() {
+		return start;
+	}
+
+	/**
+	 * Returns the offset after the last byte matched.
+	 * 
+	 * @return the offset after the last byte matched
+	 */
+	public long end() {
+		return end;
+	}
+
+	@Override
+	public String toString() {
+		return "[matchedString = '" + matchedString + "', keywordId = " + keywordId + ", start = " + start + ", end = "
+				+ end + "]";
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.text.Normalizer;
+
+/**
+ * Folds keywords when a state machine is built, and input chars as they are
+ * scanned, with a table mapping each char to its folded char.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see CaseFolding
+ */
+final class KeywordFolding {
+	// compares chars as they are
+	static final KeywordFolding NONE = new KeywordFolding(CaseFolding.NONE, false);
+
+	final CaseFolding caseFolding;
+	// if keywords are normalized to NFKC before being folded
+	final boolean normalized;
+	// char -> folded char, or null if chars are not folded
+	private final char[] table;
+
+	private KeywordFolding(CaseFolding caseFolding, boolean normalized) {
+		this.caseFolding = caseFolding;
+		this.normalized = normalized;
+		this.table = table(caseFolding);
+	}
+
+	static KeywordFolding of(CaseFolding caseFolding, boolean normalized) {
+		return (caseFolding == CaseFolding.NONE && !normalized) ? NONE : new KeywordFolding(caseFolding, normalized);
+	}
+
+	/**
+	 * Returns the folded char of the given char.
+	 *
+	 * @param character an input char
+	 * @return the folded char
+	 */
+	char fold(char character) {
+		return (table == null) ? character : table[character];
+	}
+
+	/**
+	 * Returns the given keyword as the state machine matches it.
+	 *
+	 * @param keyword a keyword
+	 * @return the normalized and folded keyword
+	 */
+	String fold(String keyword) {
+		final String normalizedKeyword = normalized ? Normalizer.normalize(keyword, Normalizer.Form.NFKC) : keyword;
+		if (table == null) {
+			return normalizedKeyword;
+		}
+		final char[] characters = normalizedKeyword.toCharArray();
+		for (int i = 0; i < characters.length; i++) {
+			characters[i] = table[characters[i]];
+		}
+		return new String(characters);
+	}
+
+	/**
+	 * Returns every given keyword as the state machine matches it.
+	 *
+	 * @param keywords the keywords, indexed by id
+	 * @return the folded keywords, indexed by id
+	 */
+	String[] fold(String[] keywords) {
+		if (this == NONE) {
+			return keywords;
+		}
+		final String[] folded = new String[keywords.length];
+		for (int id = 0; id < keywords.length; id++) {
+			folded[id] = fold(keywords[id]);
+		}
+		return folded;
+	}
+
+	private static char[] table(CaseFolding caseFolding) {
+		switch (caseFolding) {
+		case ASCII:
+			return Tables.ASCII;
+		case SIMPLE:
+			return Tables.SIMPLE;
+		default:
+			return null;
+		}
+	}
+
+	/*
+	 * Built on first use.
+	 */
+	private static final class Tables {
+		static final char[] ASCII = new char[Character.MAX_VALUE + 1];
+		static final char[] SIMPLE = new char[Character.MAX_VALUE + 1];
+
+		static {
+			for (int c = 0; c <= Character.MAX_VALUE; c++) {
+				ASCII[c] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : (char) c;
+				SIMPLE[c] = Character.toLowerCase(Character.toUpperCase((char) c));
+			}
+		}
+	}
+}
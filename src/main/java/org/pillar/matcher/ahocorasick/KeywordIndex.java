@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Arrays;
+
+/**
+ * Finds the id of a keyword from a match in the input, for minimized state
+ * machines, whose outputs only identify the length of their keywords. The 
+ * folded keywords are kept in an open addressing hash table keyed by their
+ * {@link String#hashCode()}, which is computed over the folded input chars
+ * of a match.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see CompiledAhoCorasickBuilder#withMinimization(boolean)
+ */
+final class KeywordIndex {
+	private final KeywordFolding folding;
+	// the folded keywords, indexed by id
+	private final String[] foldedKeywords;
+	// keyword ids, or NONE for empty slots
+	private final int[] slots;
+
+	KeywordIndex(String[] keywords, KeywordFolding folding) {
+		this.folding = folding;
+		this.foldedKeywords = folding.fold(keywords);
+		this.slots = new int[capacity(keywords.length)];
+		Arrays.fill(slots, AbstractAhoCorasick.NONE);
+		final int mask = slots.length - 1;
+		for (int id = 0; id < foldedKeywords.length; id++) {
+			final String keyword = foldedKeywords[id];
+			int slot = mix(keyword.hashCode()) & mask;
+			while (slots[slot] != AbstractAhoCorasick.NONE && !keyword.equals(foldedKeywords[slots[slot]])) {
+				slot = (slot + 1) & mask;
+			}
+			// keywords that fold to the same string are reported as the first one
+			if (slots[slot] == AbstractAhoCorasick.NONE) {
+				slots[slot] = id;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes the hash table of the given number of 
+	 * keywords holds.
+	 *
+	 * @param keywordCount the number of keywords
+	 * @return the size of the hash table in bytes
+	 */
+	static long sizeInBytes(int keywordCount) {
+		return 4L * capacity(keywordCount);
+	}
+
+	/**
+	 * Returns the id of the keyword matched by the given range of the input.
+	 *
+	 * @param input the input
+	 * @param start the index of the first char of the match
+	 * @param end the index after the last char of the match
+	 * @return the keyword id, or {@link AbstractAhoCorasick#NONE} if no keyword matches
+	 */
+	int keywordId(String input, int start, int end) {
+		int hash = 0;
+		for (int index = start; index < end; index++) {
+			hash = 31 * hash + folding.fold(input.charAt(index));
+		}
+		final int mask = slots.length - 1;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			final int id = slots[slot];
+			if (id == AbstractAhoCorasick.NONE || matches(foldedKeywords[id], input, start, end)) {
+				return id;
+			}
+		}
+	}
+
+	/*
+	 * Returns if the given folded keyword is the given range of the input, once folded.
+	 */
+	private boolean matches(String keyword, String input, int start, int end) {
+		if (keyword.length() != end - start) {
+			return false;
+		}
+		for (int index = start; index < end; index++) {
+			if (keyword.charAt(index - start) != folding.fold(input.charAt(index))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * The smallest power of two that keeps the table at most half full.
+	 */
+	private static int capacity(int keywordCount) {
+		return Integer.highestOneBit(Math.max(8, keywordCount) * 2 - 1) << 1;
+	}
+
+	private static int mix(int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,692 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * A keyword trie with its Aho-Corasick failure and output functions, stored in
+ * primitive arrays. Nodes are numbered in breadth-first order, the root being
+ * node {@code 0}, and the children of each node are sorted by character.
+ *
+ * <p>A KeywordTrie is only used while building a compiled automaton. It is
+ * never exposed to, or retained by, the matchers.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class KeywordTrie {
+	// the root node
+	static final int ROOT = 0;
+	// marks the absence of a node or of a keyword
+	static final int NONE = -1;
+	// the smallest range of nodes split across threads
+	private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+	// the number of nodes
+	final int size;
+	// children of node n are childLabels/childTargets[childStart[n] .. childStart[n + 1])
+	final int[] childStart;
+	final char[] childLabels;
+	final int[] childTargets;
+	// the depth of each node
+	final int[] depth;
+	// the nodes of depth d are levelStarts[d] .. levelStarts[d + 1]
+	final int[] levelStarts;
+	// the failure function
+	final int[] fail;
+	// the id of the keyword ending at each node, or NONE
+	final int[] keywordIds;
+	// the closest node on the failure chain that has a keyword, or NONE
+	final int[] outputLinks;
+
+	private KeywordTrie(int size, int[] childStart, char[] childLabels, int[] childTargets, int[] depth) {
+		this.size = size;
+		this.childStart = childStart;
+		this.childLabels = childLabels;
+		this.childTargets = childTargets;
+		this.depth = depth;
+		this.fail = new int[size];
+		this.keywordIds = new int[size];
+		this.outputLinks = new int[size];
+		Arrays.fill(keywordIds, NONE);
+		final int levels = (size == 0) ? 0 : depth[size - 1] + 1;
+		this.levelStarts = new int[levels + 1];
+		for (int node = 0; node < size; node++) {
+			levelStarts[depth[node] + 1]++;
+		}
+		for (int level = 0; level < levels; level++) {
+			levelStarts[level + 1] += levelStarts[level];
+		}
+	}
+
+	/**
+	 * Returns the child of the given node for the given character, or
+	 * {@link #NONE} if there is no such child.
+	 *
+	 * @param node a node
+	 * @param character the transition character
+	 * @return the child node or NONE
+	 */
+	int child(int node, char character) {
+		int low = childStart[node];
+		int high = childStart[node + 1] - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final char label = childLabels[middle];
+			if (label < character) {
+				low = middle + 1;
+			} else if (label > character) {
+				high = middle - 1;
+			} else {
+				return childTargets[middle];
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Returns the number of children of the given node.
+	 *
+	 * @param node a node
+	 * @return the number of children
+	 */
+	int childCount(int node) {
+		return childStart[node + 1] - childStart[node];
+	}
+
+	/**
+	 * Builds the trie, failure and output functions for the given keywords.
+	 * The id of each keyword is its index in the given array.
+	 *
+	 * @param keywords the non-empty keywords
+	 * @return a new KeywordTrie
+	 */
+	static KeywordTrie build(String[] keywords) {
+		final EdgeTable edges = new EdgeTable(keywords.length * 4);
+		// per node (in creation order) data
+		int[] keywordAt = new int[16];
+		Arrays.fill(keywordAt, NONE);
+		int nodes = 1;
+
+		for (int id = 0; id < keywords.length; id++) {
+			final String keyword = keywords[id];
+			if (keyword.isEmpty()) {
+				throw new IllegalArgumentException("keywords cannot be empty");
+			}
+			int node = ROOT;
+			for (int i = 0; i < keyword.length(); i++) {
+				final char character = keyword.charAt(i);
+				int next = edges.get(node, character);
+				if (next == NONE) {
+					next = nodes++;
+					edges.put(node, character, next);
+				}
+				node = next;
+			}
+			if (node >= keywordAt.length) {
+				final int oldLength = keywordAt.length;
+				keywordAt = Arrays.copyOf(keywordAt, Math.max(node + 1, oldLength * 2));
+				Arrays.fill(keywordAt, oldLength, keywordAt.length, NONE);
+			}
+			if (keywordAt[node] == NONE) {
+				keywordAt[node] = id;
+			}
+		}
+
+		final KeywordTrie trie = renumber(nodes, edges);
+		for (int created = 0; created < nodes && created < keywordAt.length; created++) {
+			if (keywordAt[created] != NONE) {
+				trie.keywordIds[edges.order[created]] = keywordAt[created];
+			}
+		}
+		trie.constructFailure(null);
+		return trie;
+	}
+
+	/**
+	 * Builds the same trie, failure and output functions as 
+	 * {@link #build(String[])}, using the given pool. The keywords are sorted,
+	 * so that the children of every node of a level, and the keywords below 
+	 * each child, are contiguous runs that can be laid out in breadth-first 
+	 * order directly, one level at a time, each level split across threads.
+	 * Failure transitions only depend on shallower nodes, so they are also
+	 * constructed one level at a time.
+	 *
+	 * @param keywords the non-empty keywords
+	 * @param pool the pool to build with, or null to build in the calling thread
+	 * @return a new KeywordTrie
+	 */
+	static KeywordTrie build(String[] keywords, ForkJoinPool pool) {
+		if (pool == null) {
+			return build(keywords);
+		}
+		for (String keyword : keywords) {
+			if (keyword.isEmpty()) {
+				throw new IllegalArgumentException("keywords cannot be empty");
+			}
+		}
+		// equal keywords, which folding can produce, are ordered by id so that the first id wins
+		final Integer[] order = new Integer[keywords.length];
+		for (int id = 0; id < order.length; id++) {
+			order[id] = id;
+		}
+		pool.submit(() -> Arrays.parallelSort(order, (left, right) -> {
+			final int comparison = keywords[left].compareTo(keywords[right]);
+			return (comparison != 0) ? comparison : Integer.compare(left, right);
+		})).join();
+		final int[] sortedIds = new int[order.length];
+		final String[] sorted = new String[order.length];
+		for (int index = 0; index < order.length; index++) {
+			sortedIds[index] = order[index];
+			sorted[index] = keywords[sortedIds[index]];
+		}
+		return new LevelBuilder(sorted, sortedIds, pool).build();
+	}
+
+	/*
+	 * Runs the given action for every index in [from, to), split across the
+	 * given pool, or in the calling thread if it is null.
+	 */
+	static void forEach(ForkJoinPool pool, int from, int to, IntConsumer action) {
+		if (pool == null || to - from <= PARALLEL_THRESHOLD) {
+			for (int index = from; index < to; index++) {
+				action.accept(index);
+			}
+		} else {
+			pool.invoke(new RangeAction(from, to, action));
+		}
+	}
+
+	/*
+	 * Renumbers the nodes in breadth-first order and lays out their children
+	 * sorted by character.
+	 */
+	private static KeywordTrie renumber(int nodes, EdgeTable edges) {
+		final int edgeCount = nodes - 1;
+		// group the edges by parent node (creation order)
+		final int[] start = new int[nodes + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			start[edges.parents[e] + 1]++;
+		}
+		for (int n = 0; n < nodes; n++) {
+			start[n + 1] += start[n];
+		}
+		final int[] cursor = Arrays.copyOf(start, nodes);
+		final long[] grouped = new long[edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			// label in the high bits so that sorting orders by label
+			grouped[cursor[edges.parents[e]]++] = ((long) edges.labels[e] << 32) | edges.children[e];
+		}
+		for (int n = 0; n < nodes; n++) {
+			Arrays.sort(grouped, start[n], start[n + 1]);
+		}
+
+		// breadth-first numbering
+		final int[] order = new int[nodes];
+		final int[] queue = new int[nodes];
+		final int[] depth = new int[nodes];
+		final int[] childStart = new int[nodes + 1];
+		final char[] childLabels = new char[edgeCount];
+		final int[] childTargets = new int[edgeCount];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = ROOT;
+		order[ROOT] = ROOT;
+		int edge = 0;
+		while (head < tail) {
+			final int created = queue[head];
+			final int node = head++;
+			childStart[node] = edge;
+			for (int e = start[created]; e < start[created + 1]; e++) {
+				final int child = (int) grouped[e];
+				order[child] = tail;
+				depth[tail] = depth[node] + 1;
+				queue[tail++] = child;
+				childLabels[edge] = (char) (grouped[e] >>> 32);
+				childTargets[edge] = order[child];
+				edge++;
+			}
+		}
+		childStart[nodes] = edge;
+		edges.order = order;
+		return new KeywordTrie(nodes, childStart, childLabels, childTargets, depth);
+	}
+
+	/*
+	 * Constructs the failure and output functions. Nodes are visited in
+	 * breadth-first order, which is the node numbering; with a pool, the 
+	 * nodes of each level are split across threads.
+	 */
+	private void constructFailure(ForkJoinPool pool) {
+		fail[ROOT] = ROOT;
+		outputLinks[ROOT] = NONE;
+		if (pool == null) {
+			for (int node = 0; node < size; node++) {
+				constructFailure(node);
+			}
+		} else {
+			for (int level = 0; level + 1 < levelStarts.length; level++) {
+				forEach(pool, levelStarts[level], levelStarts[level + 1], this::constructFailure);
+			}
+		}
+	}
+
+	/*
+	 * Constructs the failure transitions and output links of the children of
+	 * the given node.
+	 */
+	private void constructFailure(int node) {
+		for (int e = childStart[node]; e < childStart[node + 1]; e++) {
+			final int child = childTargets[e];
+			fail[child] = (node == ROOT) ? ROOT : failureTarget(fail[node], childLabels[e]);
+			final int failure = fail[child];
+			outputLinks[child] = (keywordIds[failure] != NONE) ? failure : outputLinks[failure];
+		}
+	}
+
+	/**
+	 * Returns a state machine with the same transitions and outputs, in which
+	 * equivalent nodes are merged, so that suffixes shared by keywords become
+	 * shared nodes. Equivalent nodes have the same depth, either both end a
+	 * keyword or neither does, have equivalent failure nodes and equivalent
+	 * children for the same characters. They are found by partition
+	 * refinement, starting from a single class, until no class splits.
+	 *
+	 * <p>The result is a graph rather than a tree, numbered in breadth-first
+	 * order like a trie. A merged node keeps the keyword id of its first node,
+	 * so its outputs only identify the length of their keywords, which is
+	 * their depth.
+	 *
+	 * @return the minimized state machine, or this trie if no nodes are equivalent
+	 */
+	KeywordTrie minimize() {
+		int[] classes = new int[size];
+		int classCount = 1;
+		for (;;) {
+			final int[] refined = new int[size];
+			final int refinedCount = refine(classes, refined);
+			if (refinedCount == classCount) {
+				break;
+			}
+			classes = refined;
+			classCount = refinedCount;
+		}
+		if (classCount == size) {
+			return this;
+		}
+
+		// classes are numbered by first node, which keeps them in breadth-first order
+		final int[] firstNodes = new int[classCount];
+		int edgeCount = 0;
+		for (int node = 0, next = 0; next < classCount; node++) {
+			if (classes[node] == next) {
+				firstNodes[next++] = node;
+				edgeCount += childCount(node);
+			}
+		}
+		final int[] minimizedStart = new int[classCount + 1];
+		final char[] minimizedLabels = new char[edgeCount];
+		final int[] minimizedTargets = new int[edgeCount];
+		final int[] minimizedDepth = new int[classCount];
+		int edge = 0;
+		for (int state = 0; state < classCount; state++) {
+			final int node = firstNodes[state];
+			minimizedStart[state] = edge;
+			minimizedDepth[state] = depth[node];
+			for (int e = childStart[node]; e < childStart[node + 1]; e++) {
+				minimizedLabels[edge] = childLabels[e];
+				minimizedTargets[edge++] = classes[childTargets[e]];
+			}
+		}
+		minimizedStart[classCount] = edge;
+
+		final KeywordTrie minimized = new KeywordTrie(classCount, minimizedStart, minimizedLabels, minimizedTargets,
+				minimizedDepth);
+		for (int state = 0; state < classCount; state++) {
+			final int node = firstNodes[state];
+			minimized.fail[state] = classes[fail[node]];
+			minimized.keywordIds[state] = keywordIds[node];
+			minimized.outputLinks[state] = (outputLinks[node] == NONE) ? NONE : classes[outputLinks[node]];
+		}
+		return minimized;
+	}
+
+	/*
+	 * Splits the classes of the given partition by depth, by keyword, and by
+	 * the classes of the failure node and children of each node. The refined
+	 * classes are numbered by first node. Returns the number of refined
+	 * classes.
+	 */
+	private int refine(int[] classes, int[] refined) {
+		// nodes of distinct refined classes, in an open addressing hash table
+		final int[] slots = new int[Integer.highestOneBit(Math.max(16, size) * 2 - 1) << 1];
+		Arrays.fill(slots, NONE);
+		final int mask = slots.length - 1;
+		int count = 0;
+		for (int node = 0; node < size; node++) {
+			for (int slot = signature(classes, node) & mask;; slot = (slot + 1) & mask) {
+				final int other = slots[slot];
+				if (other == NONE) {
+					slots[slot] = node;
+					refined[node] = count++;
+					break;
+				}
+				if (isEquivalent(classes, node, other)) {
+					refined[node] = refined[other];
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Hashes what refines the class of the given node.
+	 */
+	private int signature(int[] classes, int node) {
+		int hash = classes[node];
+		hash = 31 * hash + classes[fail[node]];
+		hash = 31 * hash + depth[node];
+		hash = 31 * hash + ((keywordIds[node] != NONE) ? 1 : 0);
+		for (int e = childStart[node]; e < childStart[node + 1]; e++) {
+			hash = 31 * hash + childLabels[e];
+			hash = 31 * hash + classes[childTargets[e]];
+		}
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/*
+	 * Returns if the given nodes stay in the same class.
+	 */
+	private boolean isEquivalent(int[] classes, int node, int other) {
+		if (classes[node] != classes[other] || classes[fail[node]] != classes[fail[other]]
+				|| depth[node] != depth[other] || (keywordIds[node] != NONE) != (keywordIds[other] != NONE)
+				|| childCount(node) != childCount(other)) {
+			return false;
+		}
+		for (int e = childStart[node], o = childStart[other]; e < childStart[node + 1]; e++, o++) {
+			if (childLabels[e] != childLabels[o] || classes[childTargets[e]] != classes[childTargets[o]]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Lays out a trie one level at a time from sorted keywords. Each node of a
+	 * level covers the run of keywords it is a prefix of; the keywords ending
+	 * at it come first in the run, followed by the runs of its children.
+	 */
+	private static final class LevelBuilder {
+		private final String[] sorted;
+		private final int[] sortedIds;
+		private final ForkJoinPool pool;
+		private int[] childStart;
+		private char[] childLabels;
+		private int[] childTargets;
+		private int[] depth;
+		private int[] keywordAt;
+
+		LevelBuilder(String[] sorted, int[] sortedIds, ForkJoinPool pool) {
+			this.sorted = sorted;
+			this.sortedIds = sortedIds;
+			this.pool = pool;
+			final int capacity = Math.max(16, sorted.length * 2);
+			childStart = new int[capacity + 1];
+			childLabels = new char[capacity];
+			childTargets = new int[capacity];
+			depth = new int[capacity];
+			keywordAt = new int[capacity];
+		}
+
+		KeywordTrie build() {
+			// the runs of the nodes of the current level, and where their longer keywords start
+			int[] runStarts = { 0 };
+			int[] runEnds = { sorted.length };
+			int levelStart = ROOT;
+			int levelSize = 1;
+			for (int level = 0; levelSize > 0; level++) {
+				final int currentLevel = level;
+				final int[] starts = runStarts;
+				final int[] ends = runEnds;
+				final int base = levelStart;
+				final int[] longerStarts = new int[levelSize];
+				final int[] childCounts = new int[levelSize + 1];
+				ensureCapacity(base + levelSize);
+				forEach(pool, 0, levelSize, index -> {
+					final int node = base + index;
+					int start = starts[index];
+					depth[node] = currentLevel;
+					keywordAt[node] = NONE;
+					if (sorted[start].length() == currentLevel) {
+						keywordAt[node] = sortedIds[start];
+						while (start < ends[index] && sorted[start].length() == currentLevel) {
+							start++;
+						}
+					}
+					longerStarts[index] = start;
+					int count = 0;
+					for (int run = start; run < ends[index]; run = runEnd(run, ends[index], currentLevel)) {
+						count++;
+					}
+					childCounts[index + 1] = count;
+				});
+				for (int index = 0; index < levelSize; index++) {
+					childCounts[index + 1] += childCounts[index];
+				}
+
+				// the child of edge e is node e + 1
+				final int nextSize = childCounts[levelSize];
+				final int firstEdge = base + levelSize - 1;
+				final int[] nextStarts = new int[nextSize];
+				final int[] nextEnds = new int[nextSize];
+				ensureCapacity(base + levelSize + nextSize);
+				forEach(pool, 0, levelSize, index -> {
+					int edge = firstEdge + childCounts[index];
+					childStart[base + index] = edge;
+					for (int run = longerStarts[index]; run < ends[index];) {
+						final int end = runEnd(run, ends[index], currentLevel);
+						childLabels[edge] = sorted[run].charAt(currentLevel);
+						childTargets[edge] = edge + 1;
+						nextStarts[edge - firstEdge] = run;
+						nextEnds[edge - firstEdge] = end;
+						edge++;
+						run = end;
+					}
+				});
+				runStarts = nextStarts;
+				runEnds = nextEnds;
+				levelStart = base + levelSize;
+				levelSize = nextSize;
+			}
+
+			final int size = levelStart;
+			childStart[size] = size - 1;
+			final KeywordTrie trie = new KeywordTrie(size, Arrays.copyOf(childStart, size + 1),
+					Arrays.copyOf(childLabels, size - 1), Arrays.copyOf(childTargets, size - 1),
+					Arrays.copyOf(depth, size));
+			System.arraycopy(keywordAt, 0, trie.keywordIds, 0, size);
+			trie.constructFailure(pool);
+			return trie;
+		}
+
+		/*
+		 * Returns the end of the run of keywords starting at the given index
+		 * that share its char at the given position.
+		 */
+		private int runEnd(int start, int end, int position) {
+			final char label = sorted[start].charAt(position);
+			int run = start + 1;
+			while (run < end && sorted[run].charAt(position) == label) {
+				run++;
+			}
+			return run;
+		}
+
+		private void ensureCapacity(int nodes) {
+			if (nodes > depth.length) {
+				final int capacity = Math.max(nodes, depth.length * 2);
+				childStart = Arrays.copyOf(childStart, capacity + 1);
+				childLabels = Arrays.copyOf(childLabels, capacity);
+				childTargets = Arrays.copyOf(childTargets, capacity);
+				depth = Arrays.copyOf(depth, capacity);
+				keywordAt = Arrays.copyOf(keywordAt, capacity);
+			}
+		}
+	}
+
+	/*
+	 * Splits a range of indexes in halves until they are small enough to run
+	 * in one thread.
+	 */
+	private static final class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final IntConsumer action;
+
+		RangeAction(int from, int to, IntConsumer action) {
+			this.from = from;
+			this.to = to;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				for (int index = from; index < to; index++) {
+					action.accept(index);
+				}
+			} else {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new RangeAction(from, middle, action), new RangeAction(middle, to, action));
+			}
+		}
+	}
+
+	/*
+	 * Follows failure transitions from the given node until one can consume
+	 * the given character.
+	 */
+	private int failureTarget(int node, char character) {
+		for (;;) {
+			final int next = child(node, character);
+			if (next != NONE) {
+				return next;
+			}
+			if (node == ROOT) {
+				return ROOT;
+			}
+			node = fail[node];
+		}
+	}
+
+	/*
+	 * An open addressing hash table of (parent, character) -> child edges, also
+	 * recording each edge in creation order.
+	 */
+	private static final class EdgeTable {
+		private long[] keys;
+		private int[] values;
+		private int count;
+		// edges in creation order, the child of edge e is node e + 1
+		int[] parents;
+		char[] labels;
+		int[] children;
+		// creation order node -> breadth-first node, set once renumbered
+		int[] order;
+
+		EdgeTable(int expected) {
+			int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1);
+			keys = new long[capacity];
+			values = new int[capacity];
+			Arrays.fill(keys, -1L);
+			parents = new int[Math.max(16, expected)];
+			labels = new char[parents.length];
+			children = new int[parents.length];
+		}
+
+		int get(int parent, char label) {
+			final long key = key(parent, label);
+			final int mask = keys.length - 1;
+			for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+				final long current = keys[slot];
+				if (current == key) {
+					return values[slot];
+				}
+				if (current == -1L) {
+					return NONE;
+				}
+			}
+		}
+
+		void put(int parent, char label, int child) {
+			if ((count + 1) * 2 > keys.length) {
+				rehash();
+			}
+			insert(key(parent, label), child);
+			if (count > parents.length) {
+				parents = Arrays.copyOf(parents, parents.length * 2);
+				labels = Arrays.copyOf(labels, parents.length);
+				children = Arrays.copyOf(children, parents.length);
+			}
+			parents[count - 1] = parent;
+			labels[count - 1] = label;
+			children[count - 1] = child;
+		}
+
+		private void insert(long key, int value) {
+			final int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while (keys[slot] != -1L) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			values[slot] = value;
+			count++;
+		}
+
+		private void rehash() {
+			final long[] oldKeys = keys;
+			final int[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			Arrays.fill(keys, -1L);
+			count = 0;
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldKeys[slot] != -1L) {
+					insert(oldKeys[slot], oldValues[slot]);
+				}
+			}
+		}
+
+		private static long key(int parent, char label) {
+			return ((long) parent << 16) | label;
+		}
+
+		private static int hash(long key) {
+			final long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * Which matches an Aho-Corasick state machine reports. Matches that would be
+ * discarded are skipped while the input is walked, rather than produced and
+ * filtered afterwards.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public enum MatchKind {
+	/**
+	 * Every occurrence of every keyword, including overlapping ones. Matches 
+	 * are reported by end offset, and matches ending at the same offset from
+	 * the longest to the shortest.
+	 */
+	ALL,
+	/**
+	 * Non-overlapping matches. Of the matches starting at the leftmost offset,
+	 * the one of the keyword that comes first in iteration order is reported, 
+	 * then matching resumes at its end.
+	 */
+	LEFTMOST_FIRST,
+	/**
+	 * Non-overlapping matches. Of the matches starting at the leftmost offset,
+	 * the longest is reported, then matching resumes at its end.
+	 */
+	LEFTMOST_LONGEST
+}
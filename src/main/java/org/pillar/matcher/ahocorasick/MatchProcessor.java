@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A Reactive Streams {@link Processor} that matches the chunks of text it 
+ * subscribes to as one stream, keeping the state of the Aho-Corasick state 
+ * machine from one chunk to the next, and publishes a 
+ * {@link StreamMatchResult} for each match, with offsets counted in chars from
+ * the start of the stream. On Java 9 and later, 
+ * {@code org.reactivestreams.FlowAdapters} adapts it to 
+ * {@code java.util.concurrent.Flow}.
+ * 
+ * <p>Downstream demand is honoured without buffering input: a single chunk is
+ * requested at a time, and it is only scanned up to the next match that 
+ * cannot be published yet. The next chunk is requested once the current one
+ * is fully scanned. No thread is ever blocked; signals from upstream and 
+ * downstream are serialized, and the processor does its work in whichever
+ * thread signals it.
+ * 
+ * <p>A MatchProcessor supports a single subscriber, and is subscribed to a 
+ * single publisher. Upstream errors and completion are passed on once the 
+ * chunk being scanned is exhausted.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see AbstractAhoCorasick#newMatchProcessor()
+ */
+public final class MatchProcessor implements Processor<CharSequence, StreamMatchResult> {
+	private final AbstractAhoCorasick automaton;
+	// serializes the drain loop, counting the signals it missed
+	private final AtomicInteger wip = new AtomicInteger();
+	// the outstanding downstream demand
+	private final AtomicLong requested = new AtomicLong();
+
+	private final AtomicReference<Subscription> upstream = new AtomicReference<>();
+	private final AtomicReference<Subscriber<? super StreamMatchResult>> downstream = new AtomicReference<>();
+	// a chunk received, not yet picked up by the drain loop
+	private volatile CharSequence received;
+	private volatile boolean done;
+	private volatile Throwable error;
+	private volatile boolean cancelled;
+	// a request for a non-positive number of matches
+	private volatile IllegalArgumentException invalidRequest;
+
+	// only accessed by the drain loop
+	private CharSequence chunk = "";
+	private int index;
+	private int state = AbstractAhoCorasick.ROOT;
+	private int output = AbstractAhoCorasick.NONE;
+	// the number of chars scanned
+	private long position;
+	private boolean chunkRequested;
+	private boolean terminated;
+
+	MatchProcessor(AbstractAhoCorasick automaton) {
+		this.automaton = automaton;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super StreamMatchResult> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber cannot be null.");
+		if (downstream.compareAndSet(null, subscriber)) {
+			subscriber.onSubscribe(new Downstream());
+			drain();
+		} else {
+			subscriber.onSubscribe(new Subscription() {
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("a MatchProcessor supports a single subscriber"));
+		}
+	}
+
+	@Override
+	public void onSubscribe(Subscription subscription) {
+		Objects.requireNonNull(subscription, "subscription cannot be null.");
+		if (upstream.compareAndSet(null, subscription)) {
+			drain();
+		} else {
+			subscription.cancel();
+		}
+	}
+
+	@Override
+	public void onNext(CharSequence chars) {
+		received = Objects.requireNonNull(chars, "chars cannot be null.");
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		error = Objects.requireNonNull(throwable, "throwable cannot be null.");
+		done = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		done = true;
+		drain();
+	}
+
+	/*
+	 * Publishes matches while there is demand, scans input up to the next 
+	 * match and requests chunks, in a single thread at a time.
+	 */
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			final Subscriber<? super StreamMatchResult> subscriber = downstream.get();
+			final Subscription subscription = upstream.get();
+			if (subscriber != null && subscription != null && !terminated) {
+				drain(subscriber, subscription);
+			}
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void drain(Subscriber<? super StreamMatchResult> subscriber, Subscription subscription) {
+		long emitted = 0;
+		final long demand = requested.get();
+		for (;;) {
+			if (cancelled) {
+				terminated = true;
+				return;
+			}
+			if (invalidRequest != null) {
+				terminated = true;
+				subscription.cancel();
+				subscriber.onError(invalidRequest);
+				return;
+			}
+			if (output != AbstractAhoCorasick.NONE) {
+				if (emitted == demand) {
+					break;
+				}
+				final int keywordId = automaton.keywordId(output);
+				output = automaton.nextOutput(output);
+				emitted++;
+				subscriber.onNext(new StreamMatchResult(automaton.keyword(keywordId), keywordId, 
+						automaton.payload(keywordId), position - automaton.matchLength(keywordId), position));
+			} else if (index < chunk.length()) {
+				state = automaton.step(state, chunk.charAt(index++));
+				position++;
+				output = automaton.firstOutput(state);
+			} else if (received != null) {
+				chunk = received;
+				received = null;
+				index = 0;
+				chunkRequested = false;
+			} else if (done) {
+				terminated = true;
+				chunk = "";
+				if (error != null) {
+					subscriber.onError(error);
+				} else {
+					subscriber.onComplete();
+				}
+				return;
+			} else {
+				if (!chunkRequested) {
+					chunkRequested = true;
+					subscription.request(1);
+				}
+				break;
+			}
+		}
+		if (emitted != 0 && demand != Long.MAX_VALUE) {
+			requested.addAndGet(-emitted);
+		}
+	}
+
+	/*
+	 * The subscription of the downstream subscriber.
+	 */
+	private final class Downstream implements Subscription {
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("request must be positive, not " + n);
+			} else {
+				long current;
+				long next;
+				do {
+					current = requested.get();
+					next = (current + n < 0) ? Long.MAX_VALUE : current + n;
+				} while (!requested.compareAndSet(current, next));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			final Subscription subscription = upstream.get();
+			if (subscription != null) {
+				subscription.cancel();
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The output function of a compiled Aho-Corasick state machine, stored as the
+ * id of the keyword ending at each state and a link from each state to the
+ * closest state on its failure chain at which a keyword ends, along with the
+ * depth of each state, which bounds where the next match can start.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+abstract class OutputTable {
+	/**
+	 * Returns the first state of the output chain of the given state.
+	 *
+	 * @param state a state
+	 * @return the given state if a keyword ends at it, else its output link
+	 */
+	abstract int firstOutput(int state);
+
+	/**
+	 * Returns the next state of an output chain.
+	 *
+	 * @param output a state of an output chain
+	 * @return the next state of the chain, or {@link AbstractAhoCorasick#NONE}
+	 */
+	abstract int nextOutput(int output);
+
+	/**
+	 * Returns the id of the keyword ending at the given state of an output chain.
+	 *
+	 * @param output a state of an output chain
+	 * @return the keyword id
+	 */
+	abstract int keywordId(int output);
+
+	/**
+	 * Returns the length of the keyword prefix the given state represents.
+	 *
+	 * @param state a state
+	 * @return the depth of the state in the goto function
+	 */
+	abstract int depth(int state);
+
+	/**
+	 * Returns the approximate number of bytes held by this table.
+	 *
+	 * @return the size of this table in bytes
+	 */
+	abstract long sizeInBytes();
+
+	/**
+	 * Writes the keyword ids, the output links, then the depths.
+	 *
+	 * @param out the output to write to
+	 * @throws IOException if the output cannot be written to
+	 * @see AutomatonFormat
+	 */
+	abstract void write(DataOutputStream out) throws IOException;
+}
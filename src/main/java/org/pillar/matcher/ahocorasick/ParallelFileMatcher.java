@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.pillar.matcher.StreamMatchHandler;
+
+/**
+ * Matches large UTF-8 files by memory-mapping them, splitting them into chunks
+ * and scanning the chunks in parallel on a {@link ForkJoinPool}. Every chunk
+ * is scanned with the same {@link Utf8AhoCorasick}, which is immutable and 
+ * shared by every worker. 
+ * 
+ * <p>Each chunk is scanned from (longest keyword - 1) bytes before its start, 
+ * so that matches spanning the boundary with the previous chunk are found, and 
+ * only matches ending within the chunk are kept, so that none is reported twice.
+ * Matches are reported in the order a sequential scan would report them.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class ParallelFileMatcher {
+	/**
+	 * The default number of bytes in a chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private final Utf8AhoCorasick ahoCorasick;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	/**
+	 * Initializes a ParallelFileMatcher that scans chunks of
+	 * {@link #DEFAULT_CHUNK_SIZE} bytes on the common pool.
+	 * 
+	 * @param ahoCorasick the state machine to match with
+	 */
+	public ParallelFileMatcher(Utf8AhoCorasick ahoCorasick) {
+		this(ahoCorasick, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Initializes a ParallelFileMatcher.
+	 * 
+	 * @param ahoCorasick the state machine to match with
+	 * @param pool the pool to scan chunks on
+	 * @param chunkSize the number of bytes in a chunk
+	 */
+	public ParallelFileMatcher(Utf8AhoCorasick ahoCorasick, ForkJoinPool pool, int chunkSize) {
+		this.ahoCorasick = Objects.requireNonNull(ahoCorasick, "ahoCorasick cannot be null.");
+		this.pool = Objects.requireNonNull(pool, "pool cannot be null.");
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive");
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Matches the given file.
+	 * 
+	 * @param file the file to match
+	 * @return the matches, ordered by offset
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public List<FileMatchResult> match(Path file) throws IOException {
+		final List<FileMatchResult> matchResults = new ArrayList<>();
+		match(file, (keywordId, start, end) -> matchResults.add(new FileMatchResult(
+				ahoCorasick.getKeyword(keywordId), keywordId, ahoCorasick.getPayload(keywordId), start, end)));
+		return matchResults;
+	}
+
+	/**
+	 * Matches the given file and passes each match to the given handler, 
+	 * until the handler asks to stop. The handler is notified on the calling
+	 * thread, in offset order, as soon as the chunks before a match are done.
+	 * Once it stops, or matching fails, the chunks not scanned yet are 
+	 * cancelled, and this method returns after the chunks being scanned are
+	 * done.
+	 * 
+	 * @param file the file to match
+	 * @param handler the handler to notify of each match, with byte offsets into the file
+	 * @return true if the handler stopped matching
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public boolean match(Path file, StreamMatchHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final int overlap = ahoCorasick.maxKeywordByteLength() - 1;
+			final List<ChunkTask> tasks = new ArrayList<>();
+			try {
+				for (long chunkStart = 0; chunkStart < size; chunkStart += chunkSize) {
+					final ChunkTask task = new ChunkTask(channel, Math.max(0, chunkStart - overlap), chunkStart,
+							Math.min(size, chunkStart + chunkSize));
+					tasks.add(task);
+					pool.execute(task);
+				}
+
+				for (int i = 0; i < tasks.size(); i++) {
+					final ChunkMatches chunkMatches = join(tasks.get(i));
+					for (int m = 0; m < chunkMatches.size; m++) {
+						final long[] match = chunkMatches.matches;
+						if (!handler.onMatch((int) match[3 * m], match[3 * m + 1], match[3 * m + 2])) {
+							return true;
+						}
+					}
+				}
+				return false;
+			} finally {
+				// before the channel is closed
+				cancelAndAwait(tasks);
+			}
+		}
+	}
+
+	/*
+	 * Cancels the given tasks that have not started, and waits for the others
+	 * to finish, since cancelling does not interrupt a task that has started. 
+	 * Their results and failures are ignored.
+	 */
+	private static void cancelAndAwait(List<ChunkTask> tasks) {
+		for (ChunkTask task : tasks) {
+			task.cancel(false);
+		}
+		for (ChunkTask task : tasks) {
+			task.quietlyJoin();
+		}
+	}
+
+	private static ChunkMatches join(ForkJoinTask<ChunkMatches> task) throws IOException {
+		final ChunkMatches chunkMatches = task.join();
+		if (chunkMatches.failure != null) {
+			throw chunkMatches.failure;
+		}
+		return chunkMatches;
+	}
+
+	/*
+	 * Scans a chunk, from before its start when it overlaps the previous chunk.
+	 */
+	private final class ChunkTask extends RecursiveTask<ChunkMatches> {
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long scanStart;
+		private final long chunkStart;
+		private final long chunkEnd;
+
+		ChunkTask(FileChannel channel, long scanStart, long chunkStart, long chunkEnd) {
+			this.channel = channel;
+			this.scanStart = scanStart;
+			this.chunkStart = chunkStart;
+			this.chunkEnd = chunkEnd;
+		}
+
+		@Override
+		protected ChunkMatches compute() {
+			final ChunkMatches chunkMatches = new ChunkMatches();
+			final ByteBuffer region;
+			try {
+				region = channel.map(MapMode.READ_ONLY, scanStart, chunkEnd - scanStart);
+			} catch (IOException e) {
+				chunkMatches.failure = e;
+				return chunkMatches;
+			}
+			ahoCorasick.scan(AbstractAhoCorasick.ROOT, region, scanStart, chunkStart, chunkMatches);
+			return chunkMatches;
+		}
+	}
+
+	/*
+	 * The matches of a chunk, packed as (keyword id, start, end) triples.
+	 */
+	private static final class ChunkMatches implements StreamMatchHandler {
+		long[] matches = new long[48];
+		int size;
+		// set if the chunk could not be mapped
+		IOException failure;
+
+		@Override
+		public boolean onMatch(int keywordId, long start, long end) {
+			if (3 * size + 3 > matches.length) {
+				matches = Arrays.copyOf(matches, matches.length * 2);
+			}
+			matches[3 * size] = keywordId;
+			matches[3 * size + 1] = start;
+			matches[3 * size + 2] = end;
+			size++;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * Whether the input is prefiltered: while the state machine is in its root
+ * state, chars that no keyword (as folded) starts with are skipped with a 
+ * bitmap lookup, rather than consumed one transition at a time. Matches are
+ * the same either way; inputs with few matches are scanned faster when the
+ * keywords start with few distinct chars.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public enum Prefilter {
+	/**
+	 * Prefilters if at most 16 distinct chars start a keyword, or if the chars
+	 * that start a keyword are at most a quarter of the distinct keyword chars.
+	 */
+	AUTO,
+	/**
+	 * Always prefilters.
+	 */
+	ON,
+	/**
+	 * Never prefilters.
+	 */
+	OFF
+}
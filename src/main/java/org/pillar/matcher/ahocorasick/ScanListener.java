@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * A callback notified once at the end of each scan of a String by a state 
+ * machine, with counters of what the scan cost. Counters are kept in local
+ * variables and passed as primitives, so a scan allocates nothing for them; 
+ * state machines without a listener do not count at all.
+ * 
+ * <p>Listeners are called from the threads that scan, possibly concurrently.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see CompiledAhoCorasick#withScanListener(ScanListener)
+ * @see ScanMetrics
+ */
+@FunctionalInterface
+public interface ScanListener {
+	/**
+	 * Handles the end of a scan.
+	 * 
+	 * @param charsScanned the number of chars of the input up to where the 
+	 *        scan ended, including chars skipped by a {@link Prefilter}
+	 * @param failures the number of chars at which the partial match could 
+	 *        not be extended, so that failure transitions were followed, or 
+	 *        would have been without a deterministic transition function
+	 * @param matches the number of matches passed to the handler
+	 * @param stopped true if the handler stopped the scan early
+	 */
+	void onScan(int charsScanned, int failures, int matches, boolean stopped);
+}
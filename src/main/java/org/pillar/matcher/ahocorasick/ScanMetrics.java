@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ScanListener} that sums the counters of every scan, for export 
+ * to whatever metrics library is in use, for example as function counters
+ * reading its getters. Adding to it from many threads does not contend.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class ScanMetrics implements ScanListener {
+	private final LongAdder scans = new LongAdder();
+	private final LongAdder charsScanned = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder matches = new LongAdder();
+	private final LongAdder stoppedScans = new LongAdder();
+
+	@Override
+	public void onScan(int charsScanned, int failures, int matches, boolean stopped) {
+		scans.increment();
+		this.charsScanned.add(charsScanned);
+		this.failures.add(failures);
+		this.matches.add(matches);
+		if (stopped) {
+			stoppedScans.increment();
+		}
+	}
+
+	/**
+	 * Returns the number of scans.
+	 * 
+	 * @return the number of scans
+	 */
+	public long getScanCount() {
+		return scans.sum();
+	}
+
+	/**
+	 * Returns the number of chars scanned.
+	 * 
+	 * @return the number of chars scanned
+	 * @see ScanListener#onScan(int, int, int, boolean)
+	 */
+	public long getCharsScanned() {
+		return charsScanned.sum();
+	}
+
+	/**
+	 * Returns the number of chars at which failure transitions were followed.
+	 * 
+	 * @return the number of failures
+	 * @see ScanListener#onScan(int, int, int, boolean)
+	 */
+	public long getFailureCount() {
+		return failures.sum();
+	}
+
+	/**
+	 * Returns the number of matches passed to handlers.
+	 * 
+	 * @return the number of matches
+	 */
+	public long getMatchCount() {
+		return matches.sum();
+	}
+
+	/**
+	 * Returns the number of scans stopped early by their handler, as 
+	 * {@link CompiledAhoCorasick#containsMatch(String)} does on its first match.
+	 * 
+	 * @return the number of scans stopped early
+	 */
+	public long getStoppedScanCount() {
+		return stoppedScans.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "[scans = " + getScanCount() + ", charsScanned = " + getCharsScanned() + ", failures = " 
+				+ getFailureCount() + ", matches = " + getMatchCount() + ", stoppedScans = " + getStoppedScanCount() 
+				+ "]";
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A deterministic transition function stored in sparse rows. The row of the
+ * root state is dense; the row of every other state only holds the
+ * transitions that differ from the root's, sorted by character. Consuming a
+ * character is one row search, and never follows failure transitions.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see DfaBuilder
+ */
+final class SparseDfaTransitions extends TransitionTable {
+	// the next state of the root, indexed by character
+	private final int[] rootRow;
+	// the row of state s is rowLabels/rowTargets[rowStart[s] .. rowStart[s + 1])
+	private final int[] rowStart;
+	private final char[] rowLabels;
+	private final int[] rowTargets;
+
+	SparseDfaTransitions(int[] rootRow, int[] rowStart, char[] rowLabels, int[] rowTargets) {
+		this.rootRow = rootRow;
+		this.rowStart = rowStart;
+		this.rowLabels = rowLabels;
+		this.rowTargets = rowTargets;
+	}
+
+	@Override
+	int next(int state, char character) {
+		int low = rowStart[state];
+		int high = rowStart[state + 1] - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final char label = rowLabels[middle];
+			if (label < character) {
+				low = middle + 1;
+			} else if (label > character) {
+				high = middle - 1;
+			} else {
+				return rowTargets[middle];
+			}
+		}
+		return (character < rootRow.length) ? rootRow[character] : 0;
+	}
+
+	@Override
+	int stateCount() {
+		return rowStart.length - 1;
+	}
+
+	@Override
+	long transitionCount() {
+		return rootRow.length + rowLabels.length;
+	}
+
+	@Override
+	long sizeInBytes() {
+		return 4L * rootRow.length + 4L * rowStart.length + 6L * rowLabels.length;
+	}
+
+	@Override
+	void write(DataOutputStream out) throws IOException {
+		AutomatonFormat.writeInts(out, rootRow);
+		AutomatonFormat.writeInts(out, rowStart);
+		AutomatonFormat.writeChars(out, rowLabels);
+		AutomatonFormat.writeInts(out, rowTargets);
+	}
+}
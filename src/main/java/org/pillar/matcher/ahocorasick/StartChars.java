@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * The input chars that can start a match: those that fold to the first char of
+ * a keyword. From the root state, any other char leads back to the root state,
+ * so runs of them can be skipped without consuming them.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see Prefilter
+ */
+final class StartChars {
+	// Prefilter.AUTO enables prefiltering for at most this many start chars
+	static final int AUTO_START_CHAR_LIMIT = 16;
+
+	// one bit per input char
+	private final long[] words;
+	// the number of distinct folded chars keywords start with
+	final int count;
+
+	private StartChars(long[] words, int count) {
+		this.words = words;
+		this.count = count;
+	}
+
+	/**
+	 * Returns the start chars of the given keywords, if they should be 
+	 * prefiltered.
+	 *
+	 * @param prefilter whether to prefilter
+	 * @param foldedKeywords the folded keywords, indexed by id
+	 * @param folding how input chars are folded
+	 * @return the start chars, or null not to prefilter
+	 */
+	static StartChars of(Prefilter prefilter, String[] foldedKeywords, KeywordFolding folding) {
+		if (prefilter == Prefilter.OFF) {
+			return null;
+		}
+		final long[] firsts = new long[(Character.MAX_VALUE + 1) >>> 6];
+		final long[] used = new long[firsts.length];
+		for (String keyword : foldedKeywords) {
+			if (!keyword.isEmpty()) {
+				set(firsts, keyword.charAt(0));
+				for (int index = 0; index < keyword.length(); index++) {
+					set(used, keyword.charAt(index));
+				}
+			}
+		}
+		return of(prefilter, firsts, count(used), folding);
+	}
+
+	/**
+	 * Returns the start chars with the given bits set, if they should be 
+	 * prefiltered.
+	 *
+	 * @param prefilter whether to prefilter
+	 * @param firsts one bit per folded char keywords start with, which the
+	 *        start chars keep and the caller must not change
+	 * @param usedCount the number of distinct folded chars in the keywords
+	 * @param folding how input chars are folded
+	 * @return the start chars, or null not to prefilter
+	 */
+	static StartChars of(Prefilter prefilter, long[] firsts, int usedCount, KeywordFolding folding) {
+		if (prefilter == Prefilter.OFF) {
+			return null;
+		}
+		final int count = count(firsts);
+		if (prefilter == Prefilter.AUTO && count > AUTO_START_CHAR_LIMIT && count * 4 > usedCount) {
+			return null;
+		}
+		if (folding == KeywordFolding.NONE) {
+			return new StartChars(firsts, count);
+		}
+		final long[] words = new long[firsts.length];
+		for (int character = 0; character <= Character.MAX_VALUE; character++) {
+			if (isSet(firsts, folding.fold((char) character))) {
+				set(words, (char) character);
+			}
+		}
+		return new StartChars(words, count);
+	}
+
+	/**
+	 * Returns the index of the first char in the given range that can start a
+	 * match.
+	 *
+	 * @param text the input
+	 * @param from the first index to test
+	 * @param to the end of the range
+	 * @return the index of the first start char, or {@code to} if there is none
+	 */
+	int next(CharSequence text, int from, int to) {
+		for (int index = from; index < to; index++) {
+			if (isSet(words, text.charAt(index))) {
+				return index;
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * Returns the index of the first char in the given range that can start a
+	 * match.
+	 *
+	 * @param chars the input
+	 * @param from the first index to test
+	 * @param to the end of the range
+	 * @return the index of the first start char, or {@code to} if there is none
+	 */
+	int next(char[] chars, int from, int to) {
+		for (int index = from; index < to; index++) {
+			if (isSet(words, chars[index])) {
+				return index;
+			}
+		}
+		return to;
+	}
+
+	private static boolean isSet(long[] words, char character) {
+		return (words[character >>> 6] & (1L << character)) != 0;
+	}
+
+	static void set(long[] words, char character) {
+		words[character >>> 6] |= 1L << character;
+	}
+
+	static void clear(long[] words, char character) {
+		words[character >>> 6] &= ~(1L << character);
+	}
+
+	private static int count(long[] words) {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.pillar.matcher.StreamMatchHandler;
+
+/**
+ * Matches input supplied in chunks, keeping the state of the Aho-Corasick state
+ * machine from one chunk to the next, so that matches spanning chunks are 
+ * found. Offsets are counted in chars from the start of the stream. Only a
+ * fixed size buffer is held, whatever the size of the input.
+ * 
+ * <p>Once the handler stops matching, further input is ignored until 
+ * {@link #reset()} is called. A StreamingMatcher is not thread safe; the state
+ * machine it is created from can be shared by any number of them.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see CompiledAhoCorasick#newStreamingMatcher(StreamMatchHandler)
+ */
+public final class StreamingMatcher {
+	// the size of the buffers used to read from Readers and channels
+	private static final int BUFFER_SIZE = 8192;
+	
+	private final AbstractAhoCorasick automaton;
+	private final StreamMatchHandler handler;
+	// the current state
+	private int state = AbstractAhoCorasick.ROOT;
+	// the number of chars consumed
+	private long position;
+	// if the handler stopped matching
+	private boolean stopped;
+	
+	StreamingMatcher(AbstractAhoCorasick automaton, StreamMatchHandler handler) {
+		this.automaton = automaton;
+		this.handler = handler;
+	}
+	
+	/**
+	 * Matches the given chars as the next chunk of the stream.
+	 * 
+	 * @param chars the array holding the chunk
+	 * @param offset the index of the first char of the chunk
+	 * @param length the number of chars of the chunk
+	 * @return true if the handler stopped matching
+	 */
+	public boolean match(char[] chars, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > chars.length - length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " 
+					+ chars.length);
+		}
+		if (stopped) {
+			return true;
+		}
+		int current = state;
+		final int limit = offset + length;
+		final StartChars startChars = automaton.startChars;
+		for (int index = offset; index < limit; index++) {
+			if (current == AbstractAhoCorasick.ROOT && startChars != null) {
+				index = startChars.next(chars, index, limit);
+				if (index == limit) {
+					break;
+				}
+			}
+			current = automaton.step(current, chars[index]);
+			if (automaton.firstOutput(current) != AbstractAhoCorasick.NONE 
+					&& !report(current, position + (index - offset) + 1)) {
+				position += index - offset + 1;
+				return true;
+			}
+		}
+		state = current;
+		position += length;
+		return false;
+	}
+	
+	/**
+	 * Matches the given chars as the next chunk of the stream.
+	 * 
+	 * @param chars the chunk
+	 * @return true if the handler stopped matching
+	 */
+	public boolean match(CharSequence chars) {
+		if (stopped) {
+			return true;
+		}
+		int current = state;
+		final int length = chars.length();
+		final StartChars startChars = automaton.startChars;
+		for (int index = 0; index < length; index++) {
+			if (current == AbstractAhoCorasick.ROOT && startChars != null) {
+				index = startChars.next(chars, index, length);
+				if (index == length) {
+					break;
+				}
+			}
+			current = automaton.step(current, chars.charAt(index));
+			if (automaton.firstOutput(current) != AbstractAhoCorasick.NONE 
+					&& !report(current, position + index + 1)) {
+				position += index + 1;
+				return true;
+			}
+		}
+		state = current;
+		position += length;
+		return false;
+	}
+	
+	/**
+	 * Matches the remaining chars of the given buffer as the next chunk of the
+	 * stream. The buffer's position is advanced past the chars consumed.
+	 * 
+	 * @param buffer the chunk
+	 * @return true if the handler stopped matching
+	 */
+	public boolean match(CharBuffer buffer) {
+		if (stopped) {
+			return true;
+		}
+		final long before = position;
+		final boolean result = buffer.hasArray() 
+				? match(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining())
+				: match((CharSequence) buffer);
+		// Buffer's methods, since CharBuffer's covariant overrides do not exist on Java 8
+		((Buffer) buffer).position(buffer.position() + (int) (position - before));
+		return result;
+	}
+	
+	/**
+	 * Matches every char read from the given Reader, until its end or until the
+	 * handler stops matching. The Reader is not closed.
+	 * 
+	 * @param reader the Reader to match
+	 * @return true if the handler stopped matching
+	 * @throws IOException if reading fails
+	 */
+	public boolean match(Reader reader) throws IOException {
+		final char[] buffer = new char[BUFFER_SIZE];
+		for (int read = reader.read(buffer); read >= 0; read = reader.read(buffer)) {
+			if (match(buffer, 0, read)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Matches every char decoded from the given blocking channel, until its end
+	 * or until the handler stops matching. Malformed or unmappable input is
+	 * replaced with the charset's replacement. The channel is not closed.
+	 * 
+	 * @param channel the channel to match
+	 * @param charset the encoding of the channel's bytes
+	 * @return true if the handler stopped matching
+	 * @throws IOException if reading fails
+	 */
+	public boolean match(ReadableByteChannel channel, Charset charset) throws IOException {
+		final CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		
+		CoderResult result;
+		for (;;) {
+			final boolean endOfInput = channel.read(bytes) < 0;
+			((Buffer) bytes).flip();
+			do {
+				result = decoder.decode(bytes, chars, endOfInput);
+				if (matchDecoded(chars)) {
+					return true;
+				}
+			} while (result.isOverflow());
+			bytes.compact();
+			if (endOfInput) {
+				break;
+			}
+		}
+		do {
+			result = decoder.flush(chars);
+			if (matchDecoded(chars)) {
+				return true;
+			}
+		} while (result.isOverflow());
+		return false;
+	}
+	
+	/**
+	 * Matches every char decoded from the given InputStream, until its end or 
+	 * until the handler stops matching. The InputStream is not closed.
+	 * 
+	 * @param inputStream the InputStream to match
+	 * @param charset the encoding of the stream's bytes
+	 * @return true if the handler stopped matching
+	 * @throws IOException if reading fails
+	 * @see #match(ReadableByteChannel, Charset)
+	 */
+	public boolean match(InputStream inputStream, Charset charset) throws IOException {
+		return match(Channels.newChannel(inputStream), charset);
+	}
+	
+	/**
+	 * Returns the number of chars consumed since this StreamingMatcher was 
+	 * created or reset.
+	 * 
+	 * @return the offset of the next char of the stream
+	 */
+	public long getPosition() {
+		return position;
+	}
+	
+	/**
+	 * Returns if the handler stopped matching.
+	 * 
+	 * @return true if the handler stopped matching
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+	
+	/**
+	 * Resets this StreamingMatcher to the start of a new stream.
+	 */
+	public void reset() {
+		state = AbstractAhoCorasick.ROOT;
+		position = 0;
+		stopped = false;
+	}
+	
+	/*
+	 * Matches and clears the chars decoded in the given buffer.
+	 */
+	private boolean matchDecoded(CharBuffer chars) {
+		((Buffer) chars).flip();
+		final boolean result = match(chars);
+		((Buffer) chars).clear();
+		return result;
+	}
+	
+	/*
+	 * Passes every keyword ending at the given state to the handler. Returns
+	 * false if the handler stopped matching.
+	 */
+	private boolean report(int current, long end) {
+		for (int output = automaton.firstOutput(current); output != AbstractAhoCorasick.NONE; 
+				output = automaton.nextOutput(output)) {
+			final int keywordId = automaton.keywordId(output);
+			if (!handler.onMatch(keywordId, end - automaton.matchLength(keywordId), end)) {
+				stopped = true;
+				state = current;
+				return false;
+			}
+		}
+		return true;
+	}
+}
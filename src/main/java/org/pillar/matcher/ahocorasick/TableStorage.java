@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * Where the transition and output functions of a {@link CompiledAhoCorasick}
+ * are stored.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see CompiledAhoCorasickBuilder#withTableStorage(TableStorage)
+ * @see CompiledAhoCorasick#map(java.nio.file.Path)
+ */
+public enum TableStorage {
+	/**
+	 * Primitive arrays on the heap. The fastest to match with.
+	 */
+	HEAP,
+	/**
+	 * A direct {@link java.nio.ByteBuffer}, outside of the heap, so that very
+	 * large tables neither count against the heap nor lengthen garbage 
+	 * collection pauses. Keywords and payloads remain on the heap.
+	 */
+	DIRECT
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * The ways a state of a {@link TransitionMode#ADAPTIVE} transition function
+ * stores its goto transitions, picked by the number of them.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see AutomatonStatistics#getLayoutCount(TransitionLayout)
+ */
+public enum TransitionLayout {
+	/**
+	 * A row indexed by the class of a character, for the root state and for
+	 * states with many transitions.
+	 */
+	DENSE,
+	/**
+	 * Transitions sorted by character, searched with a binary search.
+	 */
+	BINARY_SEARCH,
+	/**
+	 * A few transitions sorted by character, searched one after the other.
+	 */
+	LINEAR_SEARCH,
+	/**
+	 * A single transition, compared with directly, as in the states of a 
+	 * keyword's suffix that no other keyword shares.
+	 */
+	SINGLE_EDGE,
+	/**
+	 * No transition, in the states at which a keyword ends that no other 
+	 * keyword extends.
+	 */
+	LEAF
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+/**
+ * The ways a {@link CompiledAhoCorasick} can store its transition function.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public enum TransitionMode {
+	/**
+	 * The goto function in a double-array and the failure function. The most
+	 * compact mode, but consuming a character may follow several failure
+	 * transitions.
+	 */
+	GOTO_FAILURE,
+	/**
+	 * A deterministic transition function in which every failure transition is
+	 * resolved at construction time, stored as {@link #DENSE} for small
+	 * alphabets and as {@link #SPARSE} otherwise.
+	 */
+	DETERMINISTIC,
+	/**
+	 * A deterministic transition function in a table with a row per state and
+	 * a column per keyword character. Consuming a character is one array
+	 * lookup, at the cost of states times alphabet size ints.
+	 */
+	DENSE,
+	/**
+	 * A deterministic transition function in which each state only stores the
+	 * transitions that differ from the root state's, as a sorted row.
+	 */
+	SPARSE,
+	/**
+	 * The goto function and the failure function, where each state stores its
+	 * goto transitions in the {@link TransitionLayout} that suits their 
+	 * number: a dense row for the root and states with many transitions, 
+	 * sorted rows for fewer, a single edge for the long chains of keyword 
+	 * suffixes. Consuming a character may follow several failure transitions.
+	 */
+	ADAPTIVE
+}
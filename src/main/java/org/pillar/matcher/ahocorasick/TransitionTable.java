@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The transition function of a compiled Aho-Corasick state machine. States
+ * are {@code int}s in {@code [0, stateCount())}, the root state being
+ * {@code 0}.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+abstract class TransitionTable {
+	/**
+	 * Returns the state the machine should be in after consuming the given
+	 * character in the given state, following failure transitions if needed.
+	 *
+	 * @param state the current state
+	 * @param character the input symbol
+	 * @return the next state
+	 */
+	abstract int next(int state, char character);
+
+	/**
+	 * Returns the number of state ids, which may include unused ids.
+	 *
+	 * @return the upper bound of the state ids
+	 */
+	abstract int stateCount();
+
+	/**
+	 * Returns the number of transitions stored, other than failure transitions.
+	 * Every entry of a dense row counts, whether it leads back to the root or not.
+	 *
+	 * @return the number of transitions
+	 */
+	abstract long transitionCount();
+
+	/**
+	 * Returns the approximate number of bytes held by this table.
+	 *
+	 * @return the size of this table in bytes
+	 */
+	abstract long sizeInBytes();
+
+	/**
+	 * Returns the number of states stored with each {@link TransitionLayout}, 
+	 * indexed by ordinal. Only {@link TransitionMode#ADAPTIVE} tables pick a 
+	 * layout per state; the others count none.
+	 *
+	 * @return the number of states of each layout
+	 */
+	int[] layoutCounts() {
+		return new int[TransitionLayout.values().length];
+	}
+
+	/**
+	 * Writes the arrays of this table, in the order its constructor takes them.
+	 *
+	 * @param out the output to write to
+	 * @throws IOException if the output cannot be written to
+	 * @see AutomatonFormat
+	 */
+	abstract void write(DataOutputStream out) throws IOException;
+}
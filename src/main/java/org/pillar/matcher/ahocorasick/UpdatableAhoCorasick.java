@@ -0,0 +1,565 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An Aho-Corasick state machine whose keywords can be added and removed 
+ * without rebuilding it. Each update only repairs the failure transitions
+ * and output links of the states it affects, then publishes a new immutable 
+ * {@link AhoCorasickSnapshot}, so that threads matching with a snapshot never
+ * see a partially updated state machine.
+ * 
+ * <p>An update touches the states on the failure chains that pass through the
+ * states it adds or removes, which is usually a small part of the machine. 
+ * The exception is a keyword starting with a char no other keyword starts
+ * with: every state with a transition on that char may have to fail to the
+ * new state.
+ * 
+ * <p>Publishing does not copy the tables either. They are split into chunks
+ * that snapshots share, and an update copies only the chunks it changes, so
+ * a snapshot costs a reference per chunk plus the chunks changed since the 
+ * previous one. {@link #update(Collection, Collection)} publishes a batch of
+ * changes at once, copying each chunk they change once.
+ * 
+ * <p>Keywords are numbered in the order they are added, and a keyword added
+ * again after its removal is numbered after every other, so the ids rank
+ * keywords for {@link MatchKind#LEFTMOST_FIRST} matches. Once removals have 
+ * freed more ids than are in use, the remaining keywords are renumbered in 
+ * the same order.
+ * 
+ * <p>Updates are serialized; {@link #snapshot()} never blocks.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class UpdatableAhoCorasick {
+	private final MatchKind matchKind;
+	// the goto function
+	private final EdgeMap edges;
+	// the parent and input symbol of each state
+	private int[] parents;
+	private char[] labels;
+	// the number of goto transitions leaving each state
+	private int[] childCounts;
+	// the tables published to snapshots
+	private final ChunkedArray.Ints depths;
+	private final ChunkedArray.Ints fails;
+	private final ChunkedArray.Ints keywordIds;
+	private final ChunkedArray.Ints outputLinks;
+	// the failure function inverted: the first state failing to each state, 
+	// and the doubly linked siblings of each state failing to the same one
+	private int[] failChildren;
+	private int[] nextFailSiblings;
+	private int[] previousFailSiblings;
+	// one past the highest state in use, and the states freed below it
+	private int stateLimit = 1;
+	private int[] freeStates = new int[16];
+	private int freeStateCount;
+	// the keywords, indexed by id, and one past the highest id in use
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final ChunkedArray.Strings keywords;
+	private int keywordLimit;
+	// the chars keywords start with, the number of states reached with each 
+	// char, and the start chars published, recomputed when those change
+	private final long[] firsts = new long[(Character.MAX_VALUE + 1) >>> 6];
+	private final int[] labelCounts = new int[Character.MAX_VALUE + 1];
+	private int usedCount;
+	private StartChars startChars;
+	private boolean startCharsChanged = true;
+	// scratch stack for walking the failure tree
+	private int[] stack = new int[16];
+	// the latest published snapshot
+	private volatile AhoCorasickSnapshot snapshot;
+
+	/**
+	 * Initializes an updatable state machine with the given keywords.
+	 *
+	 * @param keywords a non-null Set of keywords, possibly empty
+	 */
+	public UpdatableAhoCorasick(Set<String> keywords) {
+		this(keywords, MatchKind.ALL);
+	}
+
+	/**
+	 * Initializes an updatable state machine with the given keywords, which 
+	 * reports the given kind of matches.
+	 *
+	 * @param keywords a non-null Set of keywords, possibly empty
+	 * @param matchKind the matches to report
+	 */
+	public UpdatableAhoCorasick(Set<String> keywords, MatchKind matchKind) {
+		Objects.requireNonNull(keywords, "keywords cannot be null.");
+		this.matchKind = Objects.requireNonNull(matchKind, "matchKind cannot be null.");
+		this.keywords = new ChunkedArray.Strings(keywords.size());
+		int capacity = 1;
+		for (String keyword : keywords) {
+			capacity += keyword.length();
+		}
+		this.edges = new EdgeMap(capacity);
+		parents = new int[capacity];
+		labels = new char[capacity];
+		childCounts = new int[capacity];
+		depths = new ChunkedArray.Ints(capacity);
+		fails = new ChunkedArray.Ints(capacity);
+		keywordIds = new ChunkedArray.Ints(capacity);
+		outputLinks = new ChunkedArray.Ints(capacity);
+		failChildren = new int[capacity];
+		nextFailSiblings = new int[capacity];
+		previousFailSiblings = new int[capacity];
+		initialize(AbstractAhoCorasick.ROOT);
+		for (String keyword : keywords) {
+			enter(keyword);
+		}
+		constructFailure();
+		publish(0);
+	}
+
+	/**
+	 * Returns the latest published snapshot. Matching with it is not affected
+	 * by later updates.
+	 *
+	 * @return the current snapshot
+	 */
+	public AhoCorasickSnapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Adds the given keyword and publishes a new snapshot if it was absent.
+	 *
+	 * @param keyword a non-empty keyword
+	 * @return true if the keyword was added, false if it was already present
+	 */
+	public synchronized boolean add(String keyword) {
+		final boolean added = insert(keyword);
+		if (added) {
+			publish(snapshot.getVersion() + 1);
+		}
+		return added;
+	}
+
+	/**
+	 * Removes the given keyword and publishes a new snapshot if it was present.
+	 *
+	 * @param keyword a keyword
+	 * @return true if the keyword was removed, false if it was absent
+	 */
+	public synchronized boolean remove(String keyword) {
+		final boolean removed = delete(keyword);
+		if (removed) {
+			publish(snapshot.getVersion() + 1);
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes and adds the given keywords, then publishes a single snapshot 
+	 * with every change. Removals are applied first, so a keyword in both 
+	 * collections is present afterwards.
+	 *
+	 * @param additions the keywords to add
+	 * @param removals the keywords to remove
+	 * @return the published snapshot, or the current one if nothing changed
+	 */
+	public synchronized AhoCorasickSnapshot update(Collection<String> additions, Collection<String> removals) {
+		Objects.requireNonNull(additions, "additions cannot be null.");
+		Objects.requireNonNull(removals, "removals cannot be null.");
+		boolean changed = false;
+		for (String keyword : removals) {
+			changed |= delete(keyword);
+		}
+		for (String keyword : additions) {
+			changed |= insert(keyword);
+		}
+		if (changed) {
+			publish(snapshot.getVersion() + 1);
+		}
+		return snapshot;
+	}
+
+	/*
+	 * Shares the tables with a new snapshot and makes it the current one.
+	 */
+	private void publish(long version) {
+		if (startCharsChanged) {
+			startChars = StartChars.of(Prefilter.AUTO, firsts.clone(), usedCount, KeywordFolding.NONE);
+			startCharsChanged = false;
+		}
+		snapshot = new AhoCorasickSnapshot(keywords.copy(), keywordLimit, ids.size(), matchKind, startChars,
+				edges.copy(), fails.copy(), keywordIds.copy(), outputLinks.copy(), depths.copy(), version);
+	}
+
+	/*
+	 * Adds the goto transitions of the given keyword, leaving the failure 
+	 * function to constructFailure(). Used for the initial keywords only.
+	 */
+	private void enter(String keyword) {
+		final int length = checkKeyword(keyword);
+		if (ids.containsKey(keyword)) {
+			return;
+		}
+		int state = AbstractAhoCorasick.ROOT;
+		for (int index = 0; index < length; index++) {
+			final char character = keyword.charAt(index);
+			final int next = edges.get(state, character);
+			state = (next != AbstractAhoCorasick.NONE) ? next : addState(state, character);
+		}
+		keywordIds.set(state, newKeywordId(keyword));
+	}
+
+	/*
+	 * Constructs the failure function and output links of every state, in 
+	 * breadth-first order.
+	 */
+	private void constructFailure() {
+		final int[] byDepth = new int[stateLimit];
+		final int[] depthStarts = new int[stateLimit + 1];
+		for (int state = 0; state < stateLimit; state++) {
+			depthStarts[depths.get(state) + 1]++;
+		}
+		for (int depth = 1; depth <= stateLimit; depth++) {
+			depthStarts[depth] += depthStarts[depth - 1];
+		}
+		for (int state = 0; state < stateLimit; state++) {
+			byDepth[depthStarts[depths.get(state)]++] = state;
+		}
+		// skip the root
+		for (int index = 1; index < stateLimit; index++) {
+			final int state = byDepth[index];
+			final int fail = failureOf(state);
+			attach(state, fail);
+			outputLinks.set(state, firstOutput(fail));
+		}
+	}
+
+	/*
+	 * Adds the given keyword, if absent, and repairs the failure function and 
+	 * output links.
+	 */
+	private boolean insert(String keyword) {
+		final int length = checkKeyword(keyword);
+		if (ids.containsKey(keyword)) {
+			return false;
+		}
+		int state = AbstractAhoCorasick.ROOT;
+		for (int index = 0; index < length; index++) {
+			final char character = keyword.charAt(index);
+			final int next = edges.get(state, character);
+			if (next != AbstractAhoCorasick.NONE) {
+				state = next;
+			} else {
+				final int child = addState(state, character);
+				final int fail = failureOf(child);
+				attach(child, fail);
+				outputLinks.set(child, firstOutput(fail));
+				redirectFailures(state, character, child);
+				state = child;
+			}
+		}
+		keywordIds.set(state, newKeywordId(keyword));
+		relinkOutputs(state, state);
+		return true;
+	}
+
+	/*
+	 * Removes the given keyword, if present, and the states only it used, and
+	 * repairs the failure function and output links.
+	 */
+	private boolean delete(String keyword) {
+		final Integer id = ids.remove(Objects.requireNonNull(keyword, "keyword cannot be null."));
+		if (id == null) {
+			return false;
+		}
+		keywords.set(id, null);
+		int state = stateOf(keyword);
+		keywordIds.set(state, AbstractAhoCorasick.NONE);
+		relinkOutputs(state, outputLinks.get(state));
+		while (state != AbstractAhoCorasick.ROOT && childCounts[state] == 0 
+				&& keywordIds.get(state) == AbstractAhoCorasick.NONE) {
+			final int parent = parents[state];
+			removeState(state);
+			state = parent;
+		}
+		return true;
+	}
+
+	/*
+	 * Returns the target of the failure transition of the given state, whose
+	 * parent's failure transition is known.
+	 */
+	private int failureOf(int state) {
+		final int parent = parents[state];
+		if (parent == AbstractAhoCorasick.ROOT) {
+			return AbstractAhoCorasick.ROOT;
+		}
+		final char character = labels[state];
+		for (int current = fails.get(parent);; current = fails.get(current)) {
+			final int target = edges.get(current, character);
+			if (target != AbstractAhoCorasick.NONE) {
+				return target;
+			}
+			if (current == AbstractAhoCorasick.ROOT) {
+				return AbstractAhoCorasick.ROOT;
+			}
+		}
+	}
+
+	/*
+	 * Makes the given new state, reached from the given parent with the given
+	 * char, the failure target of the existing states it is now the longest
+	 * proper suffix of. Those are the children, on the same char, of the
+	 * states whose failure chain passes through the parent. Below a state 
+	 * that has such a child, every state already fails to a longer suffix.
+	 */
+	private void redirectFailures(int parent, char character, int state) {
+		final int depth = depths.get(state);
+		int redirectCount = 0;
+		int[] redirects = null;
+		int top = 0;
+		for (int child = failChildren[parent]; child != AbstractAhoCorasick.NONE; child = nextFailSiblings[child]) {
+			stack = push(stack, top++, child);
+		}
+		while (top > 0) {
+			final int current = stack[--top];
+			final int target = edges.get(current, character);
+			if (target == AbstractAhoCorasick.NONE) {
+				for (int child = failChildren[current]; child != AbstractAhoCorasick.NONE; 
+						child = nextFailSiblings[child]) {
+					stack = push(stack, top++, child);
+				}
+			} else if (target != state && depths.get(fails.get(target)) < depth) {
+				redirects = push((redirects == null) ? new int[4] : redirects, redirectCount++, target);
+			}
+		}
+		// the failure tree is not changed while it is walked
+		for (int index = 0; index < redirectCount; index++) {
+			detach(redirects[index]);
+			attach(redirects[index], state);
+		}
+	}
+
+	/*
+	 * Sets the output link of the states failing to the given state, directly
+	 * or through states without a keyword, to the given target.
+	 */
+	private void relinkOutputs(int state, int target) {
+		int top = 0;
+		stack = push(stack, top++, state);
+		while (top > 0) {
+			final int current = stack[--top];
+			for (int child = failChildren[current]; child != AbstractAhoCorasick.NONE; 
+					child = nextFailSiblings[child]) {
+				outputLinks.set(child, target);
+				if (keywordIds.get(child) == AbstractAhoCorasick.NONE) {
+					stack = push(stack, top++, child);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns the first output of the given state.
+	 */
+	private int firstOutput(int state) {
+		return (keywordIds.get(state) != AbstractAhoCorasick.NONE) ? state : outputLinks.get(state);
+	}
+
+	/*
+	 * Adds a goto transition to a new state, whose failure transition is not
+	 * set.
+	 */
+	private int addState(int parent, char character) {
+		final int state;
+		if (freeStateCount > 0) {
+			state = freeStates[--freeStateCount];
+		} else {
+			state = stateLimit++;
+			if (state == parents.length) {
+				grow(state * 2);
+			}
+		}
+		initialize(state);
+		parents[state] = parent;
+		labels[state] = character;
+		depths.set(state, depths.get(parent) + 1);
+		childCounts[parent]++;
+		edges.put(parent, character, state);
+		if (parent == AbstractAhoCorasick.ROOT) {
+			StartChars.set(firsts, character);
+			startCharsChanged = true;
+		}
+		if (labelCounts[character]++ == 0) {
+			usedCount++;
+			startCharsChanged = true;
+		}
+		return state;
+	}
+
+	/*
+	 * Removes a state without children or keyword. The states failing to it 
+	 * fail to its own failure target instead, their next longest suffix.
+	 */
+	private void removeState(int state) {
+		final int parent = parents[state];
+		final char character = labels[state];
+		edges.remove(parent, character);
+		childCounts[parent]--;
+		if (parent == AbstractAhoCorasick.ROOT) {
+			StartChars.clear(firsts, character);
+			startCharsChanged = true;
+		}
+		if (--labelCounts[character] == 0) {
+			usedCount--;
+			startCharsChanged = true;
+		}
+		detach(state);
+		final int fail = fails.get(state);
+		for (int child = failChildren[state]; child != AbstractAhoCorasick.NONE;) {
+			final int next = nextFailSiblings[child];
+			attach(child, fail);
+			child = next;
+		}
+		freeStates = push(freeStates, freeStateCount++, state);
+	}
+
+	private void initialize(int state) {
+		childCounts[state] = 0;
+		depths.set(state, 0);
+		fails.set(state, AbstractAhoCorasick.ROOT);
+		keywordIds.set(state, AbstractAhoCorasick.NONE);
+		outputLinks.set(state, AbstractAhoCorasick.NONE);
+		failChildren[state] = AbstractAhoCorasick.NONE;
+		nextFailSiblings[state] = AbstractAhoCorasick.NONE;
+		previousFailSiblings[state] = AbstractAhoCorasick.NONE;
+	}
+
+	/*
+	 * Sets the failure transition of the given state.
+	 */
+	private void attach(int state, int fail) {
+		fails.set(state, fail);
+		final int first = failChildren[fail];
+		previousFailSiblings[state] = AbstractAhoCorasick.NONE;
+		nextFailSiblings[state] = first;
+		if (first != AbstractAhoCorasick.NONE) {
+			previousFailSiblings[first] = state;
+		}
+		failChildren[fail] = state;
+	}
+
+	/*
+	 * Unsets the failure transition of the given state.
+	 */
+	private void detach(int state) {
+		final int previous = previousFailSiblings[state];
+		final int next = nextFailSiblings[state];
+		if (previous == AbstractAhoCorasick.NONE) {
+			failChildren[fails.get(state)] = next;
+		} else {
+			nextFailSiblings[previous] = next;
+		}
+		if (next != AbstractAhoCorasick.NONE) {
+			previousFailSiblings[next] = previous;
+		}
+	}
+
+	/*
+	 * Numbers the given keyword after every other one, first renumbering them
+	 * if more ids are free than in use. A renumbering follows at least as many
+	 * removals as keywords it renumbers.
+	 */
+	private int newKeywordId(String keyword) {
+		if (keywordLimit - ids.size() > ids.size() + 16) {
+			renumberKeywords();
+		}
+		final int id = keywordLimit++;
+		keywords.grow(keywordLimit);
+		keywords.set(id, keyword);
+		ids.put(keyword, id);
+		return id;
+	}
+
+	/*
+	 * Numbers the keywords from 0, in the order of their ids.
+	 */
+	private void renumberKeywords() {
+		int next = 0;
+		for (int id = 0; id < keywordLimit; id++) {
+			final String keyword = keywords.get(id);
+			if (keyword == null) {
+				continue;
+			}
+			if (id != next) {
+				keywords.set(id, null);
+				keywords.set(next, keyword);
+				keywordIds.set(stateOf(keyword), next);
+				ids.put(keyword, next);
+			}
+			next++;
+		}
+		keywordLimit = next;
+	}
+
+	/*
+	 * Returns the state of the given keyword, which must be present.
+	 */
+	private int stateOf(String keyword) {
+		int state = AbstractAhoCorasick.ROOT;
+		for (int index = 0; index < keyword.length(); index++) {
+			state = edges.get(state, keyword.charAt(index));
+		}
+		return state;
+	}
+
+	private void grow(int capacity) {
+		parents = Arrays.copyOf(parents, capacity);
+		labels = Arrays.copyOf(labels, capacity);
+		childCounts = Arrays.copyOf(childCounts, capacity);
+		depths.grow(capacity);
+		fails.grow(capacity);
+		keywordIds.grow(capacity);
+		outputLinks.grow(capacity);
+		failChildren = Arrays.copyOf(failChildren, capacity);
+		nextFailSiblings = Arrays.copyOf(nextFailSiblings, capacity);
+		previousFailSiblings = Arrays.copyOf(previousFailSiblings, capacity);
+	}
+
+	private static int checkKeyword(String keyword) {
+		final int length = Objects.requireNonNull(keyword, "keyword cannot be null.").length();
+		if (length == 0) {
+			throw new IllegalArgumentException("keywords cannot be empty");
+		}
+		return length;
+	}
+
+	/*
+	 * Stores the given value at the given index, growing the array if needed.
+	 */
+	private static int[] push(int[] array, int index, int value) {
+		final int[] result = (index < array.length) ? array : Arrays.copyOf(array, array.length * 2);
+		result[index] = value;
+		return result;
+	}
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+
+import org.pillar.matcher.MatchHandler;
+import org.pillar.matcher.StreamMatchHandler;
+
+/**
+ * An Aho-Corasick state machine whose transitions consume bytes. Keywords are
+ * encoded to UTF-8 when the state machine is built, so UTF-8 input can be 
+ * matched directly from {@code byte[]}s, heap or direct {@link ByteBuffer}s 
+ * and memory-mapped files, without being decoded.
+ * 
+ * <p>Offsets are byte offsets, unless a {@code matchCharOffsets} method is
+ * used, in which case they are the offsets the matches would have in the 
+ * decoded String. Keywords containing unpaired surrogates cannot be encoded,
+ * and are matched as their UTF-8 replacement instead. 
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ * @see CompiledAhoCorasickBuilder#buildUtf8()
+ */
+public final class Utf8AhoCorasick {
+	// the root state
+	private static final int ROOT = AbstractAhoCorasick.ROOT;
+	// marks the absence of a state or of a keyword
+	private static final int NONE = AbstractAhoCorasick.NONE;
+	// the largest region of a file mapped at once
+	private static final long MAPPED_REGION_SIZE = 1L << 30;
+
+	// the transition function, over chars in [0, 255]
+	private final TransitionTable transitions;
+	// the id of the keyword ending at each state, or NONE
+	private final int[] keywordIds;
+	// the closest state on the failure chain that has a keyword, or NONE
+	private final int[] outputLinks;
+	// the set of keywords and phrases
+	private final Set<String> keywordSet;
+	// the keywords, indexed by id
+	private final String[] keywords;
+	// the length of each encoded keyword, indexed by id
+	private final int[] byteLengths;
+	// the length of the longest encoded keyword
+	private final int maxKeywordByteLength;
+	// the payload attached to each keyword, indexed by id
+	private final Object[] payloads;
+	// the size of the state machine
+	private final AutomatonStatistics statistics;
+
+	Utf8AhoCorasick(Set<String> keywordSet, String[] keywords, String[] encodedKeywords, Object[] payloads,
+			TransitionTable transitions, int[] keywordIds, int[] outputLinks, AutomatonStatistics statistics) {
+		this.keywordSet = keywordSet;
+		this.keywords = keywords;
+		this.payloads = payloads;
+		this.transitions = transitions;
+		this.keywordIds = keywordIds;
+		this.outputLinks = outputLinks;
+		this.statistics = statistics;
+		this.byteLengths = new int[encodedKeywords.length];
+		int maxKeywordByteLength = 0;
+		for (int id = 0; id < encodedKeywords.length; id++) {
+			byteLengths[id] = encodedKeywords[id].length();
+			maxKeywordByteLength = Math.max(maxKeywordByteLength, byteLengths[id]);
+		}
+		this.maxKeywordByteLength = maxKeywordByteLength;
+	}
+
+	/**
+	 * Matches the given bytes and passes each match to the given handler,
+	 * until the handler asks to stop.
+	 *
+	 * @param bytes the UTF-8 bytes to match
+	 * @param handler the handler to notify of each match, with indices into the array
+	 * @return true if the handler stopped matching
+	 */
+	public boolean match(byte[] bytes, MatchHandler handler) {
+		return match(bytes, 0, bytes.length, handler);
+	}
+
+	/**
+	 * Matches a range of the given bytes and passes each match to the given 
+	 * handler, until the handler asks to stop.
+	 *
+	 * @param bytes the array holding the UTF-8 bytes to match
+	 * @param offset the index of the first byte to match
+	 * @param length the number of bytes to match
+	 * @param handler the handler to notify of each match, with indices into the array
+	 * @return true if the handler stopped matching
+	 */
+	public boolean match(byte[] bytes, int offset, int length, MatchHandler handler) {
+		checkRange(bytes.length, offset, length);
+		int state = ROOT;
+		final int limit = offset + length;
+		for (int index = offset; index < limit; index++) {
+			state = transitions.next(state, (char) (bytes[index] & 0xFF));
+			for (int output = firstOutput(state); output != NONE; output = outputLinks[output]) {
+				final int keywordId = keywordIds[output];
+				final int end = index + 1;
+				if (!handler.onMatch(keywordId, end - byteLengths[keywordId], end)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches the bytes between the position and the limit of the given buffer
+	 * and passes each match to the given handler, until the handler asks to 
+	 * stop. The buffer's position is not changed. 
+	 *
+	 * @param buffer the UTF-8 bytes to match
+	 * @param handler the handler to notify of each match, with indices into the buffer
+	 * @return true if the handler stopped matching
+	 */
+	public boolean match(ByteBuffer buffer, MatchHandler handler) {
+		if (buffer.hasArray()) {
+			final int arrayOffset = buffer.arrayOffset();
+			return match(buffer.array(), arrayOffset + buffer.position(), buffer.remaining(), 
+					(keywordId, start, end) -> handler.onMatch(keywordId, start - arrayOffset, end - arrayOffset));
+		}
+		int state = ROOT;
+		final int limit = buffer.limit();
+		for (int index = buffer.position(); index < limit; index++) {
+			state = transitions.next(state, (char) (buffer.get(index) & 0xFF));
+			for (int output = firstOutput(state); output != NONE; output = outputLinks[output]) {
+				final int keywordId = keywordIds[output];
+				final int end = index + 1;
+				if (!handler.onMatch(keywordId, end - byteLengths[keywordId], end)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches a range of the given bytes and passes each match to the given 
+	 * handler, with the char offsets the match would have in the String 
+	 * decoded from the range.
+	 *
+	 * @param bytes the array holding the UTF-8 bytes to match
+	 * @param offset the index of the first byte to match
+	 * @param length the number of bytes to match
+	 * @param handler the handler to notify of each match, with char offsets
+	 * @return true if the handler stopped matching
+	 */
+	public boolean matchCharOffsets(byte[] bytes, int offset, int length, MatchHandler handler) {
+		checkRange(bytes.length, offset, length);
+		int state = ROOT;
+		int chars = 0;
+		final int limit = offset + length;
+		for (int index = offset; index < limit; index++) {
+			final int b = bytes[index] & 0xFF;
+			chars += charCount(b);
+			state = transitions.next(state, (char) b);
+			for (int output = firstOutput(state); output != NONE; output = outputLinks[output]) {
+				final int keywordId = keywordIds[output];
+				if (!handler.onMatch(keywordId, chars - keywords[keywordId].length(), chars)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches the bytes between the position and the limit of the given buffer
+	 * and passes each match to the given handler, with the char offsets the 
+	 * match would have in the String decoded from those bytes. The buffer's
+	 * position is not changed.
+	 *
+	 * @param buffer the UTF-8 bytes to match
+	 * @param handler the handler to notify of each match, with char offsets
+	 * @return true if the handler stopped matching
+	 */
+	public boolean matchCharOffsets(ByteBuffer buffer, MatchHandler handler) {
+		if (buffer.hasArray()) {
+			return matchCharOffsets(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+					handler);
+		}
+		int state = ROOT;
+		int chars = 0;
+		final int limit = buffer.limit();
+		for (int index = buffer.position(); index < limit; index++) {
+			final int b = buffer.get(index) & 0xFF;
+			chars += charCount(b);
+			state = transitions.next(state, (char) b);
+			for (int output = firstOutput(state); output != NONE; output = outputLinks[output]) {
+				final int keywordId = keywordIds[output];
+				if (!handler.onMatch(keywordId, chars - keywords[keywordId].length(), chars)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches the content of the given UTF-8 file, which is memory-mapped 
+	 * rather than read, and passes each match to the given handler, until the
+	 * handler asks to stop.
+	 *
+	 * @param file the file to match
+	 * @param handler the handler to notify of each match, with byte offsets into the file
+	 * @return true if the handler stopped matching
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public boolean match(Path file, StreamMatchHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			int state = ROOT;
+			for (long regionStart = 0; regionStart < size; regionStart += MAPPED_REGION_SIZE) {
+				final ByteBuffer region = channel.map(MapMode.READ_ONLY, regionStart,
+						Math.min(MAPPED_REGION_SIZE, size - regionStart));
+				state = scan(state, region, regionStart, 0, handler);
+				if (state == NONE) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * Scans the given region, whose first byte is at the given offset in the
+	 * stream, from the given state. Only matches ending after minEnd are
+	 * passed to the handler. Returns the state after the last byte, or NONE if 
+	 * the handler stopped matching. 
+	 */
+	int scan(int state, ByteBuffer region, long regionOffset, long minEnd, StreamMatchHandler handler) {
+		final int limit = region.limit();
+		for (int index = region.position(); index < limit; index++) {
+			state = transitions.next(state, (char) (region.get(index) & 0xFF));
+			for (int output = firstOutput(state); output != NONE; output = outputLinks[output]) {
+				final int keywordId = keywordIds[output];
+				final long end = regionOffset + index + 1;
+				if (end > minEnd && !handler.onMatch(keywordId, end - byteLengths[keywordId], end)) {
+					return NONE;
+				}
+			}
+		}
+		return state;
+	}
+
+	/*
+	 * Returns the length in bytes of the longest encoded keyword.
+	 */
+	int maxKeywordByteLength() {
+		return maxKeywordByteLength;
+	}
+
+	/**
+	 * Returns if the given bytes have any matches.
+	 *
+	 * @param bytes the UTF-8 bytes to match
+	 * @return true if any keyword occurs in the given bytes
+	 */
+	public boolean containsMatch(byte[] bytes) {
+		// stop on the first match
+		return match(bytes, 0, bytes.length, (keywordId, start, end) -> false);
+	}
+
+	/**
+	 * Returns if the bytes between the position and the limit of the given
+	 * buffer have any matches.
+	 *
+	 * @param buffer the UTF-8 bytes to match
+	 * @return true if any keyword occurs in the given bytes
+	 */
+	public boolean containsMatch(ByteBuffer buffer) {
+		// stop on the first match
+		return match(buffer, (keywordId, start, end) -> false);
+	}
+
+	/**
+	 * Returns the keyword with the given id.
+	 *
+	 * @param keywordId a keyword id
+	 * @return the keyword with the given id
+	 */
+	public String getKeyword(int keywordId) {
+		return keywords[keywordId];
+	}
+
+	/**
+	 * Returns the length in bytes of the UTF-8 encoding of the keyword with the
+	 * given id.
+	 *
+	 * @param keywordId a keyword id
+	 * @return the length in bytes of the keyword
+	 */
+	public int getKeywordByteLength(int keywordId) {
+		return byteLengths[keywordId];
+	}
+
+	/**
+	 * Returns the payload attached to the keyword with the given id.
+	 *
+	 * @param keywordId a keyword id
+	 * @return the payload, or null if the keyword has none
+	 */
+	public Object getPayload(int keywordId) {
+		return payloads[keywordId];
+	}
+
+	/**
+	 * Returns an unmodifiable view of the keywords.
+	 *
+	 * @return an unmodifiable set of mapped keywords
+	 */
+	public Set<String> getKeywords() {
+		return Collections.unmodifiableSet(keywordSet);
+	}
+
+	/**
+	 * Returns the size of this state machine.
+	 *
+	 * @return the statistics of this state machine
+	 */
+	public AutomatonStatistics getStatistics() {
+		return statistics;
+	}
+
+	private int firstOutput(int state) {
+		return (keywordIds[state] != NONE) ? state : outputLinks[state];
+	}
+
+	/*
+	 * Returns the number of UTF-16 chars that the code point starting with the
+	 * given byte decodes to, or 0 for a continuation byte.
+	 */
+	private static int charCount(int b) {
+		if ((b & 0xC0) == 0x80) {
+			return 0;
+		}
+		return ((b & 0xF8) == 0xF0) ? 2 : 1;
+	}
+
+	private static void checkRange(int arrayLength, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > arrayLength - length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length "
+					+ arrayLength);
+		}
+	}
+}
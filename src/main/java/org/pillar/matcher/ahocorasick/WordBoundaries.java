@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A class of word chars, stored as a bit set over every char, so that matches
+ * preceded or followed by a word char can be rejected while scanning.
+ *
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+final class WordBoundaries {
+	// the number of ints in the bit set
+	static final int WORD_COUNT = (Character.MAX_VALUE + 1) / 32;
+
+	// bit c is set if char c is a word char
+	final int[] words;
+
+	WordBoundaries(int[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * Evaluates the given predicate for every char.
+	 *
+	 * @param wordChars tests if a char is a word char
+	 * @return a new WordBoundaries
+	 */
+	static WordBoundaries of(IntPredicate wordChars) {
+		final int[] words = new int[WORD_COUNT];
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			if (wordChars.test(c)) {
+				words[c >>> 5] |= 1 << c;
+			}
+		}
+		return new WordBoundaries(words);
+	}
+
+	/**
+	 * Returns if a match may start at the given index of the given text.
+	 *
+	 * @param text the text being matched
+	 * @param start the index of the first char of the match
+	 * @return true if the match is not preceded by a word char
+	 */
+	boolean isStart(CharSequence text, int start) {
+		return start == 0 || !isWordChar(text.charAt(start - 1));
+	}
+
+	/**
+	 * Returns if a match may end at the given offset of the given text.
+	 *
+	 * @param text the text being matched
+	 * @param end the offset after the last char of the match
+	 * @return true if the match is not followed by a word char
+	 */
+	boolean isEnd(CharSequence text, int end) {
+		return end == text.length() || !isWordChar(text.charAt(end));
+	}
+
+	private boolean isWordChar(char character) {
+		return (words[character >>> 5] & (1 << character)) != 0;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.teddy;
+
+import org.pillar.matcher.MatchResult;
+
+/**
+ * A MatchResult for a match of the {@link TeddyMatcher}.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+class TeddyMatchResult implements MatchResult {
+	// the matched string
+	private final String matchedString;
+	// the id of the matched keyword
+	private final int keywordId;
+	// the payload of the matched keyword
+	private final Object payload;
+	// the index of the first character matched
+	private final int start;
+	// the offset after the last character matched
+	private final int end;
+
+	TeddyMatchResult(String matchedString, int keywordId, Object payload, int start, int end) {
+		this.matchedString = matchedString;
+		this.keywordId = keywordId;
+		this.payload = payload;
+		this.end = end;
+		this.start = start;
+	}
+
+	@Override
+	public String matchedString() {
+		return matchedString;
+	}
+
+	@Override
+	public int keywordId() {
+		return keywordId;
+	}
+
+	@Override
+	public Object payload() {
+		return payload;
+	}
+
+	@Override
+	public int start() {
+		return start;
+	}
+
+	@Override
+	public int end() {
+		return end;
+	}
+	
+	@Override
+	public String toString() {
+		return "[matchedString = '" + matchedString + "', keywordId = " + keywordId + ", start = " + start + ", end = "
+				+ end + "]";
+	}
+}
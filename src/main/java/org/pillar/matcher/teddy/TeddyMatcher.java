@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.pillar.matcher.teddy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.pillar.matcher.MatchHandler;
+import org.pillar.matcher.MatchResult;
+import org.pillar.matcher.StringMatcher;
+import org.pillar.util.Assert;
+
+/**
+ * A {@link StringMatcher} for small sets of keywords, after the Teddy 
+ * algorithm of Hyperscan. Keywords are grouped into up to 64 buckets, one bit
+ * of a {@code long} each. For each of the first few positions of a keyword,
+ * a table maps the low byte of a char to the buckets with a keyword having 
+ * that byte at that position. ANDing the tables for the chars at an offset 
+ * yields the buckets that may have a keyword starting there, and only those
+ * keywords are compared with the input. Most offsets are rejected with one
+ * table lookup, without following any transition.
+ * 
+ * <p>A TeddyMatcher reports the same matches as an 
+ * {@link org.pillar.matcher.ahocorasick.AhoCorasick} built from the same 
+ * keywords, in the same order: by end offset, and matches ending at the same
+ * offset from the longest to the shortest.
+ * 
+ * @author Sotirios Delimanolis
+ * @since 0.0.1
+ */
+public final class TeddyMatcher implements StringMatcher {
+	// the number of keywords up to which TeddyMatcher is preferred to Aho-Corasick
+	public static final int SMALL_DICTIONARY_LIMIT = 100;
+	// the number of buckets, the bits of a long
+	private static final int BUCKETS = Long.SIZE;
+	// the largest number of positions fingerprinted
+	private static final int MAX_FINGERPRINT_LENGTH = 3;
+
+	private final Set<String> keywordSet;
+	// the keywords, indexed by id
+	private final String[] keywords;
+	// the ids of the keywords of each bucket, longest first
+	private final int[][] buckets;
+	// fingerprints[k][b]: the buckets with a keyword whose char k has low byte b
+	private final long[][] fingerprints;
+
+	/**
+	 * Initializes a TeddyMatcher with the given keywords and phrases.
+	 * 
+	 * @param keywords a non-null, non-empty Set of keywords
+	 */
+	public TeddyMatcher(Set<String> keywords) {
+		Objects.requireNonNull(keywords, "keywords cannot be null.");
+		Assert.isNotEmpty(keywords);
+		this.keywordSet = keywords;
+		this.keywords = keywords.toArray(new String[keywords.size()]);
+		int fingerprintLength = MAX_FINGERPRINT_LENGTH;
+		for (String keyword : this.keywords) {
+			if (keyword.isEmpty()) {
+				throw new IllegalArgumentException("keywords cannot be empty");
+			}
+			fingerprintLength = Math.min(fingerprintLength, keyword.length());
+		}
+
+		// keywords sharing a prefix share a bucket, so that buckets are rarely false positives
+		final Integer[] sorted = new Integer[this.keywords.length];
+		for (int id = 0; id < sorted.length; id++) {
+			sorted[id] = id;
+		}
+		Arrays.sort(sorted, Comparator.comparing((Integer id) -> this.keywords[id]));
+		final int bucketCount = Math.min(BUCKETS, sorted.length);
+		final List<List<Integer>> members = new ArrayList<>();
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			members.add(new ArrayList<>());
+		}
+		for (int rank = 0; rank < sorted.length; rank++) {
+			members.get((int) ((long) rank * bucketCount / sorted.length)).add(sorted[rank]);
+		}
+
+		this.buckets = new int[bucketCount][];
+		this.fingerprints = new long[fingerprintLength][256];
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			final List<Integer> ids = members.get(bucket);
+			ids.sort(Comparator.comparing((Integer id) -> this.keywords[id].length()).reversed());
+			buckets[bucket] = new int[ids.size()];
+			for (int index = 0; index < ids.size(); index++) {
+				final String keyword = this.keywords[ids.get(index)];
+				buckets[bucket][index] = ids.get(index);
+				for (int position = 0; position < fingerprintLength; position++) {
+					fingerprints[position][keyword.charAt(position) & 0xFF] |= 1L << bucket;
+				}
+			}
+		}
+	}
+
+	@Override
+	public List<MatchResult> match(String stringToMatch) {
+		final List<MatchResult> matchResults = new ArrayList<>();
+		match(stringToMatch, (keywordId, start, end) -> 
+				matchResults.add(new TeddyMatchResult(keywords[keywordId], keywordId, null, start, end)));
+		return matchResults;
+	}
+
+	@Override
+	public boolean containsMatch(String stringToMatch) {
+		// stop on the first match
+		return match(stringToMatch, (keywordId, start, end) -> false);
+	}
+
+	@Override
+	public boolean match(String stringToMatch, MatchHandler handler) {
+		final int length = stringToMatch.length();
+		final int last = length - fingerprints.length;
+		final long[] first = fingerprints[0];
+		// matches found but not reported yet, ordered by end then start
+		final Pending pending = new Pending();
+		for (int start = 0; start <= last; start++) {
+			if (pending.size != 0 && !pending.report(start, handler)) {
+				return true;
+			}
+			long candidates = first[stringToMatch.charAt(start) & 0xFF];
+			for (int position = 1; candidates != 0 && position < fingerprints.length; position++) {
+				candidates &= fingerprints[position][stringToMatch.charAt(start + position) & 0xFF];
+			}
+			while (candidates != 0) {
+				final int bucket = Long.numberOfTrailingZeros(candidates);
+				candidates &= candidates - 1;
+				for (int keywordId : buckets[bucket]) {
+					final String keyword = keywords[keywordId];
+					if (keyword.length() <= length - start && stringToMatch.startsWith(keyword, start)) {
+						pending.add(keywordId, start, start + keyword.length());
+					}
+				}
+			}
+		}
+		return pending.size != 0 && !pending.report(Integer.MAX_VALUE, handler);
+	}
+
+	@Override
+	public String getKeyword(int keywordId) {
+		return keywords[keywordId];
+	}
+
+	/**
+	 * Returns null, keywords have no payloads.
+	 */
+	@Override
+	public Object getPayload(int keywordId) {
+		if (keywordId < 0 || keywordId >= keywords.length) {
+			throw new IndexOutOfBoundsException("keyword id " + keywordId);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an unmodifiable view of the keywords.
+	 * 
+	 * @return an unmodifiable set of keywords
+	 */
+	public Set<String> getKeywords() {
+		return Collections.unmodifiableSet(keywordSet);
+	}
+
+	/*
+	 * The matches found at earlier start offsets that may not be reported yet,
+	 * since a match starting later may end before them.
+	 */
+	private static final class Pending {
+		private int[] keywordIds = new int[8];
+		private int[] starts = new int[8];
+		private int[] ends = new int[8];
+		private int head;
+		private int size;
+
+		void add(int keywordId, int start, int end) {
+			if (head + size == ends.length) {
+				compact();
+			}
+			// insert sorted by end, then start; matches are found by increasing start
+			int index = head + size;
+			while (index > head && ends[index - 1] > end) {
+				keywordIds[index] = keywordIds[index - 1];
+				starts[index] = starts[index - 1];
+				ends[index] = ends[index - 1];
+				index--;
+			}
+			keywordIds[index] = keywordId;
+			starts[index] = start;
+			ends[index] = end;
+			size++;
+		}
+
+		/*
+		 * Reports the matches ending at or before the given offset. Returns
+		 * false if the handler stopped matching.
+		 */
+		boolean report(int offset, MatchHandler handler) {
+			while (size != 0 && ends[head] <= offset) {
+				final boolean more = handler.onMatch(keywordIds[head], starts[head], ends[head]);
+				head++;
+				size--;
+				if (!more) {
+					return false;
+				}
+			}
+			if (size == 0) {
+				head = 0;
+			}
+			return true;
+		}
+
+		private void compact() {
+			if (head != 0) {
+				System.arraycopy(keywordIds, head, keywordIds, 0, size);
+				System.arraycopy(starts, head, starts, 0, size);
+				System.arraycopy(ends, head, ends, 0, size);
+				head = 0;
+			}
+			if (size == ends.length) {
+				keywordIds = Arrays.copyOf(keywordIds, size * 2);
+				starts = Arrays.copyOf(starts, size * 2);
+				ends = Arrays.copyOf(ends, size * 2);
+			}
+		}
+	}
+}
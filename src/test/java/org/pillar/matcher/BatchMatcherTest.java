@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.pillar.matcher.ahocorasick.AhoCorasick;
+
+public class BatchMatcherTest {
+
+	@Test
+	public void match() {
+		final StringMatcher matcher = new AhoCorasick(new HashSet<>(Arrays.asList("he", "she", "hers")));
+		final BatchMatchResults results = new BatchMatcher(matcher)
+				.match(Arrays.asList("ushers", "", "nothing", "she"));
+
+		assertThat(results.getDocumentCount(), is(4));
+		assertThat(results.size(), is(5));
+		assertArrayEquals(new int[] { 0, 0, 0, 3, 3 }, results.documents());
+		assertArrayEquals(new int[] { 1, 2, 2, 0, 1 }, results.starts());
+		assertArrayEquals(new int[] { 4, 4, 6, 3, 3 }, results.ends());
+		assertThat(results.matchCount(0), is(3));
+		assertThat(results.matchCount(1), is(0));
+		assertThat(results.firstMatch(3), is(3));
+		assertThat(results.firstMatch(4), is(5));
+		assertThat(matcher.getKeyword(results.getKeywordId(2)), is("hers"));
+	}
+
+	@Test
+	public void matchInParallel() {
+		final Random random = new Random(3);
+		final StringMatcher matcher = new AhoCorasick(new HashSet<>(Arrays.asList("a", "ab", "bca", "cc")));
+		final List<String> documents = new ArrayList<>();
+		for (int index = 0; index < 1000; index++) {
+			final StringBuilder document = new StringBuilder();
+			for (int length = random.nextInt(20); length > 0; length--) {
+				document.append((char) ('a' + random.nextInt(4)));
+			}
+			documents.add(document.toString());
+		}
+
+		final ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			final BatchMatchResults sequential = new BatchMatcher(matcher).match(documents);
+			final BatchMatchResults parallel = new BatchMatcher(matcher, pool, 7).match(documents.stream());
+			assertArrayEquals(sequential.documents(), parallel.documents());
+			assertArrayEquals(sequential.keywordIds(), parallel.keywordIds());
+			assertArrayEquals(sequential.starts(), parallel.starts());
+			assertArrayEquals(sequential.ends(), parallel.ends());
+
+			for (int document = 0; document < documents.size(); document++) {
+				final List<MatchResult> expected = matcher.match(documents.get(document));
+				assertThat(parallel.matchCount(document), is(expected.size()));
+				for (int index = 0; index < expected.size(); index++) {
+					final int match = parallel.firstMatch(document) + index;
+					assertThat(parallel.getDocument(match), is(document));
+					assertThat(parallel.getKeywordId(match), is(expected.get(index).keywordId()));
+					assertThat(parallel.getStart(match), is(expected.get(index).start()));
+					assertThat(parallel.getEnd(match), is(expected.get(index).end()));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
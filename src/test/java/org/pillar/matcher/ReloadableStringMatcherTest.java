@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import org.pillar.matcher.ReloadableStringMatcher.Generation;
+import org.pillar.matcher.ahocorasick.AhoCorasick;
+
+public class ReloadableStringMatcherTest {
+
+	@Test
+	public void reload() throws Exception {
+		final ReloadableStringMatcher matcher = new ReloadableStringMatcher(AhoCorasick::new, keywords("he", "she"), 
+				Runnable::run);
+		final Generation initial = matcher.current();
+		assertThat(initial.getVersion(), is(0L));
+		assertThat(initial.getKeywordCount(), is(2));
+		assertTrue(matcher.containsMatch("ushers"));
+		assertFalse(matcher.containsMatch("his"));
+
+		final Generation reloaded = matcher.reload(keywords("his")).get();
+		assertThat(reloaded.getVersion(), is(1L));
+		assertSame(reloaded, matcher.current());
+		assertFalse(matcher.containsMatch("ushers"));
+		assertTrue(matcher.containsMatch("his"));
+		assertTrue(initial.getMatcher().containsMatch("ushers"));
+	}
+
+	@Test
+	public void latestReloadWins() throws Exception {
+		final List<Runnable> builds = new ArrayList<>();
+		final ReloadableStringMatcher matcher = new ReloadableStringMatcher(AhoCorasick::new, keywords("a"), 
+				builds::add);
+		final CompletableFuture<Generation> first = matcher.reload(keywords("b"));
+		final CompletableFuture<Generation> second = matcher.reload(keywords("c"));
+		assertThat(matcher.current().getVersion(), is(0L));
+
+		// the second build finishes first, the first one is then dropped
+		builds.get(1).run();
+		builds.get(0).run();
+		assertThat(second.get().getVersion(), is(2L));
+		assertThat(first.get().getVersion(), is(1L));
+		assertSame(second.get(), matcher.current());
+		assertTrue(matcher.containsMatch("c"));
+		assertFalse(matcher.containsMatch("b"));
+	}
+
+	@Test
+	public void failedReload() throws Exception {
+		final ReloadableStringMatcher matcher = new ReloadableStringMatcher(AhoCorasick::new, keywords("a"), 
+				Runnable::run);
+		final CompletableFuture<Generation> reload = matcher.reload(Collections.<String>emptySet());
+		assertTrue(reload.isCompletedExceptionally());
+		assertThat(matcher.getFailedReloads(), is(1L));
+		assertThat(matcher.current().getVersion(), is(0L));
+		assertTrue(matcher.containsMatch("a"));
+
+		final Generation swapped = matcher.swap(new AhoCorasick(keywords("b")));
+		assertThat(swapped.getVersion(), is(2L));
+		assertThat(matcher.getKeyword(0), is("b"));
+	}
+
+	private static Set<String> keywords(String... keywords) {
+		return new HashSet<>(Arrays.asList(keywords));
+	}
+}
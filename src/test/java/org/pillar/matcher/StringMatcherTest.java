@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.pillar.matcher.ahocorasick.AhoCorasick;
+
+public class StringMatcherTest {
+
+	@Test
+	public void defaultMethods() {
+		final StringMatcher delegate = new AhoCorasick(new LinkedHashSet<>(Arrays.asList("he", "she", "hers")));
+		// implements only the methods StringMatcher had originally
+		final StringMatcher matcher = new StringMatcher() {
+			@Override
+			public List<MatchResult> match(String stringToMatch) {
+				return delegate.match(stringToMatch);
+			}
+
+			@Override
+			public boolean containsMatch(String stringToMatch) {
+				return delegate.containsMatch(stringToMatch);
+			}
+		};
+
+		final List<String> matches = new ArrayList<>();
+		assertThat(matcher.match("ushers", (keywordId, start, end) -> {
+			matches.add(keywordId + " " + start + " " + end);
+			return matches.size() < 2;
+		}), is(true));
+		assertThat(matches, is(Arrays.asList("1 1 4", "0 2 4")));
+		assertThat(matcher.getPayload(0), is(nullValue()));
+	}
+
+	@Test
+	public void defaultMatchResult() {
+		// implements only the methods MatchResult had originally
+		final MatchResult matchResult = new MatchResult() {
+			@Override
+			public String matchedString() {
+				return "he";
+			}
+
+			@Override
+			public int start() {
+				return 0;
+			}
+
+			@Override
+			public int end() {
+				return 2;
+			}
+		};
+		assertThat(matchResult.payload(), is(nullValue()));
+		try {
+			matchResult.keywordId();
+			fail("results without keyword ids cannot be passed to a MatchHandler");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void defaultGetKeyword() {
+		new StringMatcher() {
+			@Override
+			public List<MatchResult> match(String stringToMatch) {
+				return new ArrayList<>();
+			}
+
+			@Override
+			public boolean containsMatch(String stringToMatch) {
+				return false;
+			}
+		}.getKeyword(0);
+	}
+}
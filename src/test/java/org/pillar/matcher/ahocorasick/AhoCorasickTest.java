@@ -16,17 +16,26 @@
 
 package org.pillar.matcher.ahocorasick;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.core.Is.is;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Test;
 import org.pillar.matcher.MatchResult;
+import org.pillar.matcher.Replacement;
 
 public class AhoCorasickTest {
 
@@ -84,4 +93,117 @@ public class AhoCorasickTest {
 		
 		assertThat(matchResults.size(), is(7));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void matchHandler() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("his");
+		keywords.add("hers");
+
+		final AhoCorasick ahoCorasick = new AhoCorasick(keywords);
+		final String text = "These are the words she spoke. What's his is hers.";
+
+		final int[] counts = new int[keywords.size()];
+		assertFalse(ahoCorasick.match(text, (keywordId, start, end) -> {
+			assertEquals(ahoCorasick.getKeyword(keywordId), text.substring(start, end));
+			counts[keywordId]++;
+			return true;
+		}));
+		assertArrayEquals(new int[] { 4, 1, 1, 1 }, counts);
+
+		final int[] seen = new int[1];
+		assertTrue(ahoCorasick.match(text, (keywordId, start, end) -> ++seen[0] < 3));
+		assertThat(seen[0], is(3));
+	}
+
+	@Test
+	public void matchPrefixKeywordsWithPayloads() {
+		final Map<String, Integer> keywords = new LinkedHashMap<>();
+		keywords.put("hers", 4);
+		keywords.put("he", 2);
+		keywords.put("ers", 3);
+		keywords.put("s", 1);
+
+		final AhoCorasick ahoCorasick = new AhoCorasick(keywords);
+
+		List<MatchResult> matchResults = ahoCorasick.match("ushers");
+		assertThat(matchResults.size(), is(5));
+		MatchResult matchResult = matchResults.get(0);
+		assertEquals(matchResult.matchedString(), "s");
+		assertEquals(matchResult.keywordId(), 3);
+		assertEquals(matchResult.payload(), 1);
+		
+		matchResult = matchResults.get(1);
+		assertEquals(matchResult.matchedString(), "he");
+		assertEquals(matchResult.keywordId(), 1);
+		assertEquals(matchResult.payload(), 2);
+		
+		// every keyword ending at the same index, from the longest
+		matchResult = matchResults.get(2);
+		assertEquals(matchResult.matchedString(), "hers");
+		assertEquals(matchResult.start(), 2);
+		assertEquals(matchResult.payload(), 4);
+		assertEquals(matchResults.get(3).matchedString(), "ers");
+		assertEquals(matchResults.get(4).matchedString(), "s");
+		assertEquals(ahoCorasick.getPayload(2), 3);
+	}
+
+	@Test
+	public void matchRandomKeywords() {
+		final Random random = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			final Set<String> keywords = new LinkedHashSet<>();
+			final int count = 1 + random.nextInt(100);
+			while (keywords.size() < count) {
+				keywords.add(randomString(random, 1 + random.nextInt(6)));
+			}
+			final String text = randomString(random, 1000);
+
+			final List<String> expected = CompiledAhoCorasickTest.naiveMatch(keywords, text);
+			final List<String> actual = CompiledAhoCorasickTest.toStrings(new AhoCorasick(keywords).match(text));
+			assertEquals(expected.size(), actual.size());
+			assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+		}
+	}
+
+	private static String randomString(Random random, int length) {
+		final StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append((char) ('a' + random.nextInt(4)));
+		}
+		return builder.toString();
+	}
+
+	@Test
+	public void replaceAll() throws IOException {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("hers");
+		final AhoCorasick ahoCorasick = new AhoCorasick(keywords);
+		final String text = "ushers and he, she";
+
+		// by end offset, "she" is replaced before "hers" is seen
+		assertEquals("u[she]rs and [he], [she]", ahoCorasick.replaceAll(text, MatchKind.ALL, 
+				(keywordId, t, start, end) -> "[" + t.subSequence(start, end) + "]"));
+		assertEquals("u***rs and **, ***", ahoCorasick.replaceAll(text, MatchKind.LEFTMOST_FIRST, Replacement.mask('*')));
+		
+		final Map<String, String> replacements = new LinkedHashMap<>();
+		replacements.put("hers", "HERS");
+		replacements.put("she", "SHE");
+		final Replacement replacement = ahoCorasick.newReplacement(replacements);
+		assertEquals("uSHErs and he, SHE", ahoCorasick.replaceAll(text, MatchKind.LEFTMOST_LONGEST, replacement));
+		
+		// a reused StringBuilder, appended to
+		final StringBuilder out = new StringBuilder("> ");
+		ahoCorasick.replaceAll("hers", MatchKind.LEFTMOST_LONGEST, replacement, out);
+		assertEquals("> HERS", out.toString());
+		
+		final StringWriter writer = new StringWriter();
+		ahoCorasick.replaceAll(text, MatchKind.ALL, Replacement.with("<redacted>"), writer);
+		assertEquals("u<redacted>rs and <redacted>, <redacted>", writer.toString());
+		assertEquals("no match", ahoCorasick.replaceAll("no match", MatchKind.ALL, Replacement.with("x")));
+	}
+}
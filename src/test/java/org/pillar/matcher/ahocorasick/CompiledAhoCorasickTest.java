@@ -0,0 +1,740 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.pillar.matcher.MatchResult;
+
+public class CompiledAhoCorasickTest {
+
+	@Test
+	public void match() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("his");
+		keywords.add("hers");
+
+		final CompiledAhoCorasick ahoCorasick = new CompiledAhoCorasick(keywords);
+
+		assertEquals(keywords, ahoCorasick.getKeywords());
+
+		String text = "These are the words she spoke. What's his is hers.";
+
+		assertTrue(ahoCorasick.containsMatch(text));
+		assertFalse(ahoCorasick.containsMatch("No match at all."));
+
+		List<MatchResult> matchResults = ahoCorasick.match(text);
+		assertThat(toStrings(matchResults), is(asList(
+				"he 1 3", "he 11 13", "she 20 23", "he 21 23", "his 38 41", "he 45 47", "hers 45 49")));
+	}
+
+	@Test
+	public void matchNestedKeywords() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("abcd");
+		keywords.add("bc");
+		keywords.add("abc");
+		keywords.add("c");
+		keywords.add("\uFFFF\u0000");
+
+		final CompiledAhoCorasick ahoCorasick = new CompiledAhoCorasick(keywords);
+
+		assertThat(toStrings(ahoCorasick.match("xabcd\uFFFF\u0000")), is(asList(
+				"abc 1 4", "bc 2 4", "c 3 4", "abcd 1 5", "\uFFFF\u0000 5 7")));
+	}
+
+	@Test
+	public void matchRandomKeywords() {
+		final Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			final int alphabet = 2 + random.nextInt(round < 25 ? 4 : 2000);
+			final Set<String> keywords = new LinkedHashSet<>();
+			final int count = 1 + random.nextInt(alphabet < 4 ? 50 : 200);
+			while (keywords.size() < count) {
+				keywords.add(randomString(random, alphabet, 1 + random.nextInt(6)));
+			}
+			final String text = randomString(random, alphabet, 2000);
+
+			final List<String> expected = naiveMatch(keywords, text);
+			for (TransitionMode mode : TransitionMode.values()) {
+				for (TableStorage storage : TableStorage.values()) {
+					final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+							.withKeywords(keywords)
+							.withTransitionMode(mode)
+							.withTableStorage(storage)
+							.build();
+					final List<String> actual = toStrings(ahoCorasick.match(text));
+					assertEquals(expected.size(), actual.size());
+					assertEquals(new LinkedHashSet<>(expected), new LinkedHashSet<>(actual));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void parallelConstruction() {
+		final Random random = new Random(7);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int alphabet : new int[] { 4, 26, 3000 }) {
+				final Set<String> keywords = new LinkedHashSet<>();
+				while (keywords.size() < 20000) {
+					keywords.add(randomString(random, alphabet, 1 + random.nextInt(12)));
+				}
+				// keywords that fold to the same string keep the first id
+				keywords.add("Ab");
+				keywords.add("AB");
+				final String[] folded = KeywordFolding.of(CaseFolding.ASCII, false)
+						.fold(keywords.toArray(new String[keywords.size()]));
+
+				final KeywordTrie sequential = KeywordTrie.build(folded);
+				final KeywordTrie parallel = KeywordTrie.build(folded, pool);
+				assertEquals(sequential.size, parallel.size);
+				assertArrayEquals(sequential.childStart, parallel.childStart);
+				assertArrayEquals(sequential.childLabels, parallel.childLabels);
+				assertArrayEquals(sequential.childTargets, parallel.childTargets);
+				assertArrayEquals(sequential.depth, parallel.depth);
+				assertArrayEquals(sequential.levelStarts, parallel.levelStarts);
+				assertArrayEquals(sequential.fail, parallel.fail);
+				assertArrayEquals(sequential.keywordIds, parallel.keywordIds);
+				assertArrayEquals(sequential.outputLinks, parallel.outputLinks);
+
+				final String text = randomString(random, alphabet, 5000);
+				for (TransitionMode mode : TransitionMode.values()) {
+					if (mode == TransitionMode.DENSE && alphabet > CompiledAhoCorasickBuilder.DENSE_ALPHABET_LIMIT) {
+						continue;
+					}
+					final CompiledAhoCorasickBuilder builder = CompiledAhoCorasickBuilder.create()
+							.withKeywords(keywords)
+							.withTransitionMode(mode)
+							.withCaseFolding(CaseFolding.ASCII);
+					final List<String> expected = toStrings(builder.build().match(text));
+					assertEquals(expected, toStrings(builder.withConstructionPool(pool).build().match(text)));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void statistics() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("his");
+		keywords.add("hers");
+
+		final AutomatonStatistics dense = CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withTransitionMode(TransitionMode.DETERMINISTIC)
+				.build()
+				.getStatistics();
+		assertThat(dense.getTransitionMode(), is(TransitionMode.DENSE));
+		assertThat(dense.getKeywordCount(), is(4));
+		assertThat(dense.getStateCount(), is(10));
+		// h, e, s, i, r and every other character
+		assertThat(dense.getAlphabetSize(), is(6));
+		assertThat(dense.getTransitionTableBytes(), is(dense.getDenseTableBytes()));
+		// 256 page offsets, the page of no keyword char and the ASCII page, then 10 rows of 6 columns
+		assertThat(dense.getTransitionTableBytes(), is(2L * (256 + 2 * 256) + 4L * 10 * 6));
+		assertThat(dense.getTransitionCount(), is(60L));
+		assertThat(dense.getRetainedBytes() > dense.getTransitionTableBytes() + dense.getOutputTableBytes(), is(true));
+		assertThat(dense.getBuildNanos() > 0, is(true));
+
+		final AutomatonStatistics sparse = CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withTransitionMode(TransitionMode.SPARSE)
+				.build()
+				.getStatistics();
+		assertThat(sparse.getTransitionMode(), is(TransitionMode.SPARSE));
+		assertTrue(sparse.getTransitionTableBytes() < sparse.getDenseTableBytes());
+	}
+
+	@Test
+	public void adaptiveLayouts() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		for (char c = 'a'; c <= 't'; c++) {
+			keywords.add("a" + c);
+		}
+		for (char c = 'a'; c <= 'j'; c++) {
+			keywords.add("b" + c);
+		}
+		keywords.add("cab");
+		keywords.add("cad");
+		// 130 more characters, too many for a dense row of "b"
+		final StringBuilder chain = new StringBuilder("x");
+		for (char c = '\u0100'; c < '\u0182'; c++) {
+			chain.append(c);
+		}
+		keywords.add(chain.toString());
+
+		for (TableStorage storage : TableStorage.values()) {
+			final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+					.withKeywords(keywords)
+					.withTransitionMode(TransitionMode.ADAPTIVE)
+					.withTableStorage(storage)
+					.build();
+			final AutomatonStatistics statistics = ahoCorasick.getStatistics();
+			assertThat(statistics.getStateCount(), is(168));
+			// the root and "a"
+			assertThat(statistics.getLayoutCount(TransitionLayout.DENSE), is(2));
+			// "b"
+			assertThat(statistics.getLayoutCount(TransitionLayout.BINARY_SEARCH), is(1));
+			// "ca"
+			assertThat(statistics.getLayoutCount(TransitionLayout.LINEAR_SEARCH), is(1));
+			// "c", and every prefix of the chain
+			assertThat(statistics.getLayoutCount(TransitionLayout.SINGLE_EDGE), is(131));
+			assertThat(statistics.getLayoutCount(TransitionLayout.LEAF), is(33));
+
+			final Random random = new Random(5);
+			final StringBuilder text = new StringBuilder();
+			for (int index = 0; index < 2000; index++) {
+				text.append((char) ('a' + random.nextInt(26)));
+			}
+			text.append(chain).append("cab");
+			assertThat(toStrings(ahoCorasick.match(text.toString())), 
+					is(toStrings(new AhoCorasick(keywords).match(text.toString()))));
+		}
+	}
+
+	@Test
+	public void scanListener() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("his");
+		keywords.add("hers");
+
+		for (TransitionMode mode : TransitionMode.values()) {
+			final ScanMetrics metrics = new ScanMetrics();
+			final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+					.withKeywords(keywords)
+					.withTransitionMode(mode)
+					.build()
+					.withScanListener(metrics);
+			assertThat(ahoCorasick.match("ushers").size(), is(3));
+			// "she" fails to "her" on the r
+			assertThat(metrics.toString(), 
+					is("[scans = 1, charsScanned = 6, failures = 1, matches = 3, stoppedScans = 0]"));
+
+			assertTrue(ahoCorasick.containsMatch("ushers"));
+			assertThat(metrics.toString(), 
+					is("[scans = 2, charsScanned = 10, failures = 1, matches = 4, stoppedScans = 1]"));
+
+			final ScanMetrics leftmost = new ScanMetrics();
+			assertThat(matchKind(keywords, MatchKind.LEFTMOST_LONGEST, mode).withScanListener(leftmost)
+					.match("ushers").size(), is(1));
+			assertThat(leftmost.toString(), 
+					is("[scans = 1, charsScanned = 6, failures = 1, matches = 1, stoppedScans = 0]"));
+		}
+	}
+
+	@Test
+	public void minimization() throws IOException {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("shop1.example.com");
+		keywords.add("Shop2.example.com");
+		keywords.add("shop3.example.com");
+		keywords.add("example.com");
+		final String text = "shop2.example.com, SHOP1.example.com and shop3.example.co";
+
+		for (TransitionMode mode : new TransitionMode[] { TransitionMode.DENSE, TransitionMode.SPARSE,
+				TransitionMode.ADAPTIVE }) {
+			for (MatchKind matchKind : MatchKind.values()) {
+				final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+						.withKeywords(keywords)
+						.withTransitionMode(mode)
+						.withMatchKind(matchKind)
+						.withCaseFolding(CaseFolding.ASCII)
+						.withMinimization(true)
+						.build();
+				final AutomatonStatistics statistics = ahoCorasick.getStatistics();
+				// the three ".example.com" branches below "shop" are merged
+				assertThat(statistics.getTrieStateCount(), is(55));
+				assertThat(statistics.getStateCount(), is(29));
+				assertTrue(statistics.isMinimized());
+				assertThat(toStrings(ahoCorasick.match(text)), is(toStrings(new AhoCorasick(keywords, matchKind,
+						CaseFolding.ASCII).match(text))));
+
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				ahoCorasick.writeTo(out);
+				final CompiledAhoCorasick loaded = CompiledAhoCorasick.read(new ByteArrayInputStream(out.toByteArray()));
+				assertThat(loaded.getStatistics().getStateCount(), is(29));
+				assertThat(toStrings(loaded.match(text)), is(toStrings(ahoCorasick.match(text))));
+			}
+		}
+		try {
+			CompiledAhoCorasickBuilder.create().withKeywords(keywords).withTransitionMode(TransitionMode.SPARSE)
+					.withMinimization(true).build().newStreamingMatcher((keywordId, start, end) -> true);
+			fail("minimized state machines cannot stream");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertThat(toStrings(CompiledAhoCorasickBuilder.create().withKeywords(keywords)
+				.withTransitionMode(TransitionMode.DETERMINISTIC).withMinimization(true).build().match(text)),
+				is(asList("example.com 6 17", "example.com 25 36")));
+
+		final Random random = new Random(17);
+		for (int round = 0; round < 30; round++) {
+			final int alphabet = 2 + random.nextInt(4);
+			final Set<String> randomKeywords = new LinkedHashSet<>();
+			final String suffix = randomString(random, alphabet, 1 + random.nextInt(8));
+			final int count = 1 + random.nextInt(alphabet < 4 ? 20 : 60);
+			while (randomKeywords.size() < count) {
+				final String prefix = randomString(random, alphabet, 1 + random.nextInt(4));
+				randomKeywords.add(random.nextBoolean() ? prefix + suffix : prefix);
+			}
+			final String randomText = randomString(random, alphabet, 1000);
+			for (MatchKind matchKind : MatchKind.values()) {
+				final List<String> expected = toStrings(new AhoCorasick(randomKeywords, matchKind).match(randomText));
+				for (TableStorage storage : TableStorage.values()) {
+					final CompiledAhoCorasick minimized = CompiledAhoCorasickBuilder.create()
+							.withKeywords(randomKeywords)
+							.withMatchKind(matchKind)
+							.withTransitionMode(TransitionMode.values()[round % 4 + 1])
+							.withTableStorage(storage)
+							.withMinimization(true)
+							.build();
+					assertEquals(expected, toStrings(minimized.match(randomText)));
+					assertTrue(minimized.getStatistics().getStateCount()
+							<= minimized.getStatistics().getTrieStateCount());
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void minimizationWithGotoFailure() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		CompiledAhoCorasickBuilder.create().withKeywords(keywords).withMinimization(true).build();
+	}
+
+	@Test
+	public void matchWithPayloads() {
+		final Map<String, String> keywords = new LinkedHashMap<>();
+		keywords.put("hers", "HERS");
+		keywords.put("he", "HE");
+		keywords.put("she", null);
+
+		final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.build();
+
+		final List<MatchResult> matchResults = ahoCorasick.match("ushers");
+		assertThat(toStrings(matchResults), is(asList("she 1 4", "he 2 4", "hers 2 6")));
+		assertThat(matchResults.get(0).keywordId(), is(2));
+		assertThat(matchResults.get(0).payload(), is(nullValue()));
+		assertThat(matchResults.get(1).payload(), is((Object) "HE"));
+		assertThat(matchResults.get(2).payload(), is((Object) "HERS"));
+		assertThat(ahoCorasick.getPayload(0), is((Object) "HERS"));
+	}
+
+	private static String randomString(Random random, int alphabet, int length) {
+		final StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append((char) ('a' + random.nextInt(alphabet)));
+		}
+		return builder.toString();
+	}
+
+	static List<String> naiveMatch(Set<String> keywords, String text) {
+		final List<String> matches = new ArrayList<>();
+		for (String keyword : keywords) {
+			for (int start = text.indexOf(keyword); start >= 0; start = text.indexOf(keyword, start + 1)) {
+				matches.add(keyword + " " + start + " " + (start + keyword.length()));
+			}
+		}
+		return matches;
+	}
+
+	static List<String> toStrings(List<MatchResult> matchResults) {
+		final List<String> strings = new ArrayList<>();
+		for (MatchResult matchResult : matchResults) {
+			strings.add(matchResult.matchedString() + " " + matchResult.start() + " " + matchResult.end());
+		}
+		return strings;
+	}
+
+	private static List<String> asList(String... strings) {
+		final List<String> list = new ArrayList<>();
+		for (String string : strings) {
+			list.add(string);
+		}
+		return list;
+	}
+
+	@Test
+	public void matchHandler() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("his");
+		keywords.add("hers");
+
+		final CompiledAhoCorasick ahoCorasick = new CompiledAhoCorasick(keywords);
+		final String text = "These are the words she spoke. What's his is hers.";
+
+		final int[] counts = new int[keywords.size()];
+		assertFalse(ahoCorasick.match(text, (keywordId, start, end) -> {
+			assertEquals(ahoCorasick.getKeyword(keywordId), text.substring(start, end));
+			counts[keywordId]++;
+			return true;
+		}));
+		assertArrayEquals(new int[] { 4, 1, 1, 1 }, counts);
+
+		final int[] seen = new int[1];
+		assertTrue(ahoCorasick.match(text, (keywordId, start, end) -> ++seen[0] < 3));
+		assertThat(seen[0], is(3));
+	}
+
+	@Test
+	public void writeAndLoad() throws IOException {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("his");
+		keywords.add("hers");
+		keywords.add("\uFFFF\uD800");
+		final String text = "These are the words she spoke. What's his is hers.\uFFFF\uD800";
+
+		for (TransitionMode mode : TransitionMode.values()) {
+			final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+					.withKeywords(keywords)
+					.withTransitionMode(mode)
+					.build();
+			final Path file = Files.createTempFile("automaton", ".bin");
+			try {
+				ahoCorasick.writeTo(file);
+				final CompiledAhoCorasick loaded = CompiledAhoCorasick.load(file);
+				assertEquals(keywords, loaded.getKeywords());
+				assertThat(toStrings(loaded.match(text)), is(toStrings(ahoCorasick.match(text))));
+				assertThat(loaded.getStatistics().toString(), is(ahoCorasick.getStatistics().toString()));
+
+				final CompiledAhoCorasick mapped = CompiledAhoCorasick.map(file);
+				assertThat(toStrings(mapped.match(text)), is(toStrings(ahoCorasick.match(text))));
+				assertThat(mapped.getStatistics().toString(), is(ahoCorasick.getStatistics().toString()));
+
+				// a mapped state machine can be written again
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				mapped.writeTo(out);
+				assertArrayEquals(Files.readAllBytes(file), out.toByteArray());
+			} finally {
+				Files.delete(file);
+			}
+		}
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CompiledAhoCorasick(keywords).writeTo(out);
+		final byte[] bytes = out.toByteArray();
+		assertThat(toStrings(CompiledAhoCorasick.read(new ByteArrayInputStream(bytes)).match(text)), is(asList(
+				"he 1 3", "he 11 13", "she 20 23", "he 21 23", "his 38 41", "he 45 47", "hers 45 49",
+				"\uFFFF\uD800 50 52")));
+
+		// another format version
+		final byte[] stale = bytes.clone();
+		stale[7]++;
+		try {
+			CompiledAhoCorasick.read(new ByteArrayInputStream(stale));
+			fail("loaded another format version");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("version"));
+		}
+
+		final byte[] corrupt = bytes.clone();
+		corrupt[bytes.length / 2] ^= 1;
+		try {
+			CompiledAhoCorasick.read(new ByteArrayInputStream(corrupt));
+			fail("loaded a corrupt automaton");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("checksum"));
+		}
+	}
+
+	@Test
+	public void matchKinds() throws IOException {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("abc");
+		keywords.add("abcd");
+		keywords.add("bcde");
+		keywords.add("b");
+		final String text = "xabcdex abcbcde";
+
+		assertThat(toStrings(matchKind(keywords, MatchKind.LEFTMOST_FIRST, TransitionMode.GOTO_FAILURE).match(text)),
+				is(asList("abc 1 4", "abc 8 11", "bcde 11 15")));
+		assertThat(toStrings(matchKind(keywords, MatchKind.LEFTMOST_LONGEST, TransitionMode.SPARSE).match(text)),
+				is(asList("abcd 1 5", "abc 8 11", "bcde 11 15")));
+		assertThat(toStrings(new AhoCorasick(keywords, MatchKind.LEFTMOST_LONGEST).match(text)),
+				is(asList("abcd 1 5", "abc 8 11", "bcde 11 15")));
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		matchKind(keywords, MatchKind.LEFTMOST_LONGEST, TransitionMode.DENSE).writeTo(out);
+		final CompiledAhoCorasick loaded = CompiledAhoCorasick.read(new ByteArrayInputStream(out.toByteArray()));
+		assertThat(loaded.getMatchKind(), is(MatchKind.LEFTMOST_LONGEST));
+		assertThat(toStrings(loaded.match(text)), is(asList("abcd 1 5", "abc 8 11", "bcde 11 15")));
+
+		final Random random = new Random(11);
+		for (int round = 0; round < 50; round++) {
+			final int alphabet = 2 + random.nextInt(4);
+			final Set<String> randomKeywords = new LinkedHashSet<>();
+			final int count = 1 + random.nextInt(alphabet < 4 ? 20 : 60);
+			while (randomKeywords.size() < count) {
+				randomKeywords.add(randomString(random, alphabet, 1 + random.nextInt(6)));
+			}
+			final String randomText = randomString(random, alphabet, 500);
+			for (MatchKind matchKind : new MatchKind[] { MatchKind.LEFTMOST_FIRST, MatchKind.LEFTMOST_LONGEST }) {
+				final List<String> expected = naiveLeftmostMatch(randomKeywords, randomText, matchKind);
+				assertEquals(expected, toStrings(new AhoCorasick(randomKeywords, matchKind).match(randomText)));
+				for (TransitionMode mode : TransitionMode.values()) {
+					assertEquals(expected, toStrings(matchKind(randomKeywords, matchKind, mode).match(randomText)));
+				}
+			}
+		}
+	}
+
+	private static CompiledAhoCorasick matchKind(Set<String> keywords, MatchKind matchKind, TransitionMode mode) {
+		return CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withMatchKind(matchKind)
+				.withTransitionMode(mode)
+				.build();
+	}
+
+	private static List<String> naiveLeftmostMatch(Set<String> keywords, String text, MatchKind matchKind) {
+		final List<String> matches = new ArrayList<>();
+		int start = 0;
+		while (start < text.length()) {
+			String best = null;
+			for (String keyword : keywords) {
+				if (text.startsWith(keyword, start)) {
+					if (best == null || (matchKind == MatchKind.LEFTMOST_LONGEST && keyword.length() > best.length())) {
+						best = keyword;
+					}
+				}
+			}
+			if (best == null) {
+				start++;
+			} else {
+				matches.add(best + " " + start + " " + (start + best.length()));
+				start += best.length();
+			}
+		}
+		return matches;
+	}
+
+	@Test
+	public void caseFolding() throws IOException {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("Hers");
+		keywords.add("she");
+		keywords.add("HE");
+		keywords.add("\u03A3\u03BF\u03C6\u03AF\u03B1");
+		final String text = "uSHErs \u03C3\u039F\u03A6\u038A\u0391 he";
+
+		final CompiledAhoCorasick ascii = CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withCaseFolding(CaseFolding.ASCII)
+				.build();
+		assertThat(toStrings(ascii.match(text)), is(asList("she 1 4", "HE 2 4", "Hers 2 6", "HE 13 15")));
+
+		// sigma, iota with tonos and alpha only fold with Unicode case folding
+		final List<String> expected = asList("she 1 4", "HE 2 4", "Hers 2 6", "\u03A3\u03BF\u03C6\u03AF\u03B1 7 12",
+				"HE 13 15");
+		for (TransitionMode mode : TransitionMode.values()) {
+			final CompiledAhoCorasick simple = CompiledAhoCorasickBuilder.create()
+					.withKeywords(keywords)
+					.withCaseFolding(CaseFolding.SIMPLE)
+					.withTransitionMode(mode)
+					.build();
+			assertThat(toStrings(simple.match(text.replace(" he", " hE"))), is(expected));
+		}
+		final AhoCorasick ahoCorasick = new AhoCorasick(keywords, MatchKind.ALL, CaseFolding.SIMPLE);
+		assertThat(toStrings(ahoCorasick.match(text.replace(" he", " hE"))), is(expected));
+
+		// the keywords fold to the same string, the first is reported
+		final Set<String> duplicates = new LinkedHashSet<>();
+		duplicates.add("Abc");
+		duplicates.add("aBC");
+		final CompiledAhoCorasick folded = CompiledAhoCorasickBuilder.create()
+				.withKeywords(duplicates)
+				.withCaseFolding(CaseFolding.ASCII)
+				.build();
+		assertThat(toStrings(folded.match("xABC")), is(asList("Abc 1 4")));
+		assertThat(toStrings(new AhoCorasick(duplicates, MatchKind.ALL, CaseFolding.ASCII).match("xABC")),
+				is(asList("Abc 1 4")));
+
+		// the ligature keyword is normalized to "file", and its match is 4 chars long
+		final Set<String> ligatures = new LinkedHashSet<>();
+		ligatures.add("\uFB01le");
+		final CompiledAhoCorasick normalized = CompiledAhoCorasickBuilder.create()
+				.withKeywords(ligatures)
+				.withCaseFolding(CaseFolding.SIMPLE)
+				.withNormalizedKeywords(true)
+				.build();
+		final List<MatchResult> matchResults = normalized.match("a FILE");
+		assertThat(matchResults.size(), is(1));
+		assertThat(matchResults.get(0).start(), is(2));
+		assertThat(matchResults.get(0).end(), is(6));
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		normalized.writeTo(out);
+		final CompiledAhoCorasick loaded = CompiledAhoCorasick.read(new ByteArrayInputStream(out.toByteArray()));
+		assertThat(loaded.getCaseFolding(), is(CaseFolding.SIMPLE));
+		assertThat(toStrings(loaded.match("a FILE")), is(toStrings(matchResults)));
+	}
+
+	@Test
+	public void prefilter() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("xa");
+		keywords.add("Xab");
+		keywords.add("ya");
+		keywords.add("a");
+		assertTrue(CompiledAhoCorasickBuilder.create().withKeywords(keywords).build().isPrefiltered());
+		assertFalse(CompiledAhoCorasickBuilder.create().withKeywords(keywords).withPrefilter(Prefilter.OFF).build()
+				.isPrefiltered());
+		assertTrue(new AhoCorasick(keywords).isPrefiltered());
+
+		final Set<String> letters = new LinkedHashSet<>();
+		for (char letter = 'a'; letter <= 'z'; letter++) {
+			letters.add(letter + "b");
+		}
+		assertFalse(CompiledAhoCorasickBuilder.create().withKeywords(letters).build().isPrefiltered());
+		// the requested setting overrides what AUTO would choose, wherever the tables are stored
+		for (TableStorage storage : TableStorage.values()) {
+			assertTrue(CompiledAhoCorasickBuilder.create().withKeywords(letters).withTableStorage(storage)
+					.withPrefilter(Prefilter.ON).build().isPrefiltered());
+			assertFalse(CompiledAhoCorasickBuilder.create().withKeywords(keywords).withTableStorage(storage)
+					.withPrefilter(Prefilter.OFF).build().isPrefiltered());
+			assertFalse(CompiledAhoCorasickBuilder.create().withKeywords(letters).withTableStorage(storage)
+					.build().isPrefiltered());
+		}
+
+		final Random random = new Random(11);
+		for (int round = 0; round < 20; round++) {
+			final String text = randomString(random, 26, 3000) + "XAB xab";
+			for (MatchKind kind : MatchKind.values()) {
+				for (CaseFolding folding : CaseFolding.values()) {
+					final CompiledAhoCorasickBuilder builder = CompiledAhoCorasickBuilder.create()
+							.withKeywords(keywords)
+							.withMatchKind(kind)
+							.withCaseFolding(folding)
+							.withWordBoundaries(round % 2 == 0 ? null : Character::isDigit);
+					final List<String> expected = toStrings(builder.withPrefilter(Prefilter.OFF).build().match(text));
+					assertEquals(expected, toStrings(builder.withPrefilter(Prefilter.ON).build().match(text)));
+				}
+			}
+			final List<String> streamed = new ArrayList<>();
+			final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create().withKeywords(keywords).build();
+			final StreamingMatcher matcher = ahoCorasick.newStreamingMatcher((keywordId, start, end) -> 
+					streamed.add(ahoCorasick.getKeyword(keywordId) + " " + start + " " + end));
+			matcher.match(text.substring(0, 1000));
+			matcher.match(text.substring(1000).toCharArray(), 0, text.length() - 1000);
+			assertEquals(toStrings(ahoCorasick.match(text)), streamed);
+		}
+	}
+
+	@Test
+	public void wordBoundaries() throws IOException {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("hers");
+		keywords.add("is his");
+		final String text = "He said she is his, hers is hers.";
+
+		final CompiledAhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withWordBoundaries(Character::isLetterOrDigit)
+				.build();
+		assertThat(toStrings(ahoCorasick.match(text)), is(asList("she 8 11", "is his 12 18", "hers 20 24",
+				"hers 28 32")));
+		assertFalse(ahoCorasick.containsMatch("ushers, theirs"));
+		assertTrue(ahoCorasick.containsMatch("ushers, he"));
+
+		final CompiledAhoCorasick longest = CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withWordBoundaries(Character::isLetterOrDigit)
+				.withCaseFolding(CaseFolding.ASCII)
+				.withMatchKind(MatchKind.LEFTMOST_LONGEST)
+				.build();
+		assertThat(toStrings(longest.match(text)), is(asList("he 0 2", "she 8 11", "is his 12 18", "hers 20 24",
+				"hers 28 32")));
+		assertThat(toStrings(new AhoCorasick(keywords, MatchKind.LEFTMOST_LONGEST, CaseFolding.ASCII,
+				Character::isLetterOrDigit).match(text)), is(toStrings(longest.match(text))));
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		longest.writeTo(out);
+		final CompiledAhoCorasick loaded = CompiledAhoCorasick.read(new ByteArrayInputStream(out.toByteArray()));
+		assertThat(toStrings(loaded.match(text)), is(toStrings(longest.match(text))));
+
+		final Random random = new Random(5);
+		for (int round = 0; round < 30; round++) {
+			final Set<String> randomKeywords = new LinkedHashSet<>();
+			while (randomKeywords.size() < 20) {
+				randomKeywords.add(randomString(random, 3, 1 + random.nextInt(4)));
+			}
+			// 'c' is not a word char
+			final String randomText = randomString(random, 3, 500);
+			final List<String> expected = new ArrayList<>();
+			for (String match : naiveMatch(randomKeywords, randomText)) {
+				final String[] parts = match.split(" ");
+				final int start = Integer.parseInt(parts[1]);
+				final int end = Integer.parseInt(parts[2]);
+				if ((start == 0 || randomText.charAt(start - 1) == 'c')
+						&& (end == randomText.length() || randomText.charAt(end) == 'c')) {
+					expected.add(match);
+				}
+			}
+			for (TransitionMode mode : TransitionMode.values()) {
+				final CompiledAhoCorasick bounded = CompiledAhoCorasickBuilder.create()
+						.withKeywords(randomKeywords)
+						.withTransitionMode(mode)
+						.withWordBoundaries(c -> c != 'c')
+						.build();
+				final List<String> actual = toStrings(bounded.match(randomText));
+				assertEquals(new LinkedHashSet<>(expected), new LinkedHashSet<>(actual));
+				assertEquals(expected.size(), actual.size());
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class MatchProcessorTest {
+
+	@Test
+	public void matchAcrossChunks() {
+		final MatchProcessor processor = ahoCorasick().newMatchProcessor();
+		final ChunkPublisher publisher = new ChunkPublisher("ush", "ers", "", " s", "he");
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+
+		assertThat(subscriber.matches, is(Arrays.asList("she 1 4", "he 2 4", "hers 2 6", "she 7 10", "he 8 10")));
+		assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void honourDemand() {
+		final MatchProcessor processor = ahoCorasick().newMatchProcessor();
+		final ChunkPublisher publisher = new ChunkPublisher("ushers", "xxxx", "she");
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		processor.subscribe(subscriber);
+		publisher.subscribe(processor);
+		assertThat(publisher.requested, is(1L));
+		assertTrue(subscriber.matches.isEmpty());
+
+		subscriber.subscription.request(1);
+		assertThat(subscriber.matches, is(Arrays.asList("she 1 4")));
+		// the first chunk is not fully scanned yet
+		assertThat(publisher.requested, is(1L));
+
+		subscriber.subscription.request(2);
+		assertThat(subscriber.matches.size(), is(3));
+		assertThat(publisher.requested, is(3L));
+		assertFalse(subscriber.completed);
+
+		subscriber.subscription.request(5);
+		assertThat(subscriber.matches.subList(3, 5), is(Arrays.asList("she 10 13", "he 11 13")));
+		assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void cancel() {
+		final MatchProcessor processor = ahoCorasick().newMatchProcessor();
+		final ChunkPublisher publisher = new ChunkPublisher("he he he");
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(1);
+
+		assertThat(subscriber.matches, is(Arrays.asList("he 0 2")));
+		assertTrue(publisher.cancelled);
+		assertFalse(subscriber.completed);
+	}
+
+	@Test
+	public void errors() {
+		final MatchProcessor processor = ahoCorasick().newMatchProcessor();
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		processor.subscribe(subscriber);
+		new ChunkPublisher("she").subscribe(processor);
+		subscriber.subscription.request(0);
+		assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+
+		final MatchProcessor failing = ahoCorasick().newMatchProcessor();
+		final RecordingSubscriber failed = new RecordingSubscriber();
+		failing.subscribe(failed);
+		failing.onSubscribe(new ChunkPublisher());
+		failed.subscription.request(1);
+		failing.onNext("he");
+		failing.onError(new IOException());
+		assertThat(failed.matches, is(Arrays.asList("he 0 2")));
+		assertThat(failed.error, instanceOf(IOException.class));
+
+		final RecordingSubscriber second = new RecordingSubscriber();
+		failing.subscribe(second);
+		assertThat(second.error, instanceOf(IllegalStateException.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void leftmostMatchKind() {
+		new AhoCorasick(new HashSet<>(Arrays.asList("he")), MatchKind.LEFTMOST_FIRST).newMatchProcessor();
+	}
+
+	private static AhoCorasick ahoCorasick() {
+		return new AhoCorasick(new HashSet<>(Arrays.asList("he", "she", "hers")));
+	}
+
+	/*
+	 * Publishes the given chunks, as requested, then completes.
+	 */
+	private static final class ChunkPublisher implements Publisher<CharSequence>, Subscription {
+		private final List<String> chunks;
+		private Subscriber<? super CharSequence> subscriber;
+		private long requested;
+		private int published;
+		private boolean cancelled;
+
+		ChunkPublisher(String... chunks) {
+			this.chunks = Arrays.asList(chunks);
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super CharSequence> subscriber) {
+			this.subscriber = subscriber;
+			subscriber.onSubscribe(this);
+		}
+
+		@Override
+		public void request(long n) {
+			requested += n;
+			while (!cancelled && published < requested && published < chunks.size()) {
+				subscriber.onNext(chunks.get(published++));
+			}
+			if (!cancelled && published == chunks.size() && subscriber != null) {
+				subscriber.onComplete();
+				subscriber = null;
+			}
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+
+	private static final class RecordingSubscriber implements Subscriber<StreamMatchResult> {
+		private final List<String> matches = new ArrayList<>();
+		private Subscription subscription;
+		private boolean completed;
+		private Throwable error;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(StreamMatchResult match) {
+			matches.add(match.matchedString() + " " + match.start() + " " + match.end());
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class ParallelFileMatcherTest {
+
+	@Test
+	public void matchAcrossChunks() throws IOException {
+		final Random random = new Random(7);
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("aé");
+		keywords.add("éa");
+		keywords.add("bab");
+		keywords.add("abababab");
+		keywords.add("€b");
+		final StringBuilder text = new StringBuilder();
+		final String[] alphabet = { "a", "b", "é", "€" };
+		for (int i = 0; i < 5000; i++) {
+			text.append(alphabet[random.nextInt(alphabet.length)]);
+		}
+
+		final Utf8AhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create().withKeywords(keywords).buildUtf8();
+		final Path file = Files.createTempFile("parallel", ".txt");
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+			final List<String> expected = new ArrayList<>();
+			ahoCorasick.match(file, (keywordId, start, end) -> expected.add(keywordId + " " + start + " " + end));
+			assertTrue(expected.size() > 100);
+
+			for (int chunkSize : new int[] { 1, 2, 7, 64, 1000, 1 << 20 }) {
+				final ParallelFileMatcher matcher = new ParallelFileMatcher(ahoCorasick, pool, chunkSize);
+				final List<String> actual = new ArrayList<>();
+				for (FileMatchResult matchResult : matcher.match(file)) {
+					actual.add(matchResult.keywordId() + " " + matchResult.start() + " " + matchResult.end());
+				}
+				assertEquals(expected, actual);
+
+				final int[] seen = new int[1];
+				assertTrue(matcher.match(file, (keywordId, start, end) -> ++seen[0] < 10));
+				assertEquals(10, seen[0]);
+
+				try {
+					matcher.match(file, (keywordId, start, end) -> {
+						throw new IllegalStateException("handler failed");
+					});
+					fail("the handler's exception should propagate");
+				} catch (IllegalStateException e) {
+					// expected, after the chunk tasks are done with the file
+				}
+			}
+		} finally {
+			pool.shutdown();
+			Files.delete(file);
+		}
+	}
+}
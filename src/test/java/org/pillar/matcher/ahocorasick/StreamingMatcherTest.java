@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.pillar.matcher.StreamMatchHandler;
+
+public class StreamingMatcherTest {
+
+	private static Set<String> keywords() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("his");
+		keywords.add("hers");
+		keywords.add("été");
+		return keywords;
+	}
+
+	@Test
+	public void matchChunks() {
+		final CompiledAhoCorasick ahoCorasick = new CompiledAhoCorasick(keywords());
+		final String text = "These are the words she spoke. What's his is hers.";
+		final List<String> expected = CompiledAhoCorasickTest.toStrings(ahoCorasick.match(text));
+
+		for (int chunkSize = 1; chunkSize <= text.length(); chunkSize++) {
+			final List<String> actual = new ArrayList<>();
+			final StreamingMatcher streamingMatcher = ahoCorasick.newStreamingMatcher(collect(ahoCorasick, actual));
+			for (int start = 0; start < text.length(); start += chunkSize) {
+				final String chunk = text.substring(start, Math.min(text.length(), start + chunkSize));
+				if (chunkSize % 2 == 0) {
+					assertFalse(streamingMatcher.match(chunk.toCharArray(), 0, chunk.length()));
+				} else {
+					assertFalse(streamingMatcher.match(CharBuffer.wrap(chunk)));
+				}
+			}
+			assertEquals(expected, actual);
+			assertThat(streamingMatcher.getPosition(), is((long) text.length()));
+		}
+	}
+
+	@Test
+	public void matchReaderAndInputStream() throws IOException {
+		final AhoCorasick ahoCorasick = new AhoCorasick(keywords());
+		final StringBuilder builder = new StringBuilder();
+		while (builder.length() < 100000) {
+			builder.append("été chez elle, she said ");
+		}
+		final String text = builder.toString();
+		final List<String> expected = CompiledAhoCorasickTest.toStrings(ahoCorasick.match(text));
+
+		final List<String> fromReader = new ArrayList<>();
+		final StreamingMatcher streamingMatcher = ahoCorasick.newStreamingMatcher(collect(ahoCorasick, fromReader));
+		assertFalse(streamingMatcher.match(new StringReader(text)));
+		assertEquals(expected, fromReader);
+
+		final List<String> fromStream = new ArrayList<>();
+		final StreamingMatcher byteMatcher = ahoCorasick.newStreamingMatcher(collect(ahoCorasick, fromStream));
+		assertFalse(byteMatcher.match(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), 
+				StandardCharsets.UTF_8));
+		assertEquals(expected, fromStream);
+		assertThat(byteMatcher.getPosition(), is((long) text.length()));
+	}
+
+	@Test
+	public void stopInCharBuffer() {
+		final CompiledAhoCorasick ahoCorasick = new CompiledAhoCorasick(keywords());
+		// a wrapped String has no array, a wrapped char array has one
+		for (CharBuffer buffer : new CharBuffer[] { CharBuffer.wrap("xshexxxx"), 
+				CharBuffer.wrap("xshexxxx".toCharArray()) }) {
+			final StreamingMatcher streamingMatcher = ahoCorasick.newStreamingMatcher((keywordId, start, end) -> false);
+			assertTrue(streamingMatcher.match(buffer));
+			// consumed up to the end of "she"
+			assertThat(buffer.position(), is(4));
+			assertThat(streamingMatcher.getPosition(), is(4L));
+		}
+	}
+
+	@Test
+	public void stop() {
+		final CompiledAhoCorasick ahoCorasick = new CompiledAhoCorasick(keywords());
+		final long[] ends = new long[1];
+		final StreamingMatcher streamingMatcher = ahoCorasick.newStreamingMatcher((keywordId, start, end) -> {
+			ends[0] = end;
+			return false;
+		});
+		assertFalse(streamingMatcher.match("xxxxs"));
+		assertTrue(streamingMatcher.match("hexxxx"));
+		assertThat(ends[0], is(7L));
+		assertTrue(streamingMatcher.isStopped());
+		assertThat(streamingMatcher.getPosition(), is(7L));
+		assertTrue(streamingMatcher.match("he"));
+
+		streamingMatcher.reset();
+		assertTrue(streamingMatcher.match("his"));
+		assertThat(ends[0], is(3L));
+	}
+
+	private static StreamMatchHandler collect(AbstractAhoCorasick ahoCorasick, List<String> matches) {
+		return (keywordId, start, end) -> matches.add(ahoCorasick.getKeyword(keywordId) + " " + start + " " + end);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.pillar.matcher.ahocorasick.CompiledAhoCorasickTest.naiveMatch;
+import static org.pillar.matcher.ahocorasick.CompiledAhoCorasickTest.toStrings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class UpdatableAhoCorasickTest {
+
+	@Test
+	public void addAndRemove() {
+		final UpdatableAhoCorasick ahoCorasick = new UpdatableAhoCorasick(
+				new LinkedHashSet<>(Arrays.asList("he", "she")));
+		final AhoCorasickSnapshot initial = ahoCorasick.snapshot();
+		assertThat(initial.getVersion(), is(0L));
+		assertThat(toStrings(initial.match("ushers")), is(Arrays.asList("she 1 4", "he 2 4")));
+
+		assertTrue(ahoCorasick.add("hers"));
+		assertFalse(ahoCorasick.add("hers"));
+		assertTrue(ahoCorasick.remove("he"));
+		assertFalse(ahoCorasick.remove("he"));
+
+		final AhoCorasickSnapshot updated = ahoCorasick.snapshot();
+		assertThat(updated.getVersion(), is(2L));
+		assertThat(updated.getKeywords(), is((Set<String>) new HashSet<>(Arrays.asList("she", "hers"))));
+		assertThat(toStrings(updated.match("ushers")), is(Arrays.asList("she 1 4", "hers 2 6")));
+		// the removed keyword's id is free, and not reused
+		assertNull(updated.getKeyword(0));
+		assertTrue(ahoCorasick.add("he"));
+		assertNull(ahoCorasick.snapshot().getKeyword(0));
+		assertThat(ahoCorasick.snapshot().getKeyword(3), is("he"));
+		assertThat(new ArrayList<>(ahoCorasick.snapshot().getKeywords()), is(Arrays.asList("she", "hers", "he")));
+
+		// published snapshots never change
+		assertThat(toStrings(initial.match("ushers")), is(Arrays.asList("she 1 4", "he 2 4")));
+		assertThat(initial.getKeywords(), is((Set<String>) new HashSet<>(Arrays.asList("he", "she"))));
+	}
+
+	@Test
+	public void update() {
+		final UpdatableAhoCorasick ahoCorasick = new UpdatableAhoCorasick(Collections.<String>emptySet());
+		assertFalse(ahoCorasick.snapshot().containsMatch("abc"));
+
+		final AhoCorasickSnapshot snapshot = ahoCorasick.update(Arrays.asList("ab", "bc", "c"), 
+				Collections.<String>emptyList());
+		assertThat(snapshot.getVersion(), is(1L));
+		assertThat(toStrings(snapshot.match("abc")), is(Arrays.asList("ab 0 2", "bc 1 3", "c 2 3")));
+
+		// removals are applied first
+		assertThat(toStrings(ahoCorasick.update(Arrays.asList("c"), Arrays.asList("c", "bc")).match("abc")),
+				is(Arrays.asList("ab 0 2", "c 2 3")));
+		assertThat(ahoCorasick.update(Arrays.asList("ab"), Arrays.asList("zz")).getVersion(), is(2L));
+	}
+
+	@Test
+	public void leftmostFirstAfterRemoveAndAdd() {
+		final UpdatableAhoCorasick ahoCorasick = new UpdatableAhoCorasick(
+				new LinkedHashSet<>(Arrays.asList("ab", "abcd", "bc")), MatchKind.LEFTMOST_FIRST);
+		assertThat(toStrings(ahoCorasick.snapshot().match("abcd")), is(Arrays.asList("ab 0 2")));
+
+		// added again, the keyword ranks after the others
+		ahoCorasick.update(Arrays.asList("ab"), Arrays.asList("ab"));
+		assertThat(toStrings(ahoCorasick.snapshot().match("abcd")), is(Arrays.asList("abcd 0 4")));
+		assertTrue(ahoCorasick.remove("ab"));
+		assertTrue(ahoCorasick.add("ab"));
+		assertThat(toStrings(ahoCorasick.snapshot().match("abcd")), is(Arrays.asList("abcd 0 4")));
+		assertTrue(ahoCorasick.remove("abcd"));
+		assertTrue(ahoCorasick.add("abcd"));
+		assertThat(toStrings(ahoCorasick.snapshot().match("abcd")), is(Arrays.asList("ab 0 2")));
+
+		// renumbering the keywords keeps their order
+		for (int i = 0; i < 40; i++) {
+			assertTrue(ahoCorasick.add("x" + i));
+			assertTrue(ahoCorasick.remove("x" + i));
+		}
+		final AhoCorasickSnapshot snapshot = ahoCorasick.snapshot();
+		assertThat(new ArrayList<>(snapshot.getKeywords()), is(Arrays.asList("bc", "ab", "abcd")));
+		assertThat(snapshot.getKeyword(0), is("bc"));
+		assertThat(toStrings(snapshot.match("abcd")), is(Arrays.asList("ab 0 2")));
+		assertThat(toStrings(snapshot.match("bcd")), is(Arrays.asList("bc 0 2")));
+	}
+
+	@Test
+	public void matchAfterRandomUpdates() {
+		final Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			final int alphabet = 2 + random.nextInt(round < 10 ? 3 : 20);
+			final Set<String> keywords = new LinkedHashSet<>();
+			while (keywords.size() < 20) {
+				keywords.add(randomString(random, alphabet, 1 + random.nextInt(6)));
+			}
+			final UpdatableAhoCorasick all = new UpdatableAhoCorasick(keywords);
+			final UpdatableAhoCorasick longest = new UpdatableAhoCorasick(keywords, MatchKind.LEFTMOST_LONGEST);
+			final UpdatableAhoCorasick first = new UpdatableAhoCorasick(keywords, MatchKind.LEFTMOST_FIRST);
+			for (int step = 0; step < 60; step++) {
+				final List<String> additions = new ArrayList<>();
+				final List<String> removals = new ArrayList<>();
+				for (int change = random.nextInt(4); change >= 0; change--) {
+					final String keyword = randomString(random, alphabet, 1 + random.nextInt(6));
+					if (random.nextBoolean()) {
+						additions.add(keyword);
+					} else if (!keywords.isEmpty() && random.nextBoolean()) {
+						removals.add(new ArrayList<>(keywords).get(random.nextInt(keywords.size())));
+					} else {
+						removals.add(keyword);
+					}
+				}
+				keywords.removeAll(removals);
+				keywords.addAll(additions);
+				final AhoCorasickSnapshot snapshot = all.update(additions, removals);
+				assertEquals(keywords, snapshot.getKeywords());
+
+				final String text = randomString(random, alphabet, 300);
+				final List<String> matches = toStrings(snapshot.match(text));
+				assertEquals(naiveMatch(keywords, text).size(), matches.size());
+				assertEquals(new HashSet<>(naiveMatch(keywords, text)), new HashSet<>(matches));
+				final List<String> leftmostLongest = toStrings(longest.update(additions, removals).match(text));
+				final AhoCorasickSnapshot leftmostFirst = first.update(additions, removals);
+				// keywords rank in the order they were last added
+				assertEquals(new ArrayList<>(keywords), new ArrayList<>(leftmostFirst.getKeywords()));
+				if (!keywords.isEmpty()) {
+					assertEquals(toStrings(new AhoCorasick(keywords, MatchKind.LEFTMOST_LONGEST).match(text)), 
+							leftmostLongest);
+					assertEquals(toStrings(new AhoCorasick(keywords, MatchKind.LEFTMOST_FIRST).match(text)), 
+							toStrings(leftmostFirst.match(text)));
+				}
+			}
+		}
+	}
+
+	private static String randomString(Random random, int alphabet, int length) {
+		final StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append((char) ('a' + random.nextInt(alphabet)));
+		}
+		return builder.toString();
+	}
+}
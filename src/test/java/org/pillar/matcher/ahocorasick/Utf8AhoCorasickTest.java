@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.ahocorasick;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class Utf8AhoCorasickTest {
+	private static final String TEXT = "Ünïcödé: she said été and €10 for 😀 hers, hé 😀!";
+
+	private static Set<String> keywords() {
+		final Set<String> keywords = new LinkedHashSet<>();
+		keywords.add("he");
+		keywords.add("she");
+		keywords.add("hers");
+		keywords.add("été");
+		keywords.add("€");
+		keywords.add("😀");
+		keywords.add("hé");
+		return keywords;
+	}
+
+	@Test
+	public void matchCharOffsets() {
+		final Set<String> keywords = keywords();
+		final CompiledAhoCorasick expected = new CompiledAhoCorasick(keywords);
+		final Utf8AhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create().withKeywords(keywords).buildUtf8();
+		final byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+
+		final List<String> matches = new ArrayList<>();
+		assertFalse(ahoCorasick.matchCharOffsets(bytes, 0, bytes.length, (keywordId, start, end) -> {
+			assertEquals(ahoCorasick.getKeyword(keywordId), TEXT.substring(start, end));
+			return matches.add(keywordId + " " + start + " " + end);
+		}));
+		assertEquals(toStrings(expected, TEXT), matches);
+
+		final List<String> bufferMatches = new ArrayList<>();
+		final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		((Buffer) direct.put(bytes)).flip();
+		ahoCorasick.matchCharOffsets(direct, (keywordId, start, end) -> 
+				bufferMatches.add(keywordId + " " + start + " " + end));
+		assertEquals(matches, bufferMatches);
+	}
+
+	@Test
+	public void matchByteOffsets() throws IOException {
+		final Set<String> keywords = keywords();
+		final Utf8AhoCorasick ahoCorasick = CompiledAhoCorasickBuilder.create()
+				.withKeywords(keywords)
+				.withTransitionMode(TransitionMode.DETERMINISTIC)
+				.buildUtf8();
+		final byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+
+		final List<String> matches = new ArrayList<>();
+		ahoCorasick.match(bytes, (keywordId, start, end) -> {
+			final String matched = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+			assertEquals(ahoCorasick.getKeyword(keywordId), matched);
+			assertEquals(ahoCorasick.getKeywordByteLength(keywordId), end - start);
+			return matches.add(keywordId + " " + start + " " + end);
+		});
+		assertEquals(9, matches.size());
+
+		// a heap buffer that does not start at its array's first element
+		final byte[] padded = new byte[bytes.length + 4];
+		System.arraycopy(bytes, 0, padded, 3, bytes.length);
+		final ByteBuffer slice = ByteBuffer.wrap(padded, 3, bytes.length).slice();
+		final List<String> heapMatches = new ArrayList<>();
+		ahoCorasick.match(slice, (keywordId, start, end) -> heapMatches.add(keywordId + " " + start + " " + end));
+		assertEquals(matches, heapMatches);
+		assertEquals(0, slice.position());
+
+		final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		((Buffer) direct.put(bytes)).flip();
+		final List<String> directMatches = new ArrayList<>();
+		ahoCorasick.match(direct, (keywordId, start, end) -> directMatches.add(keywordId + " " + start + " " + end));
+		assertEquals(matches, directMatches);
+
+		final Path file = Files.createTempFile("utf8", ".txt");
+		try {
+			Files.write(file, bytes);
+			final List<String> fileMatches = new ArrayList<>();
+			assertFalse(ahoCorasick.match(file, (keywordId, start, end) -> 
+					fileMatches.add(keywordId + " " + start + " " + end)));
+			assertEquals(matches, fileMatches);
+			assertTrue(ahoCorasick.match(file, (keywordId, start, end) -> false));
+		} finally {
+			Files.delete(file);
+		}
+
+		assertTrue(ahoCorasick.containsMatch(bytes));
+		assertFalse(ahoCorasick.containsMatch("éè no match".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static List<String> toStrings(CompiledAhoCorasick ahoCorasick, String text) {
+		final List<String> matches = new ArrayList<>();
+		ahoCorasick.match(text, (keywordId, start, end) -> matches.add(keywordId + " " + start + " " + end));
+		return matches;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Sotirios Delimanolis
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.pillar.matcher.teddy;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.pillar.matcher.MatchResult;
+import org.pillar.matcher.StringMatchers;
+import org.pillar.matcher.ahocorasick.AhoCorasick;
+import org.pillar.matcher.ahocorasick.CompiledAhoCorasick;
+
+public class TeddyMatcherTest {
+
+	@Test
+	public void match() {
+		final TeddyMatcher matcher = new TeddyMatcher(new LinkedHashSet<>(Arrays.asList("he", "she", "his", "hers")));
+		final List<MatchResult> results = matcher.match("ushers");
+
+		assertThat(results.size(), is(3));
+		assertThat(results.get(0).matchedString(), is("she"));
+		assertThat(results.get(1).matchedString(), is("he"));
+		assertThat(results.get(2).matchedString(), is("hers"));
+		assertThat(results.get(2).start(), is(2));
+		assertThat(results.get(2).end(), is(6));
+		assertThat(matcher.containsMatch("ushers"), is(true));
+		assertThat(matcher.containsMatch("hi"), is(false));
+	}
+
+	@Test
+	public void matchLikeAhoCorasick() {
+		final Random random = new Random(7);
+		for (int round = 0; round < 200; round++) {
+			final int alphabet = 2 + random.nextInt(3);
+			final Set<String> keywords = new HashSet<>();
+			for (int count = 1 + random.nextInt(TeddyMatcher.SMALL_DICTIONARY_LIMIT); count > 0; count--) {
+				keywords.add(randomString(random, alphabet, 1 + random.nextInt(6)));
+			}
+			final String text = randomString(random, alphabet, random.nextInt(200));
+
+			final List<MatchResult> expected = new AhoCorasick(keywords).match(text);
+			final List<MatchResult> actual = new TeddyMatcher(keywords).match(text);
+			assertThat(actual.size(), is(expected.size()));
+			for (int index = 0; index < expected.size(); index++) {
+				assertThat(actual.get(index).matchedString(), is(expected.get(index).matchedString()));
+				assertThat(actual.get(index).keywordId(), is(expected.get(index).keywordId()));
+				assertThat(actual.get(index).start(), is(expected.get(index).start()));
+				assertThat(actual.get(index).end(), is(expected.get(index).end()));
+			}
+		}
+	}
+
+	@Test
+	public void stopMatching() {
+		final TeddyMatcher matcher = new TeddyMatcher(new HashSet<>(Arrays.asList("ab", "b")));
+		final List<Integer> ends = new ArrayList<>();
+		final boolean stopped = matcher.match("abab", (keywordId, start, end) -> {
+			ends.add(end);
+			return ends.size() < 3;
+		});
+
+		assertThat(stopped, is(true));
+		assertThat(ends, is(Arrays.asList(2, 2, 4)));
+	}
+
+	@Test
+	public void newStringMatcher() {
+		final Set<String> small = new HashSet<>(Arrays.asList("he", "she"));
+		final Set<String> large = new HashSet<>();
+		for (int keyword = 0; keyword <= TeddyMatcher.SMALL_DICTIONARY_LIMIT; keyword++) {
+			large.add("keyword" + keyword);
+		}
+		final StringMatchers matchers = new StringMatchers();
+
+		assertThat(matchers.newStringMatcher(small), instanceOf(TeddyMatcher.class));
+		assertThat(matchers.newStringMatcher(large), instanceOf(CompiledAhoCorasick.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyKeyword() {
+		new TeddyMatcher(new HashSet<>(Arrays.asList("a", "")));
+	}
+
+	private static String randomString(Random random, int alphabet, int length) {
+		final StringBuilder builder = new StringBuilder(length);
+		for (int index = 0; index < length; index++) {
+			// chars sharing a low byte exercise verification
+			builder.append((char) ((random.nextBoolean() ? 'a' : 'a' + 0x100) + random.nextInt(alphabet)));
+		}
+		return builder.toString();
+	}
+}